@@ -0,0 +1,67 @@
+package db.test.app.product;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import db.test.app.ProductApplication;
+
+/**
+ * Application context (without web server) with embedded database shared by benchmarks.
+ */
+@State(Scope.Benchmark)
+public class ApplicationState {
+
+    private ConfigurableApplicationContext context;
+
+    @Setup
+    public void setup() {
+
+        context = start();
+    }
+
+    /**
+     * Starts application context (without web server) with given profiles.
+     */
+    public static ConfigurableApplicationContext start(String... profiles) {
+
+        return new SpringApplicationBuilder(ProductApplication.class).profiles(profiles)
+                .web(WebApplicationType.NONE).run();
+    }
+
+    @TearDown
+    public void tearDown() {
+
+        context.close();
+    }
+
+    /**
+     * Gets bean of given type.
+     */
+    public <T> T getBean(Class<T> type) {
+
+        return context.getBean(type);
+    }
+
+    /**
+     * Creates new products (not persisted) with unique names.
+     */
+    public static List<Product> createProducts(int count) {
+
+        List<Product> products = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Product product = new Product();
+            product.setName("product " + i);
+            product.setPrice(i + 1);
+            products.add(product);
+        }
+        return products;
+    }
+}
@@ -0,0 +1,54 @@
+package db.test.app.product;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmark of creating products one by one and in batch.
+ * Throughput is reported as created products (rows) per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3,
+    time = 5)
+@Measurement(iterations = 5,
+    time = 5)
+@Fork(1)
+public class ProductBatchBenchmark {
+
+    private static final int ROWS = 1000;
+
+    /**
+     * Creates products one by one, each in its own transaction.
+     */
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void addProduct(ApplicationState application, Blackhole blackhole) {
+
+        ProductService service = application.getBean(ProductService.class);
+        for (Product product : ApplicationState.createProducts(ROWS)) {
+            blackhole.consume(service.addProduct(product));
+        }
+    }
+
+    /**
+     * Creates all products in one transaction using JDBC batching.
+     */
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public List<ProductBatchResult> addProducts(ApplicationState application) {
+
+        return application.getBean(ProductService.class)
+                .addProducts(ApplicationState.createProducts(ROWS));
+    }
+}
@@ -0,0 +1,81 @@
+package db.test.app.product;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of {@link Product#equals(Object)} and {@link Product#hashCode()} used in collections.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3,
+    time = 2)
+@Measurement(iterations = 5,
+    time = 2)
+@Fork(1)
+public class ProductEqualityBenchmark {
+
+    private static final int SIZE = 10_000;
+
+    private List<Product> products;
+
+    private Set<Product> productSet;
+
+    private Product product;
+
+    private Product equalProduct;
+
+    @Setup
+    public void setup() {
+
+        products = ApplicationState.createProducts(SIZE);
+        for (int i = 0; i < SIZE; i++) {
+            products.get(i).setId(i + 1);
+            products.get(i).setCreationDate(LocalDate.now());
+        }
+        productSet = new HashSet<>(products);
+        product = products.get(SIZE / 2);
+        equalProduct = ApplicationState.createProducts(SIZE).get(SIZE / 2);
+        equalProduct.setId(product.getId());
+        equalProduct.setCreationDate(product.getCreationDate());
+    }
+
+    @Benchmark
+    public int hashCodeOfProduct() {
+
+        return product.hashCode();
+    }
+
+    @Benchmark
+    public boolean equalsOfProduct() {
+
+        return product.equals(equalProduct);
+    }
+
+    @Benchmark
+    public boolean containsInSet() {
+
+        return productSet.contains(equalProduct);
+    }
+
+    @Benchmark
+    public Set<Product> buildSet() {
+
+        return new HashSet<>(products);
+    }
+}
@@ -0,0 +1,114 @@
+package db.test.app.product;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * Benchmark comparing JSON, CBOR and Smile serialization and deserialization of product lists.
+ * Payload size of each format is reported as secondary result of serialization (payloadBytes).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3,
+    time = 2)
+@Measurement(iterations = 5,
+    time = 2)
+@Fork(1)
+public class ProductFormatBenchmark {
+
+    /**
+     * Format of the payload.
+     */
+    @Param({ "json", "cbor", "smile" })
+    private String format;
+
+    /**
+     * Number of products in the list.
+     */
+    @Param({ "100", "10000" })
+    private int size;
+
+    private ObjectWriter listWriter;
+
+    private ObjectReader listReader;
+
+    private List<Product> products;
+
+    private byte[] payload;
+
+    @Setup
+    public void setup() throws Exception {
+
+        ObjectMapper objectMapper = createBuilder().build();
+        TypeReference<List<Product>> listType = new TypeReference<List<Product>>() {
+        };
+        listWriter = objectMapper.writerFor(listType);
+        listReader = objectMapper.readerFor(listType);
+        products = ApplicationState.createProducts(size);
+        for (int i = 0; i < size; i++) {
+            products.get(i).setId(i + 1);
+            products.get(i).setCreationDate(LocalDate.now());
+        }
+        payload = listWriter.writeValueAsBytes(products);
+    }
+
+    private Jackson2ObjectMapperBuilder createBuilder() {
+
+        switch (format) {
+        case "cbor":
+            return Jackson2ObjectMapperBuilder.cbor();
+        case "smile":
+            return Jackson2ObjectMapperBuilder.smile();
+        default:
+            return Jackson2ObjectMapperBuilder.json();
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeProducts(PayloadSize payloadSize) throws Exception {
+
+        byte[] bytes = listWriter.writeValueAsBytes(products);
+        payloadSize.payloadBytes = bytes.length;
+        return bytes;
+    }
+
+    @Benchmark
+    public List<Product> deserializeProducts() throws Exception {
+
+        return listReader.readValue(payload);
+    }
+
+    /**
+     * Size of the serialized list reported with results of the benchmark.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class PayloadSize {
+
+        /**
+         * Number of bytes of the last serialized list.
+         */
+        public long payloadBytes;
+    }
+}
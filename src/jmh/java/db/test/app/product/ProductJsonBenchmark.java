@@ -0,0 +1,104 @@
+package db.test.app.product;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * Benchmark of JSON serialization and deserialization of products.
+ * Object mapper is configured the same way as the one used by Spring MVC.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3,
+    time = 2)
+@Measurement(iterations = 5,
+    time = 2)
+@Fork(1)
+public class ProductJsonBenchmark {
+
+    /**
+     * Number of products in the list.
+     */
+    @Param({ "1", "100", "10000" })
+    private int size;
+
+    private ObjectWriter productWriter;
+
+    private ObjectReader productReader;
+
+    private ObjectWriter listWriter;
+
+    private ObjectReader listReader;
+
+    private Product product;
+
+    private List<Product> products;
+
+    private byte[] productJson;
+
+    private byte[] productsJson;
+
+    @Setup
+    public void setup() throws Exception {
+
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        TypeReference<List<Product>> listType = new TypeReference<List<Product>>() {
+        };
+        productWriter = objectMapper.writerFor(Product.class);
+        productReader = objectMapper.readerFor(Product.class);
+        listWriter = objectMapper.writerFor(listType);
+        listReader = objectMapper.readerFor(listType);
+        products = ApplicationState.createProducts(size);
+        for (int i = 0; i < size; i++) {
+            products.get(i).setId(i + 1);
+            products.get(i).setCreationDate(LocalDate.now());
+        }
+        product = products.get(0);
+        productJson = productWriter.writeValueAsBytes(product);
+        productsJson = listWriter.writeValueAsBytes(products);
+    }
+
+    @Benchmark
+    public byte[] serializeProduct() throws Exception {
+
+        return productWriter.writeValueAsBytes(product);
+    }
+
+    @Benchmark
+    public Product deserializeProduct() throws Exception {
+
+        return productReader.readValue(productJson);
+    }
+
+    @Benchmark
+    public byte[] serializeProducts() throws Exception {
+
+        return listWriter.writeValueAsBytes(products);
+    }
+
+    @Benchmark
+    public List<Product> deserializeProducts() throws Exception {
+
+        return listReader.readValue(productsJson);
+    }
+}
@@ -0,0 +1,95 @@
+package db.test.app.product;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of {@link ProductService} operations against embedded database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3,
+    time = 5)
+@Measurement(iterations = 5,
+    time = 5)
+@Fork(1)
+public class ProductServiceBenchmark {
+
+    /**
+     * Number of products in database.
+     */
+    @Param({ "1000" })
+    private int products;
+
+    private static final List<ProductField> ID_AND_NAME = Arrays.asList(ProductField.ID,
+            ProductField.NAME);
+
+    private ProductService service;
+
+    private int firstId;
+
+    @Setup
+    public void setup(ApplicationState application) {
+
+        service = application.getBean(ProductService.class);
+        List<ProductBatchResult> results = service
+                .addProducts(ApplicationState.createProducts(products));
+        firstId = results.get(0).getProduct().getId();
+    }
+
+    @Benchmark
+    public List<Product> getProducts() {
+
+        return service.getProducts();
+    }
+
+    @Benchmark
+    public List<ProductFields> getProductsIdAndName() {
+
+        return service.getProducts(false, ID_AND_NAME);
+    }
+
+    @Benchmark
+    public ProductPage getProductsPage() {
+
+        return service.getProducts(randomId(), 100);
+    }
+
+    @Benchmark
+    public Product getProduct() {
+
+        return service.getProduct(randomId());
+    }
+
+    @Benchmark
+    public Product addProduct() {
+
+        return service.addProduct(ApplicationState.createProducts(1).get(0));
+    }
+
+    @Benchmark
+    public Product updateProduct() {
+
+        return service.updateProduct(randomId(), ApplicationState.createProducts(1).get(0));
+    }
+
+    private int randomId() {
+
+        return firstId + ThreadLocalRandom.current().nextInt(products);
+    }
+}
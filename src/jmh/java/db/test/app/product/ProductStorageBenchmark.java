@@ -0,0 +1,103 @@
+package db.test.app.product;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+
+/**
+ * Benchmark comparing throughput of storage engines (JPA with embedded database and in-memory).
+ * Reads go directly to the repository (bypassing the cache), writes through the service.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3,
+    time = 5)
+@Measurement(iterations = 5,
+    time = 5)
+@Fork(1)
+@Threads(4)
+public class ProductStorageBenchmark {
+
+    /**
+     * Storage engine, inmemory is the name of the profile.
+     */
+    @Param({ "jpa", "inmemory" })
+    private String engine;
+
+    /**
+     * Number of stored products.
+     */
+    @Param({ "10000" })
+    private int products;
+
+    private ConfigurableApplicationContext context;
+
+    private ProductStore repository;
+
+    private ProductService service;
+
+    private int firstId;
+
+    @Setup
+    public void setup() {
+
+        context = engine.equals("jpa") ? ApplicationState.start() : ApplicationState.start(engine);
+        repository = context.getBean(ProductStore.class);
+        service = context.getBean(ProductService.class);
+        firstId = service.addProducts(ApplicationState.createProducts(products)).get(0)
+                .getProduct().getId();
+    }
+
+    @TearDown
+    public void tearDown() {
+
+        context.close();
+    }
+
+    @Benchmark
+    public Optional<Product> findNonDeletedById() {
+
+        return repository.findNonDeletedById(randomId());
+    }
+
+    @Benchmark
+    public List<Product> findPage() {
+
+        return repository.findPage(false, randomId(), PageRequest.of(0, 100));
+    }
+
+    @Benchmark
+    public Product updateProduct() {
+
+        return service.updateProduct(randomId(), ApplicationState.createProducts(1).get(0));
+    }
+
+    @Benchmark
+    public Product addProduct() {
+
+        return service.addProduct(ApplicationState.createProducts(1).get(0));
+    }
+
+    private int randomId() {
+
+        return firstId + ThreadLocalRandom.current().nextInt(products);
+    }
+}
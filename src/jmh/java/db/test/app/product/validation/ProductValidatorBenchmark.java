@@ -0,0 +1,105 @@
+package db.test.app.product.validation;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validation;
+import javax.validation.Validator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import db.test.app.product.Product;
+
+/**
+ * Benchmark of {@link ProductValidator#validate(Product)} compared with validation
+ * using {@link javax.validation.Validator}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3,
+    time = 2)
+@Measurement(iterations = 5,
+    time = 2)
+@Fork(1)
+public class ProductValidatorBenchmark {
+
+    private ProductValidator validator;
+
+    private Validator beanValidator;
+
+    private Product validProduct;
+
+    private Product invalidProduct;
+
+    @Setup
+    public void setup() {
+
+        validator = new ProductValidator();
+        beanValidator = Validation.buildDefaultValidatorFactory().getValidator();
+        validProduct = new Product();
+        validProduct.setName("product");
+        validProduct.setPrice(10.50);
+        invalidProduct = new Product();
+    }
+
+    @Benchmark
+    public Product validateValidProduct() {
+
+        validator.validate(validProduct);
+        return validProduct;
+    }
+
+    @Benchmark
+    public Exception validateInvalidProduct() {
+
+        try {
+            validator.validate(invalidProduct);
+            return null;
+        } catch (ProductValidationException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Product beanValidateValidProduct() {
+
+        beanValidate(validProduct);
+        return validProduct;
+    }
+
+    @Benchmark
+    public Exception beanValidateInvalidProduct() {
+
+        try {
+            beanValidate(invalidProduct);
+            return null;
+        } catch (ProductValidationException e) {
+            return e;
+        }
+    }
+
+    /**
+     * Validation using bean validation as it was done by the previous validator.
+     */
+    private void beanValidate(Product product) {
+
+        Set<ConstraintViolation<Product>> violations = beanValidator.validate(product);
+        if (!violations.isEmpty()) {
+            throw new ProductValidationException(
+                    violations.stream().map(ConstraintViolation::getMessageTemplate)
+                            .collect(Collectors.joining(", ")));
+        }
+    }
+}
@@ -2,11 +2,13 @@ package db.test.app;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * Product application.
  */
 @SpringBootApplication
+@EnableScheduling
 public class ProductApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,96 @@
+package db.test.app.product;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+/**
+ * Archived product entity.
+ * Products deleted longer than the retention period are moved from product table
+ * to product_archive table (see {@link db.test.app.product.archive.ProductArchiver}),
+ * so queries of non-deleted products don't have to skip them.
+ * Archived products are read-only and are returned together with deleted products.
+ */
+@Entity
+@Table(name = "product_archive",
+    indexes = { @Index(name = "product_archive_price_idx",
+        columnList = "price, id"),
+            @Index(name = "product_archive_last_modified_idx",
+                columnList = "lastModified"),
+            @Index(name = "product_archive_change_sequence_idx",
+                columnList = "changeSequence") })
+public class ArchivedProduct {
+
+    @Id
+    private int id;
+
+    private String name;
+
+    private double price;
+
+    private LocalDate creationDate;
+
+    private int version;
+
+    /**
+     * Time of the deletion.
+     */
+    private Instant lastModified;
+
+    /**
+     * Number of the deletion (see {@link ChangeSequence}).
+     */
+    private long changeSequence;
+
+    protected ArchivedProduct() {
+
+    }
+
+    public ArchivedProduct(Product product) {
+
+        this.id = product.getId();
+        this.name = product.getName();
+        this.price = product.getPrice();
+        this.creationDate = product.getCreationDate();
+        this.version = product.getVersion();
+        this.lastModified = product.getLastModified();
+        this.changeSequence = product.getChangeSequence();
+    }
+
+    /**
+     * Gets the id.
+     */
+    public int getId() {
+
+        return id;
+    }
+
+    /**
+     * Gets the time of the deletion.
+     */
+    public Instant getLastModified() {
+
+        return lastModified;
+    }
+
+    /**
+     * Creates deleted product with attributes of the archived one.
+     */
+    public Product toProduct() {
+
+        Product product = new Product();
+        product.setId(id);
+        product.setName(name);
+        product.setPrice(price);
+        product.setCreationDate(creationDate);
+        product.setVersion(version);
+        product.setLastModified(lastModified);
+        product.setChangeSequence(changeSequence);
+        product.markAsDeleted();
+        return product;
+    }
+}
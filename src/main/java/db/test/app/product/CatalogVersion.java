@@ -0,0 +1,65 @@
+package db.test.app.product;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Monotonically increasing version of the catalog.
+ * It is incremented once any change of products is committed.
+ * Together with the start time of the application it identifies the state of the catalog.
+ */
+@Component
+public class CatalogVersion {
+
+    /**
+     * Order of listeners incrementing the version.
+     * They run after caches, indexes and read model are updated (see {@link ProductChangedEvent#UPDATE_ORDER}),
+     * so new version is never served with old products.
+     */
+    public static final int ORDER = Ordered.LOWEST_PRECEDENCE - 1;
+
+    private final long epoch = System.currentTimeMillis();
+
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * Increments version once the change is committed.
+     */
+    @Order(CatalogVersion.ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+
+        version.incrementAndGet();
+    }
+
+    /**
+     * Increments version once for all changes of the bulk operation once they are committed.
+     */
+    @Order(CatalogVersion.ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductsChanged(ProductBulkChangedEvent event) {
+
+        version.incrementAndGet();
+    }
+
+    /**
+     * Gets the current version.
+     */
+    public long get() {
+
+        return version.get();
+    }
+
+    /**
+     * Gets the current version as weak entity tag (unique also across restarts).
+     * It is weak because the same version is served in different formats and encodings.
+     */
+    public String getEntityTag() {
+
+        return "W/\"" + Long.toHexString(epoch) + "-" + Long.toHexString(version.get()) + "\"";
+    }
+}
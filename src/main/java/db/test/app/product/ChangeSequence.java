@@ -0,0 +1,100 @@
+package db.test.app.product;
+
+import java.util.TreeSet;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Monotonically increasing sequence of changes used as token of delta sync.
+ * Each transaction changing products gets one number stored with every changed product
+ * (the number is assigned when the transaction writes first time).
+ * Transactions can commit in different order than they got their numbers, so the sequence
+ * also tracks which numbers are still in use, {@link #getCommitted()} never passes them.
+ */
+@Component
+public class ChangeSequence {
+
+    @Autowired
+    private ProductStore repository;
+
+    @Autowired(required = false)
+    private ProductArchiveRepository archiveRepository;
+
+    /**
+     * Last assigned number (guarded by this).
+     */
+    private long last;
+
+    /**
+     * Numbers of transactions that have not completed yet (guarded by this).
+     */
+    private final TreeSet<Long> active = new TreeSet<>();
+
+    /**
+     * Continues after the highest number stored in the database.
+     */
+    @PostConstruct
+    public void init() {
+
+        long max = repository.findMaxChangeSequence();
+        if (archiveRepository != null) {
+            max = Math.max(max, archiveRepository.findMaxChangeSequence());
+        }
+        synchronized (this) {
+            last = Math.max(last, max);
+        }
+    }
+
+    /**
+     * Gets number of the current transaction, new number is assigned on the first call
+     * and released once the transaction completes.
+     * Each call outside transaction gets new number.
+     */
+    public long next() {
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            synchronized (this) {
+                return ++last;
+            }
+        }
+        Long current = (Long) TransactionSynchronizationManager.getResource(this);
+        if (current != null) {
+            return current;
+        }
+        long sequence;
+        synchronized (this) {
+            sequence = ++last;
+            active.add(sequence);
+        }
+        TransactionSynchronizationManager.bindResource(this, sequence);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+
+            @Override
+            public void afterCompletion(int status) {
+
+                TransactionSynchronizationManager.unbindResourceIfPossible(ChangeSequence.this);
+                release(sequence);
+            }
+        });
+        return sequence;
+    }
+
+    /**
+     * Gets the highest number such that all changes with lower or equal number are committed
+     * (or rolled back).
+     */
+    public synchronized long getCommitted() {
+
+        return active.isEmpty() ? last : active.first() - 1;
+    }
+
+    private synchronized void release(long sequence) {
+
+        active.remove(sequence);
+    }
+}
@@ -0,0 +1,612 @@
+package db.test.app.product;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import db.test.app.product.inmemory.ProductTable;
+
+/**
+ * Storage of products in {@link ProductTable} instead of database (enabled by inmemory profile).
+ * Each read returns new instances, so callers can't change stored products.
+ * Ids are generated sequentially, so lists ordered by id are read by probing ids in order.
+ * Changes are applied immediately. Within transaction with synchronization
+ * (see {@link db.test.app.product.inmemory.InMemoryTransactionManager}) each changed row is locked
+ * until the transaction completes and recorded before its first change: other transactions wait
+ * for the lock before changing the row (at most {@value #LOCK_TIMEOUT_MILLIS} ms) and read the recorded
+ * row instead of the uncommitted one (rows inserted by the transaction are not visible to them),
+ * so rolled back changes are never read (e.g. by the product cache). Rows are restored from records
+ * if the transaction is rolled back.
+ * Generated ids are not reused after rollback.
+ */
+@Repository
+@Profile("inmemory")
+public class InMemoryProductRepository implements ProductStore {
+
+    private final ProductTable table = new ProductTable();
+
+    private final AtomicInteger lastId = new AtomicInteger();
+
+    /**
+     * Time to wait for lock of row changed by another transaction.
+     */
+    static final long LOCK_TIMEOUT_MILLIS = 10_000;
+
+    /**
+     * Locks of rows changed by active transactions by id.
+     */
+    private final Map<Integer, RowLock> rowLocks = new ConcurrentHashMap<>();
+
+    /**
+     * Number of rolled back transactions, reads are repeated if a transaction was rolled back
+     * meanwhile (they could have read its change before the lock was released).
+     */
+    private final AtomicLong rollbacks = new AtomicLong();
+
+    @Override
+    public List<Product> findAllNonDeleted() {
+
+        return collect(product -> !product.isDeleted());
+    }
+
+    @Override
+    public List<Product> findAllDeleted() {
+
+        return collect(Product::isDeleted);
+    }
+
+    @Override
+    public List<ProductFields> findAllFields(boolean deleted, List<ProductField> fields) {
+
+        return streamAll(deleted).map(product -> ProductFields.of(fields, product))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Product> findPage(boolean deleted, int after, Pageable pageable) {
+
+        return page(after, pageable, product -> product.isDeleted() == deleted);
+    }
+
+    @Override
+    public List<Product> findPriceRangePage(boolean deleted, double minPrice, double maxPrice,
+            int after, Pageable pageable) {
+
+        return page(after, pageable, product -> product.isDeleted() == deleted
+                && product.getPrice() >= minPrice && product.getPrice() <= maxPrice);
+    }
+
+    @Override
+    public List<Product> findPriceRangePageByPrice(boolean deleted, double minPrice,
+            double maxPrice, double afterPrice, int afterId, Pageable pageable) {
+
+        return collect(product -> product.isDeleted() == deleted
+                && product.getPrice() >= minPrice && product.getPrice() <= maxPrice
+                && (product.getPrice() > afterPrice
+                        || product.getPrice() == afterPrice && product.getId() > afterId))
+                                .stream()
+                                .sorted(Comparator.comparingDouble(Product::getPrice)
+                                        .thenComparingInt(Product::getId))
+                                .limit(pageable.getPageSize()).collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Product> findChangedAfter(long changeSequence) {
+
+        return collect(product -> product.getChangeSequence() > changeSequence).stream()
+                .sorted(Comparator.comparingLong(Product::getChangeSequence)
+                        .thenComparingInt(Product::getId))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public long findMaxChangeSequence() {
+
+        long max = 0;
+        for (Product product : findVisible()) {
+            max = Math.max(max, product.getChangeSequence());
+        }
+        return max;
+    }
+
+    @Override
+    public PriceAggregate aggregatePrices(boolean deleted) {
+
+        long[] count = new long[1];
+        double[] aggregates = { Double.MAX_VALUE, -Double.MAX_VALUE, 0 };
+        for (Product product : findVisible()) {
+            if (product.isDeleted() == deleted) {
+                count[0]++;
+                aggregates[0] = Math.min(aggregates[0], product.getPrice());
+                aggregates[1] = Math.max(aggregates[1], product.getPrice());
+                aggregates[2] += product.getPrice();
+            }
+        }
+        return new PriceAggregate() {
+
+            @Override
+            public long getProductCount() {
+
+                return count[0];
+            }
+
+            @Override
+            public Double getMinPrice() {
+
+                return count[0] > 0 ? aggregates[0] : null;
+            }
+
+            @Override
+            public Double getMaxPrice() {
+
+                return count[0] > 0 ? aggregates[1] : null;
+            }
+
+            @Override
+            public Double getPriceSum() {
+
+                return count[0] > 0 ? aggregates[2] : null;
+            }
+        };
+    }
+
+    @Override
+    public Stream<Product> streamAll(boolean deleted) {
+
+        return IntStream.rangeClosed(1, lastId.get()).mapToObj(this::find)
+                .filter(product -> product != null && product.isDeleted() == deleted);
+    }
+
+    @Override
+    public Optional<Product> findNonDeletedById(Integer id) {
+
+        return Optional.ofNullable(find(id)).filter(product -> !product.isDeleted());
+    }
+
+    @Override
+    public List<Product> findNonDeletedByIds(Collection<Integer> ids) {
+
+        List<Product> products = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            findNonDeletedById(id).ifPresent(products::add);
+        }
+        return products;
+    }
+
+    /**
+     * Collects ids of products with given ids and deleted flag.
+     * Rows are not locked, so they can be changed before {@link #setDeleted(Collection, boolean, long)}.
+     */
+    @Override
+    public List<Integer> findIdsByDeleted(Collection<Integer> ids, boolean deleted) {
+
+        List<Integer> foundIds = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            Product product = find(id);
+            if (product != null && product.isDeleted() == deleted) {
+                foundIds.add(id);
+            }
+        }
+        return foundIds;
+    }
+
+    /**
+     * Collects ids and versions of products with given ids and deleted flag.
+     * Rows are not locked, so they can be changed before {@link #setDeleted(Collection, boolean, long)}.
+     */
+    @Override
+    public List<ProductIdVersion> findVersionsByDeleted(Collection<Integer> ids, boolean deleted) {
+
+        List<ProductIdVersion> found = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            Product product = find(id);
+            if (product != null && product.isDeleted() == deleted) {
+                found.add(idVersion(id, product.getVersion()));
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public int setDeleted(Collection<Integer> ids, boolean deleted, long changeSequence) {
+
+        long now = now();
+        int updated = 0;
+        for (Integer id : ids) {
+            lock(id);
+            updated += deleted ? table.softDelete(id, ProductTable.ANY_VERSION, now, changeSequence)
+                : table.restore(id, now, changeSequence);
+        }
+        return updated;
+    }
+
+    @Override
+    public List<Integer> findIdsDeletedBefore(Instant before, Pageable pageable) {
+
+        return streamAll(true).filter(product -> product.getLastModified().isBefore(before))
+                .limit(pageable.getPageSize()).map(Product::getId).collect(Collectors.toList());
+    }
+
+    /**
+     * Removes deleted products with given ids.
+     * Product restored concurrently after the check can be removed as well.
+     */
+    @Override
+    public int removeDeleted(Collection<Integer> ids) {
+
+        int removed = 0;
+        for (Integer id : ids) {
+            lock(id);
+            if (!findNonDeletedById(id).isPresent() && table.remove(id)) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    @Override
+    public int update(int id, String name, double price, long changeSequence) {
+
+        lock(id);
+        return table.update(id, name, price, ProductTable.ANY_VERSION, now(), changeSequence);
+    }
+
+    @Override
+    public int update(int id, String name, double price, int version, long changeSequence) {
+
+        lock(id);
+        return table.update(id, name, price, version, now(), changeSequence);
+    }
+
+    @Override
+    public int softDelete(Integer id, long changeSequence) {
+
+        lock(id);
+        return table.softDelete(id, ProductTable.ANY_VERSION, now(), changeSequence);
+    }
+
+    @Override
+    public int softDelete(int id, int version, long changeSequence) {
+
+        lock(id);
+        return table.softDelete(id, version, now(), changeSequence);
+    }
+
+    /**
+     * Saves product the same way as JPA repository does.
+     * Product with id 0 is inserted with generated id and version 0 set to it.
+     * Otherwise stored product is replaced if its version matches (or new product is inserted
+     * if there is no product with given id) and copy of the stored product is returned.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <S extends Product> S save(S entity) {
+
+        Instant now = Instant.now();
+        int creationDay = toDay(entity.getCreationDate());
+        if (entity.getId() == 0) {
+            entity.setId(lastId.incrementAndGet());
+            lock(entity.getId());
+            entity.setVersion(0);
+            entity.setLastModified(now);
+            table.put(entity.getId(), entity.getName(), entity.getPrice(), creationDay, 0,
+                    entity.isDeleted(), toNanos(now), entity.getChangeSequence());
+            return entity;
+        }
+        int id = entity.getId();
+        lock(id);
+        if (findRow(id) != null) {
+            if (table.replace(id, entity.getName(), entity.getPrice(), creationDay,
+                    entity.isDeleted(), entity.getVersion(), toNanos(now),
+                    entity.getChangeSequence()) < 0) {
+                throw new ObjectOptimisticLockingFailureException(Product.class, id);
+            }
+        } else {
+            id = lastId.incrementAndGet();
+            lock(id);
+            table.put(id, entity.getName(), entity.getPrice(), creationDay, 0, entity.isDeleted(),
+                    toNanos(now), entity.getChangeSequence());
+        }
+        return (S) find(id);
+    }
+
+    @Override
+    public Optional<Product> findById(Integer id) {
+
+        return Optional.ofNullable(find(id));
+    }
+
+    @Override
+    public List<Product> findAll() {
+
+        return collect(product -> true);
+    }
+
+    @Override
+    public List<Product> findAllById(Iterable<Integer> ids) {
+
+        return StreamSupport.stream(ids.spliterator(), false).map(this::find)
+                .filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    @Override
+    public void flushAndClear() {
+
+        // changes are applied immediately and products are not kept
+    }
+
+    @Override
+    public void detach(Product product) {
+
+        // products are not kept
+    }
+
+    /**
+     * Gets product with given id as seen by the current transaction or null if there is none.
+     */
+    private Product find(int id) {
+
+        while (true) {
+            long rolledBack = rollbacks.get();
+            Product product = visible(id, findRow(id));
+            if (rollbacks.get() == rolledBack) {
+                return product;
+            }
+        }
+    }
+
+    /**
+     * Gets all products as seen by the current transaction (in no particular order).
+     */
+    private List<Product> findVisible() {
+
+        while (true) {
+            long rolledBack = rollbacks.get();
+            List<Product> products = new ArrayList<>();
+            table.forEach((id, name, price, creationDay, version, deleted, lastModified,
+                    changeSequence) -> {
+                Product product = visible(id, toProduct(id, name, price, creationDay, version, deleted,
+                        lastModified, changeSequence));
+                if (product != null) {
+                    products.add(product);
+                }
+                return null;
+            });
+            if (rollbacks.get() == rolledBack) {
+                return products;
+            }
+        }
+    }
+
+    /**
+     * Gets given row or its copy recorded before the change if it is locked by another transaction.
+     */
+    private Product visible(int id, Product row) {
+
+        if (rowLocks.isEmpty()) {
+            return row;
+        }
+        RowLock lock = rowLocks.get(id);
+        if (lock == null || lock.owner == TransactionSynchronizationManager.getResource(this)) {
+            return row;
+        }
+        return lock.row != null ? copy(lock.row) : null;
+    }
+
+    private Product findRow(int id) {
+
+        return table.get(id, InMemoryProductRepository::toProduct);
+    }
+
+    /**
+     * Locks row with given id before its first change in the current transaction (if there is
+     * transaction with synchronization) and records it. Without transaction it only waits until
+     * the row is not locked.
+     */
+    private void lock(int id) {
+
+        UndoLog undoLog = null;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            undoLog = (UndoLog) TransactionSynchronizationManager.getResource(this);
+            if (undoLog == null) {
+                undoLog = new UndoLog();
+                TransactionSynchronizationManager.bindResource(this, undoLog);
+                TransactionSynchronizationManager.registerSynchronization(undoLog);
+            }
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(LOCK_TIMEOUT_MILLIS);
+        while (true) {
+            RowLock lock = rowLocks.get(id);
+            if (lock == null) {
+                if (undoLog == null) {
+                    return;
+                }
+                lock = new RowLock(undoLog, findRow(id));
+                if (rowLocks.putIfAbsent(id, lock) == null) {
+                    undoLog.locks.put(id, lock);
+                    return;
+                }
+            } else if (lock.owner == undoLog) {
+                return;
+            } else {
+                await(id, lock, deadline);
+            }
+        }
+    }
+
+    private static void await(int id, RowLock lock, long deadline) {
+
+        try {
+            if (!lock.released.await(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                throw new CannotAcquireLockException("Product " + id + " is locked by another transaction");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CannotAcquireLockException("Interrupted while waiting for lock of product " + id, e);
+        }
+    }
+
+    /**
+     * Lock of row changed by active transaction with the row as it was before the change
+     * (null for inserted row).
+     */
+    private static final class RowLock {
+
+        private final UndoLog owner;
+
+        private final Product row;
+
+        private final CountDownLatch released = new CountDownLatch(1);
+
+        RowLock(UndoLog owner, Product row) {
+
+            this.owner = owner;
+            this.row = row;
+        }
+    }
+
+    /**
+     * Locks of rows changed by the transaction, rows are restored unless the transaction commits
+     * and locks are released once it completes.
+     */
+    private class UndoLog extends TransactionSynchronizationAdapter {
+
+        private final Map<Integer, RowLock> locks = new HashMap<>();
+
+        @Override
+        public void afterCompletion(int status) {
+
+            TransactionSynchronizationManager.unbindResourceIfPossible(InMemoryProductRepository.this);
+            if (status != STATUS_COMMITTED) {
+                locks.forEach((id, lock) -> {
+                    Product product = lock.row;
+                    if (product != null) {
+                        table.put(id, product.getName(), product.getPrice(),
+                                toDay(product.getCreationDate()), product.getVersion(),
+                                product.isDeleted(), toNanos(product.getLastModified()),
+                                product.getChangeSequence());
+                    } else {
+                        table.remove(id);
+                    }
+                });
+                rollbacks.incrementAndGet();
+            }
+            locks.forEach((id, lock) -> {
+                rowLocks.remove(id);
+                lock.released.countDown();
+            });
+        }
+    }
+
+    /**
+     * Collects products matching given predicate ordered by id.
+     */
+    private List<Product> collect(Predicate<Product> predicate) {
+
+        List<Product> products = findVisible().stream().filter(predicate).collect(Collectors.toList());
+        products.sort(Comparator.comparingInt(Product::getId));
+        return products;
+    }
+
+    /**
+     * Collects page of products matching given predicate with id greater than given id
+     * by probing following ids.
+     */
+    private List<Product> page(int after, Pageable pageable, Predicate<Product> predicate) {
+
+        List<Product> products = new ArrayList<>(pageable.getPageSize());
+        int last = lastId.get();
+        for (int id = Math.max(after, 0) + 1; id <= last
+                && products.size() < pageable.getPageSize(); id++) {
+            Product product = find(id);
+            if (product != null && predicate.test(product)) {
+                products.add(product);
+            }
+        }
+        return products;
+    }
+
+    private static Product toProduct(int id, String name, double price, int creationDay,
+            int version, boolean deleted, long lastModified, long changeSequence) {
+
+        Product product = new Product();
+        product.setId(id);
+        product.setName(name);
+        product.setPrice(price);
+        if (creationDay != ProductTable.NULL_DAY) {
+            product.setCreationDate(LocalDate.ofEpochDay(creationDay));
+        }
+        product.setVersion(version);
+        if (deleted) {
+            product.markAsDeleted();
+        }
+        product.setLastModified(Instant.ofEpochSecond(0, lastModified));
+        product.setChangeSequence(changeSequence);
+        return product;
+    }
+
+    private static ProductIdVersion idVersion(int id, int version) {
+
+        return new ProductIdVersion() {
+
+            @Override
+            public int getId() {
+
+                return id;
+            }
+
+            @Override
+            public int getVersion() {
+
+                return version;
+            }
+        };
+    }
+
+    private static Product copy(Product product) {
+
+        return toProduct(product.getId(), product.getName(), product.getPrice(),
+                toDay(product.getCreationDate()), product.getVersion(), product.isDeleted(),
+                toNanos(product.getLastModified()), product.getChangeSequence());
+    }
+
+    private static int toDay(LocalDate date) {
+
+        return date != null ? (int) date.toEpochDay() : ProductTable.NULL_DAY;
+    }
+
+    private static long now() {
+
+        return toNanos(Instant.now());
+    }
+
+    private static long toNanos(Instant instant) {
+
+        return instant.getEpochSecond() * 1_000_000_000L + instant.getNano();
+    }
+}
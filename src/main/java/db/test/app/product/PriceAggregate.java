@@ -0,0 +1,28 @@
+package db.test.app.product;
+
+/**
+ * Aggregate of prices of products computed by database (see {@link ProductRepository#aggregatePrices(boolean)}).
+ * Minimum, maximum and sum are null if there are no products.
+ */
+public interface PriceAggregate {
+
+    /**
+     * Gets number of products.
+     */
+    long getProductCount();
+
+    /**
+     * Gets minimal price.
+     */
+    Double getMinPrice();
+
+    /**
+     * Gets maximal price.
+     */
+    Double getMaxPrice();
+
+    /**
+     * Gets sum of prices.
+     */
+    Double getPriceSum();
+}
@@ -0,0 +1,64 @@
+package db.test.app.product;
+
+import db.test.app.product.validation.ProductValidationException;
+
+/**
+ * Cursor of the page of products ordered by price and id.
+ * It contains price and id of the last product on the page, its text form is "price_id".
+ */
+public class PriceCursor {
+
+    /**
+     * Cursor preceding all products.
+     */
+    public static final PriceCursor FIRST = new PriceCursor(-Double.MAX_VALUE, 0);
+
+    private final double price;
+
+    private final int id;
+
+    public PriceCursor(double price, int id) {
+
+        this.price = price;
+        this.id = id;
+    }
+
+    /**
+     * Parses cursor from its text form, null is parsed as {@link #FIRST}.
+     */
+    public static PriceCursor parse(String cursor) {
+
+        if (cursor == null) {
+            return FIRST;
+        }
+        int separator = cursor.lastIndexOf('_');
+        try {
+            return new PriceCursor(Double.parseDouble(cursor.substring(0, separator)),
+                    Integer.parseInt(cursor.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new ProductValidationException("after has to contain cursor price_id");
+        }
+    }
+
+    /**
+     * Gets the price.
+     */
+    public double getPrice() {
+
+        return price;
+    }
+
+    /**
+     * Gets the id.
+     */
+    public int getId() {
+
+        return id;
+    }
+
+    @Override
+    public String toString() {
+
+        return price + "_" + id;
+    }
+}
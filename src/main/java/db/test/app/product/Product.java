@@ -1,16 +1,25 @@
 package db.test.app.product;
 
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.Objects;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
-import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+import javax.persistence.Table;
+import javax.persistence.Version;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.Positive;
 
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+
 import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
@@ -18,22 +27,39 @@ import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.fasterxml.jackson.datatype.jsr310.deser.LocalDateDeserializer;
 import com.fasterxml.jackson.datatype.jsr310.ser.LocalDateSerializer;
 
+import db.test.app.product.id.ProductIdGenerator;
 import io.swagger.annotations.ApiModel;
 import io.swagger.annotations.ApiModelProperty;
 
 /**
  * Product entity.
- * Field id has auto-generated value that cannot be set externally.
+ * Field id has auto-generated value that cannot be set externally,
+ * ids are reserved in blocks (see {@link ProductIdGenerator}).
  * Field creationData is set automatically to current date when entity is created and cannot be changed.
+ * Field version is incremented with each change and is used for optimistic locking.
+ * Field lastModified is set to current time with each change.
+ * Field changeSequence is set to number of the transaction of the last change (see {@link ChangeSequence}).
  */
 @ApiModel(description = "Contains attributes of the product")
 @Entity
+@Table(indexes = { @Index(name = "product_deleted_id_idx",
+    columnList = "deleted, id"),
+        @Index(name = "product_deleted_price_idx",
+            columnList = "deleted, price, id"),
+        @Index(name = "product_last_modified_idx",
+            columnList = "lastModified"),
+        @Index(name = "product_change_sequence_idx",
+            columnList = "changeSequence") })
 public class Product {
 
     @ApiModelProperty(notes = "unique identifier of the product (auto-generated read only value)")
     @Id
     @Column(updatable = false)
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(generator = "product_id")
+    @GenericGenerator(name = "product_id",
+        strategy = "db.test.app.product.id.ProductIdGenerator",
+        parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM,
+            value = "product_seq"))
     private int id;
 
     @ApiModelProperty(notes = "name of the product (mandatory)")
@@ -52,12 +78,29 @@ public class Product {
     @JsonSerialize(using = LocalDateSerializer.class)
     private LocalDate creationDate;
 
+    @ApiModelProperty(
+        notes = "version of the product incremented with each change (auto-generated read only value), it can be provided in If-Match header")
+    @Version
+    private int version;
+
     /**
      * Internal field indicating whether entity has been deleted.
      */
     @JsonIgnore
     private boolean deleted;
 
+    /**
+     * Internal field containing time of the last change (including deletion), used for delta sync.
+     */
+    @JsonIgnore
+    private Instant lastModified;
+
+    /**
+     * Internal field containing number of the last change (including deletion), used for delta sync.
+     */
+    @JsonIgnore
+    private long changeSequence;
+
     /**
      * Gets the id.
      */
@@ -124,6 +167,23 @@ public class Product {
         this.creationDate = creationDate;
     }
 
+    /**
+     * Gets the version.
+     */
+    public int getVersion() {
+
+        return version;
+    }
+
+    /**
+     * Sets the version.
+     * Intentionally package access.
+     */
+    void setVersion(int version) {
+
+        this.version = version;
+    }
+
     /**
      * Gets the deleted.
      */
@@ -140,14 +200,78 @@ public class Product {
         this.deleted = true;
     }
 
-    // generated methods
+    /**
+     * Creates copy of the product changed the way soft deletion changes it
+     * (marked as deleted, given version set and time of the last change set to now).
+     * This product is not changed.
+     */
+    public Product toDeleted(int version) {
+
+        Product product = new Product();
+        product.id = id;
+        product.name = name;
+        product.price = price;
+        product.creationDate = creationDate;
+        product.version = version;
+        product.deleted = true;
+        product.lastModified = Instant.now();
+        product.changeSequence = changeSequence;
+        return product;
+    }
+
+    /**
+     * Gets the lastModified.
+     */
+    public Instant getLastModified() {
+
+        return lastModified;
+    }
+
+    /**
+     * Sets the lastModified.
+     * Intentionally package access.
+     */
+    void setLastModified(Instant lastModified) {
+
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * Gets the changeSequence.
+     */
+    public long getChangeSequence() {
+
+        return changeSequence;
+    }
+
+    /**
+     * Sets the changeSequence.
+     * Intentionally package access.
+     */
+    void setChangeSequence(long changeSequence) {
+
+        this.changeSequence = changeSequence;
+    }
+
+    /**
+     * Sets time of the last change when entity is persisted or updated by entity manager.
+     * Bulk updates of {@link ProductRepository} set it explicitly.
+     */
+    @PrePersist
+    @PreUpdate
+    void touch() {
+
+        lastModified = Instant.now();
+    }
+
+    // generated methods, version, lastModified and changeSequence are not part of equality
 
     @Override
     public String toString() {
 
         return "Product [id=" + id + ", " + (name != null ? "name=" + name + ", " : "") + "price="
                 + price + ", " + (creationDate != null ? "creationDate=" + creationDate + ", " : "")
-                + "deleted=" + deleted + "]";
+                + "version=" + version + ", deleted=" + deleted + "]";
     }
 
     @Override
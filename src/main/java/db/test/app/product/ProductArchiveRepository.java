@@ -0,0 +1,69 @@
+package db.test.app.product;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import javax.persistence.QueryHint;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repository for archived products.
+ * Queries correspond to the queries of deleted products in {@link ProductRepository}.
+ */
+@Repository
+public interface ProductArchiveRepository
+        extends JpaRepository<ArchivedProduct, Integer>, ProductArchiveRepositoryCustom {
+
+    /**
+     * Collects entities with id greater than given id ordered by id.
+     * Only the page size of the pageable is used.
+     */
+    @Query("select e from #{#entityName} e where e.id>?1 order by e.id")
+    public List<ArchivedProduct> findPage(int after, Pageable pageable);
+
+    /**
+     * Collects entities with price in given range and id greater than given id ordered by id.
+     * Only the page size of the pageable is used.
+     */
+    @Query("select e from #{#entityName} e where e.price>=?1 and e.price<=?2 and e.id>?3 order by e.id")
+    public List<ArchivedProduct> findPriceRangePage(double minPrice, double maxPrice, int after,
+            Pageable pageable);
+
+    /**
+     * Collects entities with price in given range ordered by price and id
+     * that follow the product with given price and id.
+     * Only the page size of the pageable is used.
+     */
+    @Query("select e from #{#entityName} e where e.price>=?1 and e.price<=?2 "
+            + "and (e.price>?3 or (e.price=?3 and e.id>?4)) order by e.price, e.id")
+    public List<ArchivedProduct> findPriceRangePageByPrice(double minPrice, double maxPrice,
+            double afterPrice, int afterId, Pageable pageable);
+
+    /**
+     * Collects entities deleted by change with number greater than given one ordered by the number.
+     */
+    @Query("select e from #{#entityName} e where e.changeSequence>?1 order by e.changeSequence, e.id")
+    public List<ArchivedProduct> findChangedAfter(long changeSequence);
+
+    /**
+     * Gets the highest number of the change (0 if there are no entities).
+     */
+    @Query("select coalesce(max(e.changeSequence), 0) from #{#entityName} e")
+    public long findMaxChangeSequence();
+
+    /**
+     * Streams all entities ordered by id.
+     * Stream has to be consumed within transaction and closed afterwards.
+     */
+    @Query("select e from #{#entityName} e order by e.id")
+    @QueryHints({ @QueryHint(name = "org.hibernate.fetchSize",
+        value = "500"),
+            @QueryHint(name = "org.hibernate.readOnly",
+                value = "true") })
+    public Stream<ArchivedProduct> streamAll();
+}
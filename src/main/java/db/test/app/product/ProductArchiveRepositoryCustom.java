@@ -0,0 +1,20 @@
+package db.test.app.product;
+
+import java.util.List;
+
+/**
+ * Queries of {@link ProductArchiveRepository} that can't be declared by annotations.
+ */
+public interface ProductArchiveRepositoryCustom {
+
+    /**
+     * Collects only given fields of all entities ordered by id.
+     * Entities are not created, only selected columns are read.
+     */
+    public List<ProductFields> findAllFields(List<ProductField> fields);
+
+    /**
+     * Detaches given entity from the persistence context.
+     */
+    public void detach(ArchivedProduct product);
+}
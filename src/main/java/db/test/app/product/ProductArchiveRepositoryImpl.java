@@ -0,0 +1,31 @@
+package db.test.app.product;
+
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Implementation of {@link ProductArchiveRepositoryCustom} queries.
+ */
+public class ProductArchiveRepositoryImpl implements ProductArchiveRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ProductFields> findAllFields(List<ProductField> fields) {
+
+        return ProductRepositoryImpl.findFields(entityManager,
+                ProductField.select("e", fields) + " from ArchivedProduct e order by e.id", fields);
+    }
+
+    @Override
+    public void detach(ArchivedProduct product) {
+
+        entityManager.detach(product);
+    }
+}
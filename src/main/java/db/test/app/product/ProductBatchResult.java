@@ -0,0 +1,78 @@
+package db.test.app.product;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+/**
+ * Result of creating single product of the batch.
+ * It contains either created product or error message.
+ */
+@ApiModel(description = "Result of creating single product of the batch")
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ProductBatchResult {
+
+    /**
+     * Status of the product.
+     */
+    public enum Status {
+        CREATED, INVALID
+    }
+
+    @ApiModelProperty(notes = "indicates whether product was created or is invalid")
+    private final Status status;
+
+    @ApiModelProperty(notes = "created product (only if product was created)")
+    private final Product product;
+
+    @ApiModelProperty(notes = "validation error (only if product is invalid)")
+    private final String error;
+
+    private ProductBatchResult(Status status, Product product, String error) {
+
+        this.status = status;
+        this.product = product;
+        this.error = error;
+    }
+
+    /**
+     * Creates result of successfully created product.
+     */
+    public static ProductBatchResult created(Product product) {
+
+        return new ProductBatchResult(Status.CREATED, product, null);
+    }
+
+    /**
+     * Creates result of invalid product.
+     */
+    public static ProductBatchResult invalid(String error) {
+
+        return new ProductBatchResult(Status.INVALID, null, error);
+    }
+
+    /**
+     * Gets the status.
+     */
+    public Status getStatus() {
+
+        return status;
+    }
+
+    /**
+     * Gets the product.
+     */
+    public Product getProduct() {
+
+        return product;
+    }
+
+    /**
+     * Gets the error.
+     */
+    public String getError() {
+
+        return error;
+    }
+}
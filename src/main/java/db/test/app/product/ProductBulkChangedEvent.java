@@ -0,0 +1,31 @@
+package db.test.app.product;
+
+import java.util.List;
+
+/**
+ * Event published by {@link ProductService} when many products are deleted or restored at once.
+ * Listeners handle all changes together, so caches and indexes are updated once per bulk operation.
+ */
+public class ProductBulkChangedEvent {
+
+    private final List<ProductChangedEvent> changes;
+
+    public ProductBulkChangedEvent(List<ProductChangedEvent> changes) {
+
+        this.changes = changes;
+    }
+
+    /**
+     * Gets the changes in the order they were made.
+     */
+    public List<ProductChangedEvent> getChanges() {
+
+        return changes;
+    }
+
+    @Override
+    public String toString() {
+
+        return "ProductBulkChangedEvent [changes=" + changes.size() + "]";
+    }
+}
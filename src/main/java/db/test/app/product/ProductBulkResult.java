@@ -0,0 +1,43 @@
+package db.test.app.product;
+
+import java.util.List;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+/**
+ * Result of bulk deletion or restoration of products.
+ * It contains ids of changed products and ids of products that weren't found,
+ * both in the order of the request.
+ */
+@ApiModel(description = "Result of bulk deletion or restoration")
+public class ProductBulkResult {
+
+    @ApiModelProperty(notes = "ids of deleted or restored products")
+    private final List<Integer> affectedIds;
+
+    @ApiModelProperty(notes = "ids of products that don't exist or are already deleted (restored)")
+    private final List<Integer> missingIds;
+
+    public ProductBulkResult(List<Integer> affectedIds, List<Integer> missingIds) {
+
+        this.affectedIds = affectedIds;
+        this.missingIds = missingIds;
+    }
+
+    /**
+     * Gets the affected ids.
+     */
+    public List<Integer> getAffectedIds() {
+
+        return affectedIds;
+    }
+
+    /**
+     * Gets the missing ids.
+     */
+    public List<Integer> getMissingIds() {
+
+        return missingIds;
+    }
+}
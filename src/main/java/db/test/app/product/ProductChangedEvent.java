@@ -0,0 +1,89 @@
+package db.test.app.product;
+
+/**
+ * Event published by {@link ProductService} when product is created, updated, deleted or restored.
+ * Changes of many products made at once are published together as {@link ProductBulkChangedEvent}.
+ */
+public class ProductChangedEvent {
+
+    /**
+     * Type of the change.
+     */
+    public enum Type {
+        CREATED, UPDATED, DELETED, RESTORED
+    }
+
+    /**
+     * Order of listeners updating caches, indexes and read model.
+     * They run before {@link CatalogVersion} is incremented, subscribers of {@link db.test.app.product.feed.ProductChangeFeed}
+     * are notified last.
+     */
+    public static final int UPDATE_ORDER = 0;
+
+    /**
+     * Version of deleted product that is not known.
+     */
+    public static final int UNKNOWN_VERSION = -1;
+
+    private final Type type;
+
+    private final int id;
+
+    private final int version;
+
+    private final Product product;
+
+    /**
+     * Creates event of the change, version of deleted product is unknown.
+     */
+    public ProductChangedEvent(Type type, int id, Product product) {
+
+        this(type, id, product != null ? product.getVersion() : UNKNOWN_VERSION, product);
+    }
+
+    public ProductChangedEvent(Type type, int id, int version, Product product) {
+
+        this.type = type;
+        this.id = id;
+        this.version = version;
+        this.product = product;
+    }
+
+    /**
+     * Gets the type.
+     */
+    public Type getType() {
+
+        return type;
+    }
+
+    /**
+     * Gets the id of changed product.
+     */
+    public int getId() {
+
+        return id;
+    }
+
+    /**
+     * Gets the version of the product after the change (also of deleted product if it is known).
+     */
+    public int getVersion() {
+
+        return version;
+    }
+
+    /**
+     * Gets the product after the change or null if product was deleted.
+     */
+    public Product getProduct() {
+
+        return product;
+    }
+
+    @Override
+    public String toString() {
+
+        return "ProductChangedEvent [type=" + type + ", id=" + id + ", version=" + version + "]";
+    }
+}
@@ -1,22 +1,45 @@
 package db.test.app.product;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Collectors;
 
-import javax.validation.Valid;
+import javax.servlet.http.HttpServletResponse;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import db.test.app.product.cache.SerializedProducts;
+import db.test.app.product.stats.ProductStats;
+import db.test.app.product.validation.ProductPreconditionException;
+import db.test.app.product.validation.ProductValidationException;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
+import springfox.documentation.annotations.ApiIgnore;
 
 /**
  * Product REST controller.
@@ -25,24 +48,195 @@ import io.swagger.annotations.ApiParam;
 @RequestMapping("products")
 public class ProductController {
 
+    /**
+     * Response header containing cursor of the next page.
+     */
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    /**
+     * Page size used when only cursor is provided.
+     */
+    static final int DEFAULT_PAGE_SIZE = 100;
+
+    /**
+     * Media type of newline delimited JSON.
+     */
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+    /**
+     * Media types of the products in the order of their message converters.
+     */
+    private static final List<MediaType> PRODUCIBLE_TYPES = Arrays.asList(MediaType.APPLICATION_JSON,
+            MediaType.valueOf("application/cbor"), MediaType.valueOf("application/x-jackson-smile"));
+
     @Autowired
     private ProductService productService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @ApiOperation(
-        value = "Retrieves only non-deleted or only deleted products (see deleted parameter)")
+        value = "Retrieves only non-deleted or only deleted products (see deleted parameter)",
+        notes = "Products are paginated when after or limit is provided, cursor of the next page is returned in X-Next-Cursor header. "
+                + "Products can be filtered by price range and ordered by id (default) or by price, "
+                + "cursor of products ordered by price has form price_id. "
+                + "Response contains weak ETag of the catalog version, it can be provided in If-None-Match header. "
+                + "Complete lists in JSON are served pre-serialized and gzip-compressed if Accept-Encoding allows it. "
+                + "Only some attributes can be requested by fields parameter, complete lists then read only these columns",
+        response = Product.class,
+        responseContainer = "List")
     @GetMapping("/")
-    public List<Product> getProducts(@ApiParam(name = "deleted",
+    public ResponseEntity<?> getProducts(@ApiParam(name = "deleted",
+        value = "indicates whether only non-deleted (default/false) or only deleted (true) prodcuts should be returned") @RequestParam(
+            name = "deleted",
+            defaultValue = "false") boolean deleted,
+            @ApiParam(name = "after",
+                value = "cursor (X-Next-Cursor of previous page), only products following it are returned") @RequestParam(
+                    name = "after",
+                    required = false) String after,
+            @ApiParam(name = "limit",
+                value = "maximal number of products returned (default 100, max 1000)") @RequestParam(
+                    name = "limit",
+                    required = false) Integer limit,
+            @ApiParam(name = "minPrice",
+                value = "minimal price (inclusive)") @RequestParam(name = "minPrice",
+                    required = false) Double minPrice,
+            @ApiParam(name = "maxPrice",
+                value = "maximal price (inclusive)") @RequestParam(name = "maxPrice",
+                    required = false) Double maxPrice,
+            @ApiParam(name = "sort",
+                value = "order of products, id (default) or price") @RequestParam(name = "sort",
+                    defaultValue = "id") String sort,
+            @ApiParam(name = "fields",
+                value = "comma separated attributes returned for each product (id, name, price, creationDate, version), all by default") @RequestParam(
+                    name = "fields",
+                    required = false) String fields,
+            @ApiIgnore WebRequest webRequest) {
+
+        ProductSort order = ProductSort.parse(sort);
+        List<ProductField> productFields = fields != null ? ProductField.parse(fields) : null;
+        setVary(webRequest);
+        // catalog version is read before products so it can't be newer than them
+        if (webRequest.checkNotModified(productService.getCatalogEntityTag())) {
+            return null;
+        }
+        int pageSize = limit != null ? limit : DEFAULT_PAGE_SIZE;
+        ProductPage page;
+        if (minPrice != null || maxPrice != null || order != ProductSort.ID) {
+            double min = minPrice != null ? minPrice : -Double.MAX_VALUE;
+            double max = maxPrice != null ? maxPrice : Double.MAX_VALUE;
+            if (min > max) {
+                throw new ProductValidationException("minPrice has to be less or equal to maxPrice");
+            }
+            page = productService.getProducts(deleted, min, max, order, after, pageSize);
+        } else if (after == null && limit == null) {
+            if (productFields != null) {
+                return ResponseEntity.ok(productService.getProducts(deleted, productFields));
+            }
+            if (prefersJson(webRequest.getHeader(HttpHeaders.ACCEPT))) {
+                return toResponse(productService.getSerializedProducts(deleted),
+                        acceptsGzip(webRequest.getHeader(HttpHeaders.ACCEPT_ENCODING)));
+            }
+            return ResponseEntity.ok(
+                    deleted ? productService.getDeletedProducts() : productService.getProducts());
+        } else {
+            int cursor = ProductPage.parseIdCursor(after);
+            page = deleted ? productService.getDeletedProducts(cursor, pageSize)
+                : productService.getProducts(cursor, pageSize);
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        if (productFields != null) {
+            return response.body(page.getProducts().stream()
+                    .map(product -> ProductFields.of(productFields, product))
+                    .collect(Collectors.toList()));
+        }
+        return response.body(page.getProducts());
+    }
+
+    @ApiOperation(value = "Retrieves non-deleted products with given ids",
+        notes = "Products are returned in the order of ids, ids of products that don't exist or are deleted are returned separately")
+    @GetMapping(value = "/",
+        params = "ids")
+    public ProductLookup getProductsByIds(@ApiParam(name = "ids",
+        value = "comma separated ids of products") @RequestParam(name = "ids") List<Integer> ids) {
+
+        return productService.getProducts(ids);
+    }
+
+    @ApiOperation(value = "Retrieves non-deleted products with given ids (long lists of ids)",
+        notes = "Products are returned in the order of ids, ids of products that don't exist or are deleted are returned separately")
+    @PostMapping("/lookup")
+    public ProductLookup lookupProducts(@RequestBody List<Integer> ids) {
+
+        return productService.getProducts(ids);
+    }
+
+    @ApiOperation(value = "Retrieves products changed since given token",
+        notes = "Response contains created or updated products, ids of deleted products and token for the next request. "
+                + "Token 0 returns all products, changes made shortly before the previous request may be returned again")
+    @GetMapping(value = "/",
+        params = "modifiedSince")
+    public ProductDelta getChanges(@ApiParam(name = "modifiedSince",
+        value = "token from previous response (nextToken) or 0") @RequestParam(
+            name = "modifiedSince") String modifiedSince) {
+
+        return productService.getChanges(modifiedSince);
+    }
+
+    @ApiOperation(
+        value = "Streams all non-deleted or all deleted products as newline delimited JSON (see deleted parameter)")
+    @GetMapping(value = "/",
+        produces = APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportProducts(@ApiParam(name = "deleted",
         value = "indicates whether only non-deleted (default/false) or only deleted (true) prodcuts should be returned") @RequestParam(
             name = "deleted",
             defaultValue = "false") boolean deleted) {
 
-        return deleted ? productService.getDeletedProducts() : productService.getProducts();
+        // response stream is closed by the container
+        ObjectWriter writer = objectMapper.writerFor(Product.class)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        StreamingResponseBody body = out -> productService.exportProducts(deleted,
+                product -> writeLine(writer, out, product));
+        return ResponseEntity.ok().contentType(MediaType.valueOf(APPLICATION_NDJSON_VALUE))
+                .body(body);
+    }
+
+    @ApiOperation(value = "Searches non-deleted products by name",
+        notes = "Every word of the query must match a word of the name or its beginning. "
+                + "Products matching whole words are returned first, then products with shorter names")
+    @GetMapping("/search")
+    public List<Product> searchProducts(
+            @ApiParam(name = "q", value = "words searched in product names") @RequestParam(
+                name = "q") String query,
+            @ApiParam(name = "limit",
+                value = "maximal number of products returned (default 20, max 100)") @RequestParam(
+                    name = "limit",
+                    defaultValue = "20") int limit) {
+
+        return productService.searchProducts(query, limit);
+    }
+
+    @ApiOperation(value = "Retrieves aggregate statistics of the catalog",
+        notes = "Counts of non-deleted and deleted products and minimal, maximal, total and average price of non-deleted products")
+    @GetMapping("/stats")
+    public ProductStats getStats() {
+
+        return productService.getStats();
     }
 
-    @ApiOperation(value = "Retrieves product with given id")
+    @ApiOperation(value = "Retrieves product with given id",
+        notes = "Response contains weak ETag of the catalog version, it can be provided in If-None-Match header")
     @GetMapping("/{id}")
-    public Product getProduct(@PathVariable("id") int id) {
+    public Product getProduct(@PathVariable("id") int id, @ApiIgnore WebRequest webRequest) {
 
+        setVary(webRequest);
+        // catalog version is read before product so it can't be newer than it
+        if (webRequest.checkNotModified(productService.getCatalogEntityTag())) {
+            return null;
+        }
         return productService.getProduct(id);
     }
 
@@ -54,18 +248,166 @@ public class ProductController {
         return productService.addProduct(product);
     }
 
+    @ApiOperation(value = "Creates new products in one transaction",
+        notes = "Each product is validated separately and only valid products are created, result is returned for each product in the same order")
+    @PostMapping("/batch")
+    public List<ProductBatchResult> addProducts(@RequestBody List<Product> products) {
+
+        return productService.addProducts(products);
+    }
+
     @ApiOperation(value = "Updates product with given id",
-        notes = "Only name and price can by changed")
+        notes = "Only name and price can by changed, product is updated only if its version matches version in If-Match header (if provided), other entity tags (e.g. ETag of the catalog) fail with 412")
     @PutMapping("/{id}")
-    public Product updateProduct(@PathVariable("id") int id, @Valid @RequestBody Product product) {
+    public Product updateProduct(@PathVariable("id") int id, @RequestBody Product product,
+            @ApiParam(name = HttpHeaders.IF_MATCH,
+                value = "expected version of the product") @RequestHeader(
+                    name = HttpHeaders.IF_MATCH,
+                    required = false) String ifMatch) {
 
-        return productService.updateProduct(id, product);
+        return productService.updateProduct(id, product, parseVersion(ifMatch));
     }
 
-    @ApiOperation(value = "Deletes product with given id")
+    @ApiOperation(value = "Deletes product with given id",
+        notes = "Product is deleted only if its version matches version in If-Match header (if provided), other entity tags (e.g. ETag of the catalog) fail with 412")
     @DeleteMapping("/{id}")
-    public void deleteProduct(@PathVariable("id") int id) {
+    public void deleteProduct(@PathVariable("id") int id,
+            @ApiParam(name = HttpHeaders.IF_MATCH,
+                value = "expected version of the product") @RequestHeader(
+                    name = HttpHeaders.IF_MATCH,
+                    required = false) String ifMatch) {
+
+        productService.deleteProduct(id, parseVersion(ifMatch));
+    }
+
+    @ApiOperation(value = "Deletes products with given ids",
+        notes = "Products are deleted in chunks within one transaction, response contains ids of deleted products "
+                + "and ids of products that don't exist or are already deleted")
+    @PostMapping("/delete")
+    public ProductBulkResult deleteProducts(@RequestBody List<Integer> ids) {
+
+        return productService.deleteProducts(ids);
+    }
+
+    @ApiOperation(value = "Restores deleted products with given ids",
+        notes = "Products are restored in chunks within one transaction, response contains ids of restored products "
+                + "and ids of products that don't exist or aren't deleted")
+    @PostMapping("/restore")
+    public ProductBulkResult restoreProducts(@RequestBody List<Integer> ids) {
+
+        return productService.restoreProducts(ids);
+    }
+
+    /**
+     * Parses version of the product from If-Match header value (optionally quoted).
+     * Returns null if header is not provided or matches any version.
+     * Other entity tags (e.g. ETag of the catalog returned with the product) can't match the product,
+     * so they fail the precondition.
+     */
+    static Integer parseVersion(String ifMatch) {
+
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String version = ifMatch.trim();
+        boolean entityTag = version.startsWith("W/\"");
+        if (version.length() > 1 && version.startsWith("\"") && version.endsWith("\"")) {
+            version = version.substring(1, version.length() - 1);
+            entityTag = true;
+        }
+        try {
+            return Integer.valueOf(version);
+        } catch (NumberFormatException e) {
+            if (entityTag) {
+                throw new ProductPreconditionException();
+            }
+            throw new ProductValidationException("If-Match has to contain version of the product");
+        }
+    }
+
+    /**
+     * Checks whether JSON is the most preferred of the formats in given Accept header (JSON if not provided).
+     */
+    static boolean prefersJson(String accept) {
+
+        if (accept == null) {
+            return true;
+        }
+        List<MediaType> mediaTypes;
+        try {
+            mediaTypes = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            // rejected by content negotiation
+            return false;
+        }
+        // same selection as content negotiation of message converters (JSON is the first one)
+        List<MediaType> compatibleTypes = new ArrayList<>();
+        for (MediaType mediaType : mediaTypes) {
+            for (MediaType producibleType : PRODUCIBLE_TYPES) {
+                if (mediaType.isCompatibleWith(producibleType)) {
+                    compatibleTypes.add(producibleType.copyQualityValue(mediaType));
+                }
+            }
+        }
+        MediaType.sortBySpecificityAndQuality(compatibleTypes);
+        return !compatibleTypes.isEmpty() && compatibleTypes.get(0).getQualityValue() > 0
+                && compatibleTypes.get(0).equals(MediaType.APPLICATION_JSON);
+    }
+
+    /**
+     * Checks whether given Accept-Encoding header allows gzip.
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Boolean gzip = null;
+        Boolean any = null;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim();
+            boolean accepted = parts.length == 1 || !parts[1].trim().matches("q=0(\\.0*)?");
+            if (name.equalsIgnoreCase("gzip")) {
+                gzip = accepted;
+            } else if (name.equals("*")) {
+                any = accepted;
+            }
+        }
+        // explicit gzip coding takes precedence over wildcard
+        return gzip != null ? gzip : any != null && any;
+    }
+
+    /**
+     * Marks response as varying by format and encoding, they share the entity tag of the catalog
+     * (also 304 Not Modified responses are marked).
+     */
+    private static void setVary(WebRequest webRequest) {
+
+        HttpServletResponse response = ((NativeWebRequest) webRequest)
+                .getNativeResponse(HttpServletResponse.class);
+        if (response != null) {
+            response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT + ", " + HttpHeaders.ACCEPT_ENCODING);
+        }
+    }
+
+    private ResponseEntity<byte[]> toResponse(SerializedProducts products, boolean gzip) {
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON);
+        if (gzip) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(products.getGzip());
+        }
+        return response.body(products.getJson());
+    }
+
+    private void writeLine(ObjectWriter writer, OutputStream out, Product product) {
 
-        productService.deleteProduct(id);
+        try {
+            writer.writeValue(out, product);
+            out.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 }
@@ -0,0 +1,55 @@
+package db.test.app.product;
+
+import java.util.List;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+/**
+ * Changes of products since given token.
+ * It contains created or updated non-deleted products, ids of deleted products
+ * and token to be used for the next request.
+ */
+@ApiModel(description = "Changes of products since given token")
+public class ProductDelta {
+
+    @ApiModelProperty(notes = "created or updated non-deleted products")
+    private final List<Product> products;
+
+    @ApiModelProperty(notes = "ids of deleted products")
+    private final List<Integer> deletedIds;
+
+    @ApiModelProperty(notes = "token to be provided as modifiedSince in the next request")
+    private final String nextToken;
+
+    public ProductDelta(List<Product> products, List<Integer> deletedIds, String nextToken) {
+
+        this.products = products;
+        this.deletedIds = deletedIds;
+        this.nextToken = nextToken;
+    }
+
+    /**
+     * Gets the products.
+     */
+    public List<Product> getProducts() {
+
+        return products;
+    }
+
+    /**
+     * Gets the deleted ids.
+     */
+    public List<Integer> getDeletedIds() {
+
+        return deletedIds;
+    }
+
+    /**
+     * Gets the next token.
+     */
+    public String getNextToken() {
+
+        return nextToken;
+    }
+}
@@ -0,0 +1,79 @@
+package db.test.app.product;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import db.test.app.product.validation.ProductValidationException;
+
+/**
+ * Attribute of the product that can be requested in sparse fieldset (fields parameter),
+ * requested attributes are returned in {@link ProductFields}.
+ */
+public enum ProductField {
+
+    ID("id"),
+
+    NAME("name"),
+
+    PRICE("price"),
+
+    CREATION_DATE("creationDate"),
+
+    VERSION("version");
+
+    private final String property;
+
+    private ProductField(String property) {
+
+        this.property = property;
+    }
+
+    /**
+     * Gets the property name (used in JSON and JPQL).
+     */
+    public String getProperty() {
+
+        return property;
+    }
+
+    /**
+     * Parses comma separated property names, duplicates are ignored.
+     */
+    public static List<ProductField> parse(String fields) {
+
+        List<ProductField> result = new ArrayList<>();
+        for (String name : fields.split(",")) {
+            ProductField field = find(name.trim());
+            if (field == null) {
+                throw new ProductValidationException(
+                        "fields has to contain comma separated id, name, price, creationDate or version");
+            }
+            if (!result.contains(field)) {
+                result.add(field);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Creates JPQL select clause of given fields of entity with given alias.
+     */
+    public static String select(String alias, List<ProductField> fields) {
+
+        StringBuilder select = new StringBuilder("select ");
+        for (int i = 0; i < fields.size(); i++) {
+            select.append(i > 0 ? ", " : "").append(alias).append('.').append(fields.get(i).property);
+        }
+        return select.toString();
+    }
+
+    private static ProductField find(String property) {
+
+        for (ProductField field : values()) {
+            if (field.property.equals(property)) {
+                return field;
+            }
+        }
+        return null;
+    }
+}
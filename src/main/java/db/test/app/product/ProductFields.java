@@ -0,0 +1,158 @@
+package db.test.app.product;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Objects;
+
+import javax.persistence.Tuple;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.datatype.jsr310.ser.LocalDateSerializer;
+
+import io.swagger.annotations.ApiModel;
+
+/**
+ * Requested attributes of the product (sparse fieldset, see {@link ProductField}).
+ * Attributes that were not requested are null and they are not serialized.
+ */
+@ApiModel(description = "Contains requested attributes of the product")
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonPropertyOrder({ "id", "name", "price", "creationDate", "version" })
+public class ProductFields {
+
+    private Integer id;
+
+    private String name;
+
+    private Double price;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING,
+        pattern = "yyyy-MM-dd")
+    @JsonSerialize(using = LocalDateSerializer.class)
+    private LocalDate creationDate;
+
+    private Integer version;
+
+    /**
+     * Creates given fields of the product.
+     */
+    public static ProductFields of(List<ProductField> fields, Product product) {
+
+        ProductFields result = new ProductFields();
+        for (ProductField field : fields) {
+            switch (field) {
+            case ID:
+                result.id = product.getId();
+                break;
+            case NAME:
+                result.name = product.getName();
+                break;
+            case PRICE:
+                result.price = product.getPrice();
+                break;
+            case CREATION_DATE:
+                result.creationDate = product.getCreationDate();
+                break;
+            case VERSION:
+                result.version = product.getVersion();
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Creates given fields from the row of the query created by {@link ProductField#select(String, List)}.
+     */
+    public static ProductFields of(List<ProductField> fields, Tuple tuple) {
+
+        ProductFields result = new ProductFields();
+        for (int i = 0; i < fields.size(); i++) {
+            switch (fields.get(i)) {
+            case ID:
+                result.id = tuple.get(i, Integer.class);
+                break;
+            case NAME:
+                result.name = tuple.get(i, String.class);
+                break;
+            case PRICE:
+                result.price = tuple.get(i, Double.class);
+                break;
+            case CREATION_DATE:
+                result.creationDate = tuple.get(i, LocalDate.class);
+                break;
+            case VERSION:
+                result.version = tuple.get(i, Integer.class);
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the id or null if it was not requested.
+     */
+    public Integer getId() {
+
+        return id;
+    }
+
+    /**
+     * Gets the name or null if it was not requested.
+     */
+    public String getName() {
+
+        return name;
+    }
+
+    /**
+     * Gets the price or null if it was not requested.
+     */
+    public Double getPrice() {
+
+        return price;
+    }
+
+    /**
+     * Gets the creation date or null if it was not requested (or it is not set).
+     */
+    public LocalDate getCreationDate() {
+
+        return creationDate;
+    }
+
+    /**
+     * Gets the version or null if it was not requested.
+     */
+    public Integer getVersion() {
+
+        return version;
+    }
+
+    @Override
+    public int hashCode() {
+
+        return Objects.hash(id, name, price, creationDate, version);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null) {
+            return false;
+        }
+        if (getClass() != obj.getClass()) {
+            return false;
+        }
+        ProductFields other = (ProductFields) obj;
+        return Objects.equals(id, other.id) && Objects.equals(name, other.name)
+                && Objects.equals(price, other.price) && Objects.equals(creationDate, other.creationDate)
+                && Objects.equals(version, other.version);
+    }
+}
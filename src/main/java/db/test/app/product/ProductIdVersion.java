@@ -0,0 +1,17 @@
+package db.test.app.product;
+
+/**
+ * Id and version of product (see {@link ProductRepository#findVersionsByDeleted(java.util.Collection, boolean)}).
+ */
+public interface ProductIdVersion {
+
+    /**
+     * Gets id of the product.
+     */
+    int getId();
+
+    /**
+     * Gets version of the product.
+     */
+    int getVersion();
+}
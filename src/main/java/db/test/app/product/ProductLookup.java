@@ -0,0 +1,43 @@
+package db.test.app.product;
+
+import java.util.List;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+/**
+ * Result of retrieval of products by ids.
+ * It contains found non-deleted products and ids of products that weren't found,
+ * both in the order of the request.
+ */
+@ApiModel(description = "Products retrieved by ids")
+public class ProductLookup {
+
+    @ApiModelProperty(notes = "found non-deleted products in the order of requested ids")
+    private final List<Product> products;
+
+    @ApiModelProperty(notes = "ids of products that don't exist or are deleted")
+    private final List<Integer> missingIds;
+
+    public ProductLookup(List<Product> products, List<Integer> missingIds) {
+
+        this.products = products;
+        this.missingIds = missingIds;
+    }
+
+    /**
+     * Gets the products.
+     */
+    public List<Product> getProducts() {
+
+        return products;
+    }
+
+    /**
+     * Gets the missing ids.
+     */
+    public List<Integer> getMissingIds() {
+
+        return missingIds;
+    }
+}
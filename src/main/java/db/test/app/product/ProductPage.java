@@ -0,0 +1,54 @@
+package db.test.app.product;
+
+import java.util.List;
+
+import db.test.app.product.validation.ProductValidationException;
+
+/**
+ * Page of products ordered by id or by price.
+ * Next cursor identifies the last product on the page (its id or {@link PriceCursor})
+ * or is null if there are no more products.
+ */
+public class ProductPage {
+
+    private final List<Product> products;
+
+    private final String nextCursor;
+
+    public ProductPage(List<Product> products, String nextCursor) {
+
+        this.products = products;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Parses cursor of products ordered by id, null is parsed as 0 (cursor of the first page).
+     */
+    public static int parseIdCursor(String cursor) {
+
+        if (cursor == null) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(cursor);
+        } catch (NumberFormatException e) {
+            throw new ProductValidationException("after has to contain id of the product");
+        }
+    }
+
+    /**
+     * Gets the products.
+     */
+    public List<Product> getProducts() {
+
+        return products;
+    }
+
+    /**
+     * Gets the next cursor.
+     */
+    public String getNextCursor() {
+
+        return nextCursor;
+    }
+}
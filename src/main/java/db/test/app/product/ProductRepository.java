@@ -1,18 +1,40 @@
 package db.test.app.product;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 /**
- * Repository for products.
+ * Repository for products backed by JPA (see {@link ProductStore}).
  */
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Integer> {
+public interface ProductRepository
+        extends JpaRepository<Product, Integer>, ProductRepositoryCustom, ProductStore {
+
+    /**
+     * Retrieves entity with given id (declared by both {@link JpaRepository} and {@link ProductStore}).
+     */
+    @Override
+    public Optional<Product> findById(Integer id);
+
+    /**
+     * Saves given entity (declared by both {@link JpaRepository} and {@link ProductStore}).
+     */
+    @Override
+    public <S extends Product> S save(S entity);
 
     /**
      * Collects all non-deleted entities. 
@@ -26,6 +48,67 @@ public interface ProductRepository extends JpaRepository<Product, Integer> {
     @Query("select e from #{#entityName} e where e.deleted=true")
     public List<Product> findAllDeleted();
 
+    /**
+     * Collects entities with given deleted flag and id greater than given id ordered by id.
+     * It uses seek method (no offset) so the cost of each page is the same,
+     * only the page size of the pageable is used.
+     */
+    @Query("select e from #{#entityName} e where e.deleted=?1 and e.id>?2 order by e.id")
+    public List<Product> findPage(boolean deleted, int after, Pageable pageable);
+
+    /**
+     * Collects entities with given deleted flag, price in given range and id greater than given id
+     * ordered by id.
+     * Only the page size of the pageable is used.
+     */
+    @Query("select e from #{#entityName} e where e.deleted=?1 and e.price>=?2 and e.price<=?3 and e.id>?4 order by e.id")
+    public List<Product> findPriceRangePage(boolean deleted, double minPrice, double maxPrice,
+            int after, Pageable pageable);
+
+    /**
+     * Collects entities with given deleted flag and price in given range ordered by price and id
+     * that follow the product with given price and id.
+     * It uses seek method with index on deleted flag, price and id,
+     * only the page size of the pageable is used.
+     */
+    @Query("select e from #{#entityName} e where e.deleted=?1 and e.price>=?2 and e.price<=?3 "
+            + "and (e.price>?4 or (e.price=?4 and e.id>?5)) order by e.price, e.id")
+    public List<Product> findPriceRangePageByPrice(boolean deleted, double minPrice,
+            double maxPrice, double afterPrice, int afterId, Pageable pageable);
+
+    /**
+     * Collects entities (including deleted) changed by change with number greater than given one
+     * ordered by the number.
+     * It uses index on number of the last change.
+     */
+    @Query("select e from #{#entityName} e where e.changeSequence>?1 order by e.changeSequence, e.id")
+    public List<Product> findChangedAfter(long changeSequence);
+
+    /**
+     * Gets the highest number of the change (0 if there are no entities).
+     */
+    @Query("select coalesce(max(e.changeSequence), 0) from #{#entityName} e")
+    public long findMaxChangeSequence();
+
+    /**
+     * Computes number of entities with given deleted flag and minimum, maximum and sum of their prices.
+     */
+    @Query("select count(e) as productCount, min(e.price) as minPrice, max(e.price) as maxPrice, "
+            + "sum(e.price) as priceSum from #{#entityName} e where e.deleted=?1")
+    public PriceAggregate aggregatePrices(boolean deleted);
+
+    /**
+     * Streams entities with given deleted flag ordered by id.
+     * Entities are fetched from database in chunks and are read-only.
+     * Stream has to be consumed within transaction and closed afterwards.
+     */
+    @Query("select e from #{#entityName} e where e.deleted=?1 order by e.id")
+    @QueryHints({ @QueryHint(name = "org.hibernate.fetchSize",
+        value = "500"),
+            @QueryHint(name = "org.hibernate.readOnly",
+                value = "true") })
+    public Stream<Product> streamAll(boolean deleted);
+
     /**
      * Retrieves non-deleted entity with given id. 
      */
@@ -33,9 +116,85 @@ public interface ProductRepository extends JpaRepository<Product, Integer> {
     public Optional<Product> findNonDeletedById(Integer id);
 
     /**
-     * Soft delete entity with given id. 
+     * Collects non-deleted entities with given ids (in no particular order).
+     */
+    @Query("select e from #{#entityName} e where e.id in ?1 and e.deleted=false")
+    public List<Product> findNonDeletedByIds(Collection<Integer> ids);
+
+    /**
+     * Collects ids of entities with given ids and deleted flag (in no particular order).
+     * Rows are locked until the end of the transaction, so they can be changed by {@link #setDeleted(Collection, boolean, long)}.
+     */
+    @Query("select e.id from #{#entityName} e where e.id in ?1 and e.deleted=?2")
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    public List<Integer> findIdsByDeleted(Collection<Integer> ids, boolean deleted);
+
+    /**
+     * Collects ids and versions of entities with given ids and deleted flag (in no particular order).
+     * Rows are locked until the end of the transaction, so they can be changed by {@link #setDeleted(Collection, boolean, long)}
+     * and their versions after the change are known without reading them again.
+     */
+    @Query("select e.id as id, e.version as version from #{#entityName} e where e.id in ?1 and e.deleted=?2")
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    public List<ProductIdVersion> findVersionsByDeleted(Collection<Integer> ids, boolean deleted);
+
+    /**
+     * Sets deleted flag of entities with given ids that have the opposite flag and increments their version.
+     * Time of the last change is set to current time and number of the change to given number.
+     * Returns number of updated entities.
+     */
+    @Query("update #{#entityName} e set e.deleted=?2, e.version=e.version+1, e.lastModified=current_timestamp, e.changeSequence=?3 where e.id in ?1 and e.deleted<>?2")
+    @Modifying(clearAutomatically = true)
+    public int setDeleted(Collection<Integer> ids, boolean deleted, long changeSequence);
+
+    /**
+     * Collects ids of deleted entities deleted (last changed) before given time ordered by id.
+     * Only the page size of the pageable is used.
+     */
+    @Query("select e.id from #{#entityName} e where e.deleted=true and e.lastModified<?1 order by e.id")
+    public List<Integer> findIdsDeletedBefore(Instant before, Pageable pageable);
+
+    /**
+     * Removes deleted entities with given ids.
+     * Returns number of removed entities.
+     */
+    @Query("delete from #{#entityName} e where e.id in ?1 and e.deleted=true")
+    @Modifying(clearAutomatically = true)
+    public int removeDeleted(Collection<Integer> ids);
+
+    /**
+     * Updates name and price of non-deleted entity with given id and increments its version.
+     * Time of the last change is set to current time and number of the change to given number.
+     * Returns number of updated entities.
+     */
+    @Query("update #{#entityName} e set e.name=?2, e.price=?3, e.version=e.version+1, e.lastModified=current_timestamp, e.changeSequence=?4 where e.id=?1 and e.deleted=false")
+    @Modifying(clearAutomatically = true)
+    public int update(int id, String name, double price, long changeSequence);
+
+    /**
+     * Updates name and price of non-deleted entity with given id and version and increments its version.
+     * Time of the last change is set to current time and number of the change to given number.
+     * Returns number of updated entities.
+     */
+    @Query("update #{#entityName} e set e.name=?2, e.price=?3, e.version=e.version+1, e.lastModified=current_timestamp, e.changeSequence=?5 where e.id=?1 and e.deleted=false and e.version=?4")
+    @Modifying(clearAutomatically = true)
+    public int update(int id, String name, double price, int version, long changeSequence);
+
+    /**
+     * Soft delete non-deleted entity with given id. 
+     * Time of the last change is set to current time and number of the change to given number.
+     * Returns number of deleted entities.
+     */
+    @Query("update #{#entityName} e set e.deleted=true, e.version=e.version+1, e.lastModified=current_timestamp, e.changeSequence=?2 where e.id=?1 and e.deleted=false")
+    @Modifying(clearAutomatically = true)
+    public int softDelete(Integer id, long changeSequence);
+
+    /**
+     * Soft delete non-deleted entity with given id and version. 
+     * Time of the last change is set to current time and number of the change to given number.
+     * Returns number of deleted entities.
      */
-    @Query("update #{#entityName} e set e.deleted=true where e.id=?1")
+    @Query("update #{#entityName} e set e.deleted=true, e.version=e.version+1, e.lastModified=current_timestamp, e.changeSequence=?3 where e.id=?1 and e.deleted=false and e.version=?2")
     @Modifying(clearAutomatically = true)
-    public void softDelete(Integer id);
-}
\ No newline at end of file
+    public int softDelete(int id, int version, long changeSequence);
+}
@@ -0,0 +1,25 @@
+package db.test.app.product;
+
+import java.util.List;
+
+/**
+ * Queries of {@link ProductRepository} that can't be declared by annotations.
+ */
+public interface ProductRepositoryCustom {
+
+    /**
+     * Collects only given fields of all entities with given deleted flag ordered by id.
+     * Entities are not created, only selected columns are read.
+     */
+    public List<ProductFields> findAllFields(boolean deleted, List<ProductField> fields);
+
+    /**
+     * Flushes the persistence context and detaches all entities.
+     */
+    public void flushAndClear();
+
+    /**
+     * Detaches given entity from the persistence context.
+     */
+    public void detach(Product product);
+}
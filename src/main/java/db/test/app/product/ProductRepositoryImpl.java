@@ -0,0 +1,68 @@
+package db.test.app.product;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
+import javax.persistence.TypedQuery;
+
+import org.hibernate.jpa.QueryHints;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Implementation of {@link ProductRepositoryCustom} queries.
+ * Projections are read in read-only transaction with read-only and fetch size hints.
+ */
+public class ProductRepositoryImpl implements ProductRepositoryCustom {
+
+    /**
+     * Number of rows fetched from database at once.
+     */
+    static final int FETCH_SIZE = 500;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ProductFields> findAllFields(boolean deleted, List<ProductField> fields) {
+
+        return findFields(entityManager,
+                ProductField.select("e", fields) + " from Product e where e.deleted=?1 order by e.id",
+                fields, deleted);
+    }
+
+    @Override
+    public void flushAndClear() {
+
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Override
+    public void detach(Product product) {
+
+        entityManager.detach(product);
+    }
+
+    /**
+     * Runs projection query with given parameters and maps its rows to given fields.
+     * Rows are streamed, so only the resulting list is materialized.
+     */
+    static List<ProductFields> findFields(EntityManager entityManager, String query,
+            List<ProductField> fields, Object... parameters) {
+
+        TypedQuery<Tuple> typedQuery = entityManager.createQuery(query, Tuple.class)
+                .setHint(QueryHints.HINT_READONLY, true)
+                .setHint(QueryHints.HINT_FETCH_SIZE, FETCH_SIZE);
+        for (int i = 0; i < parameters.length; i++) {
+            typedQuery.setParameter(i + 1, parameters[i]);
+        }
+        try (Stream<Tuple> rows = typedQuery.getResultStream()) {
+            return rows.map(tuple -> ProductFields.of(fields, tuple)).collect(Collectors.toList());
+        }
+    }
+}
@@ -1,50 +1,403 @@
 package db.test.app.product;
 
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import javax.transaction.Transactional;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import db.test.app.product.ProductChangedEvent.Type;
+import db.test.app.product.cache.ProductCache;
+import db.test.app.product.cache.ProductListCache;
+import db.test.app.product.cache.ProductLoadCoalescer;
+import db.test.app.product.cache.SerializedProducts;
+import db.test.app.product.readmodel.ProductReadModel;
+import db.test.app.product.readmodel.ProductSnapshot;
+import db.test.app.product.search.ProductIdFilter;
+import db.test.app.product.search.ProductPriceIndex;
+import db.test.app.product.search.ProductSearchIndex;
+import db.test.app.product.stats.ProductStats;
+import db.test.app.product.stats.ProductStatsCollector;
+import db.test.app.product.validation.ProductConflictException;
 import db.test.app.product.validation.ProductNotFoundException;
+import db.test.app.product.validation.ProductStatsUnavailableException;
+import db.test.app.product.validation.ProductValidationException;
 import db.test.app.product.validation.ProductValidator;
 
 /**
  * Service that provides operation for product.
+ * Every change of the product is published as {@link ProductChangedEvent}.
  */
 @Service
 public class ProductService {
 
+    /**
+     * Maximal number of products returned in one page.
+     */
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    /**
+     * Maximal number of products created in one batch.
+     */
+    public static final int MAX_BATCH_SIZE = 10000;
+
+    /**
+     * Maximal number of ids deleted or restored in one request.
+     */
+    public static final int MAX_BULK_SIZE = 100000;
+
+    /**
+     * Maximal number of ids retrieved in one request.
+     */
+    public static final int MAX_LOOKUP_SIZE = 10000;
+
+    /**
+     * Maximal number of products returned by search.
+     */
+    public static final int MAX_SEARCH_SIZE = 100;
+
+    private static final Comparator<Product> ID_ORDER = Comparator.comparingInt(Product::getId);
+
+    private static final Comparator<Product> PRICE_ORDER = Comparator
+            .comparingDouble(Product::getPrice).thenComparingInt(Product::getId);
+
     @Autowired
-    private ProductRepository repository;
+    private ProductStore repository;
+
+    @Autowired(required = false)
+    private ProductArchiveRepository archiveRepository;
 
     @Autowired
     private ProductValidator validator;
 
+    @Autowired
+    private ProductCache cache;
+
+    @Autowired
+    private ProductLoadCoalescer loadCoalescer;
+
+    @Autowired
+    private ProductListCache listCache;
+
+    @Autowired
+    private CatalogVersion catalogVersion;
+
+    @Autowired
+    private ChangeSequence changeSequence;
+
+    @Autowired
+    private ProductSearchIndex searchIndex;
+
+    @Autowired(required = false)
+    private ProductPriceIndex priceIndex;
+
+    @Autowired(required = false)
+    private ProductIdFilter idFilter;
+
+    @Autowired(required = false)
+    private ProductReadModel readModel;
+
+    @Autowired(required = false)
+    private ProductStatsCollector statsCollector;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Number of entities sent to database in one JDBC batch.
+     */
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int jdbcBatchSize;
+
+    /**
+     * Number of ids deleted, restored or retrieved by one statement.
+     */
+    @Value("${product.bulk.chunk-size:1000}")
+    private int bulkChunkSize;
+
+    /**
+     * Gets entity tag of the current catalog version.
+     * It changes whenever any product is created, updated or deleted.
+     */
+    public String getCatalogEntityTag() {
+
+        return catalogVersion.getEntityTag();
+    }
+
     /**
      * Gets all non-deleted products.
+     * They are taken from {@link ProductReadModel} if it is enabled (the same applies to other queries
+     * of products by id).
      */
     public List<Product> getProducts() {
 
+        ProductSnapshot snapshot = getSnapshot();
+        if (snapshot != null) {
+            return snapshot.getProducts(false);
+        }
         return repository.findAllNonDeleted();
     }
 
     /**
-     * Gets all deleted products.
+     * Gets all deleted products including archived ones.
      */
     public List<Product> getDeletedProducts() {
 
-        return repository.findAllDeleted();
+        ProductSnapshot snapshot = getSnapshot();
+        if (snapshot != null) {
+            return snapshot.getProducts(true);
+        }
+        List<Product> products = repository.findAllDeleted();
+        if (archiveRepository == null) {
+            return products;
+        }
+        return withArchived(products, archiveRepository.findAll(), null, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Gets given fields of all non-deleted or deleted products ordered by id,
+     * deleted products are followed by archived ones.
+     * Only selected columns are read in read-only transaction, entities are not created.
+     */
+    public List<ProductFields> getProducts(boolean deleted, List<ProductField> fields) {
+
+        ProductSnapshot snapshot = getSnapshot();
+        if (snapshot != null) {
+            return snapshot.getProducts(deleted).stream()
+                    .map(product -> ProductFields.of(fields, product)).collect(Collectors.toList());
+        }
+        List<ProductFields> products = repository.findAllFields(deleted, fields);
+        if (deleted && archiveRepository != null) {
+            List<ProductFields> archivedProducts = archiveRepository.findAllFields(fields);
+            if (!archivedProducts.isEmpty()) {
+                products = new ArrayList<>(products);
+                products.addAll(archivedProducts);
+            }
+        }
+        return products;
+    }
+
+    /**
+     * Gets all non-deleted or deleted products serialized as JSON.
+     * Serialized lists are cached until the catalog changes (see {@link ProductListCache}).
+     */
+    public SerializedProducts getSerializedProducts(boolean deleted) {
+
+        return listCache.get(deleted, () -> serialize(deleted ? getDeletedProducts() : getProducts()));
+    }
+
+    /**
+     * Gets page of non-deleted products with id greater than given cursor.
+     * Limit is adjusted to be in range from 1 to {@link #MAX_PAGE_SIZE}.
+     */
+    public ProductPage getProducts(int after, int limit) {
+
+        return getPage(false, after, limit);
+    }
+
+    /**
+     * Gets page of deleted products with id greater than given cursor.
+     * Limit is adjusted to be in range from 1 to {@link #MAX_PAGE_SIZE}.
+     */
+    public ProductPage getDeletedProducts(int after, int limit) {
+
+        return getPage(true, after, limit);
     }
 
     /**
-     * Get product with given id or null.
+     * Gets page of non-deleted or deleted products with price in given range (inclusive)
+     * in given order that follow given cursor (id or {@link PriceCursor}, null for the first page).
+     * Non-deleted products ordered by price are found by {@link ProductPriceIndex} if it is enabled.
+     * Other products are read from the snapshot of {@link ProductReadModel} if it is enabled,
+     * otherwise by database index on deleted flag, price and id.
+     * Limit is adjusted to be in range from 1 to {@link #MAX_PAGE_SIZE}.
+     */
+    public ProductPage getProducts(boolean deleted, double minPrice, double maxPrice,
+            ProductSort sort, String after, int limit) {
+
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        ProductSnapshot snapshot = getSnapshot();
+        if (sort == ProductSort.ID) {
+            int cursor = ProductPage.parseIdCursor(after);
+            if (snapshot != null) {
+                return toPage(snapshot.getProducts(deleted, minPrice, maxPrice, cursor, pageSize + 1),
+                        pageSize, product -> String.valueOf(product.getId()));
+            }
+            List<Product> products = repository.findPriceRangePage(deleted, minPrice, maxPrice,
+                    cursor, PageRequest.of(0, pageSize + 1));
+            if (deleted && archiveRepository != null) {
+                products = withArchived(products, archiveRepository.findPriceRangePage(minPrice,
+                        maxPrice, cursor, PageRequest.of(0, pageSize + 1)), ID_ORDER, pageSize + 1);
+            }
+            return toPage(products, pageSize, product -> String.valueOf(product.getId()));
+        }
+        PriceCursor cursor = PriceCursor.parse(after);
+        if (!deleted && priceIndex != null) {
+            return getPriceIndexPage(minPrice, maxPrice, cursor, pageSize, snapshot);
+        }
+        if (snapshot != null) {
+            return toPage(snapshot.getProducts(deleted, minPrice, maxPrice, cursor, pageSize + 1), pageSize,
+                    product -> new PriceCursor(product.getPrice(), product.getId()).toString());
+        }
+        List<Product> products = repository.findPriceRangePageByPrice(deleted, minPrice, maxPrice,
+                cursor.getPrice(), cursor.getId(), PageRequest.of(0, pageSize + 1));
+        if (deleted && archiveRepository != null) {
+            products = withArchived(products,
+                    archiveRepository.findPriceRangePageByPrice(minPrice, maxPrice, cursor.getPrice(),
+                            cursor.getId(), PageRequest.of(0, pageSize + 1)),
+                    PRICE_ORDER, pageSize + 1);
+        }
+        return toPage(products, pageSize,
+                product -> new PriceCursor(product.getPrice(), product.getId()).toString());
+    }
+
+    /**
+     * Gets products changed since given token (number of the change, 0 for all products).
+     * Next token is the highest number of the change all lower numbers of which were committed
+     * before the query (see {@link ChangeSequence}), so no change is missed
+     * and only changes committed concurrently may be returned again.
+     */
+    public ProductDelta getChanges(String token) {
+
+        long since = parseToken(token);
+        // read before the query, so changes committed later are returned by the next one
+        long committed = changeSequence.getCommitted();
+        List<Product> products = new ArrayList<>();
+        List<Integer> deletedIds = new ArrayList<>();
+        for (Product product : repository.findChangedAfter(since)) {
+            if (product.isDeleted()) {
+                deletedIds.add(product.getId());
+            } else {
+                products.add(product);
+            }
+        }
+        if (archiveRepository != null) {
+            archiveRepository.findChangedAfter(since)
+                    .forEach(product -> deletedIds.add(product.getId()));
+        }
+        return new ProductDelta(products, deletedIds, Long.toString(committed));
+    }
+
+    /**
+     * Passes all non-deleted or deleted products ordered by id to given consumer one by one.
+     * Deleted products are followed by archived products (also ordered by id).
+     * Products are streamed from database and detached once consumed,
+     * so memory usage doesn't depend on number of products.
+     */
+    @Transactional
+    public void exportProducts(boolean deleted, Consumer<Product> consumer) {
+
+        try (Stream<Product> products = repository.streamAll(deleted)) {
+            products.forEach(product -> {
+                consumer.accept(product);
+                repository.detach(product);
+            });
+        }
+        if (deleted && archiveRepository != null) {
+            try (Stream<ArchivedProduct> products = archiveRepository.streamAll()) {
+                products.forEach(product -> {
+                    consumer.accept(product.toProduct());
+                    archiveRepository.detach(product);
+                });
+            }
+        }
+    }
+
+    /**
+     * Get product with given id.
+     * Products are cached (see {@link ProductCache}), concurrent loads of the same product are coalesced
+     * (see {@link ProductLoadCoalescer}). Ids rejected by {@link ProductIdFilter} are not looked up at all.
      */
     public Product getProduct(int id) {
 
-        return repository.findNonDeletedById(id).orElseThrow(ProductNotFoundException::new);
+        ProductSnapshot snapshot = getSnapshot();
+        if (snapshot != null) {
+            Product product = snapshot.getProduct(id);
+            if (product == null) {
+                throw ProductNotFoundException.stackless();
+            }
+            return product;
+        }
+        if (idFilter != null && !idFilter.mightContain(id)) {
+            throw ProductNotFoundException.stackless();
+        }
+        Optional<Product> product = cache.getIfPresent(id);
+        if (product == null) {
+            // caller that stopped waiting reads the database directly, cache would wait for the same load
+            product = loadCoalescer.load(id, key -> cache.get(key, repository::findNonDeletedById),
+                    repository::findNonDeletedById);
+        }
+        return product.orElseThrow(ProductNotFoundException::stackless);
+    }
+
+    /**
+     * Gets non-deleted products with given ids in the order of ids (duplicates are ignored).
+     * Products are read in chunks by one query each, ids of products not found are returned separately.
+     * Ids rejected by {@link ProductIdFilter} are not looked up.
+     */
+    public ProductLookup getProducts(List<Integer> ids) {
+
+        List<Integer> uniqueIds = validateIds(ids, MAX_LOOKUP_SIZE);
+        ProductSnapshot snapshot = getSnapshot();
+        Function<Integer, Product> found = snapshot != null ? snapshot::getProduct
+            : findNonDeleted(uniqueIds)::get;
+        List<Product> products = new ArrayList<>(uniqueIds.size());
+        List<Integer> missingIds = new ArrayList<>();
+        for (Integer id : uniqueIds) {
+            Product product = found.apply(id);
+            if (product != null) {
+                products.add(product);
+            } else {
+                missingIds.add(id);
+            }
+        }
+        return new ProductLookup(products, missingIds);
+    }
+
+    /**
+     * Gets aggregate statistics of the catalog.
+     * They are maintained in memory (see {@link ProductStatsCollector}), so database is not accessed.
+     * They are not available if the price index is disabled.
+     */
+    public ProductStats getStats() {
+
+        if (statsCollector == null) {
+            throw new ProductStatsUnavailableException();
+        }
+        return statsCollector.getStats();
+    }
+
+    /**
+     * Search non-deleted products by name (see {@link ProductSearchIndex}).
+     * Limit is clamped to 1..{@value #MAX_SEARCH_SIZE}.
+     */
+    public List<Product> searchProducts(String query, int limit) {
+
+        return searchIndex.search(query, Math.max(1, Math.min(limit, MAX_SEARCH_SIZE)));
     }
 
     /**
@@ -55,11 +408,60 @@ public class ProductService {
     public Product addProduct(Product product) {
 
         validate(product);
-        // set id to non-existing value to avoid updating existing entity
-        product.setId(-1);
+        // id 0 marks the entity as new so it is persisted without merge (no select)
+        product.setId(0);
+        product.setVersion(0);
         // use current date for creatioDate
         product.setCreationDate(LocalDate.now());
-        return repository.save(product);
+        product.setChangeSequence(changeSequence.next());
+        return publish(Type.CREATED, repository.save(product));
+    }
+
+    /**
+     * Adds new products in one transaction.
+     * Each product is validated separately and only valid products are created.
+     * Returns result for each product in the same order as products are provided.
+     * Created products are published as one {@link ProductBulkChangedEvent}.
+     */
+    @Transactional
+    public List<ProductBatchResult> addProducts(List<Product> products) {
+
+        if (products.size() > MAX_BATCH_SIZE) {
+            throw new ProductValidationException(
+                    "batch can contain at most " + MAX_BATCH_SIZE + " products");
+        }
+        List<ProductBatchResult> results = new ArrayList<>(products.size());
+        List<ProductChangedEvent> changes = new ArrayList<>();
+        int pending = 0;
+        for (Product product : products) {
+            if (product == null) {
+                results.add(ProductBatchResult.invalid("product is mandatory"));
+                continue;
+            }
+            try {
+                validate(product);
+            } catch (ProductValidationException e) {
+                results.add(ProductBatchResult.invalid(e.getMessage()));
+                continue;
+            }
+            // id 0 marks the entity as new so it is persisted without merge
+            product.setId(0);
+            product.setVersion(0);
+            product.setCreationDate(LocalDate.now());
+            product.setChangeSequence(changeSequence.next());
+            Product created = repository.save(product);
+            changes.add(new ProductChangedEvent(Type.CREATED, created.getId(), created));
+            results.add(ProductBatchResult.created(created));
+            // send full JDBC batch and keep persistence context small
+            if (++pending == jdbcBatchSize) {
+                repository.flushAndClear();
+                pending = 0;
+            }
+        }
+        if (!changes.isEmpty()) {
+            eventPublisher.publishEvent(new ProductBulkChangedEvent(changes));
+        }
+        return results;
     }
 
     /**
@@ -69,13 +471,29 @@ public class ProductService {
     @Transactional
     public Product updateProduct(int id, Product product) {
 
-        Product originalProduct = repository.findNonDeletedById(id)
-                .orElseThrow(ProductNotFoundException::new);
+        return updateProduct(id, product, null);
+    }
+
+    /**
+     * Updates product with given id and expected version (any version if null).
+     * Only name and price can be updated.
+     * Product is updated using single conditional statement.
+     */
+    @Transactional
+    public Product updateProduct(int id, Product product, Integer expectedVersion) {
+
         validate(product);
-        // make sure correct id and creationDate is set
-        product.setId(id);
-        product.setCreationDate(originalProduct.getCreationDate());
-        return repository.save(product);
+        int updated = expectedVersion == null
+                ? repository.update(id, product.getName(), product.getPrice(), changeSequence.next())
+                : repository.update(id, product.getName(), product.getPrice(), expectedVersion,
+                        changeSequence.next());
+        if (updated == 0) {
+            throw notChanged(id, expectedVersion);
+        }
+        // read updated product with its creationDate and version
+        Product updatedProduct = repository.findNonDeletedById(id)
+                .orElseThrow(ProductNotFoundException::new);
+        return publish(Type.UPDATED, updatedProduct);
     }
 
     /**
@@ -85,10 +503,263 @@ public class ProductService {
     @Transactional
     public void deleteProduct(int id) {
 
-        Product product = repository.findNonDeletedById(id)
-                .orElseThrow(ProductNotFoundException::new);
-        product.markAsDeleted();
-        repository.softDelete(id);
+        deleteProduct(id, null);
+    }
+
+    /**
+     * Deletes product with given id and expected version (any version if null).
+     * It performs soft deletion by setting the deleted flag to true using single conditional
+     * statement. With expected version the statement increments the matched version, so the product
+     * is not read afterwards.
+     */
+    @Transactional
+    public void deleteProduct(int id, Integer expectedVersion) {
+
+        int deleted = expectedVersion == null ? repository.softDelete(id, changeSequence.next())
+                : repository.softDelete(id, expectedVersion, changeSequence.next());
+        if (deleted == 0) {
+            throw notChanged(id, expectedVersion);
+        }
+        // listeners order the deletion among other changes by version set by the statement
+        // (read only if the matched version is not known)
+        int version = expectedVersion != null ? expectedVersion + 1
+                : repository.findById(id).map(Product::getVersion).orElse(ProductChangedEvent.UNKNOWN_VERSION);
+        eventPublisher.publishEvent(new ProductChangedEvent(Type.DELETED, id, version, null));
+    }
+
+    /**
+     * Deletes non-deleted products with given ids (soft deletion).
+     * Ids are processed in chunks, each chunk by two statements (select of ids and versions of existing
+     * products locking them and update), and changes are published as one {@link ProductBulkChangedEvent}.
+     */
+    @Transactional
+    public ProductBulkResult deleteProducts(List<Integer> ids) {
+
+        return setDeleted(ids, true);
+    }
+
+    /**
+     * Restores deleted products with given ids.
+     * Ids are processed in chunks the same way as by {@link #deleteProducts(List)}, restored products
+     * of each chunk are read by third statement (indexes need them).
+     */
+    @Transactional
+    public ProductBulkResult restoreProducts(List<Integer> ids) {
+
+        return setDeleted(ids, false);
+    }
+
+    private ProductBulkResult setDeleted(List<Integer> ids, boolean deleted) {
+
+        List<Integer> uniqueIds = validateIds(ids, MAX_BULK_SIZE);
+        Set<Integer> affected = new HashSet<>();
+        List<ProductChangedEvent> changes = new ArrayList<>();
+        for (int from = 0; from < uniqueIds.size(); from += bulkChunkSize) {
+            List<Integer> chunk = uniqueIds.subList(from,
+                    Math.min(from + bulkChunkSize, uniqueIds.size()));
+            // found rows are locked, so all of them are updated
+            List<ProductIdVersion> found = repository.findVersionsByDeleted(chunk, !deleted);
+            if (found.isEmpty()) {
+                continue;
+            }
+            List<Integer> foundIds = found.stream().map(ProductIdVersion::getId).collect(Collectors.toList());
+            repository.setDeleted(foundIds, deleted, changeSequence.next());
+            affected.addAll(foundIds);
+            if (deleted) {
+                // the update incremented versions of the locked rows
+                found.forEach(product -> changes.add(new ProductChangedEvent(Type.DELETED, product.getId(),
+                        product.getVersion() + 1, null)));
+            } else {
+                // restored products are read to update indexes
+                repository.findNonDeletedByIds(foundIds).forEach(product -> changes
+                        .add(new ProductChangedEvent(Type.RESTORED, product.getId(), product)));
+            }
+        }
+        List<Integer> affectedIds = new ArrayList<>(affected.size());
+        List<Integer> missingIds = new ArrayList<>();
+        for (Integer id : uniqueIds) {
+            if (affected.contains(id)) {
+                affectedIds.add(id);
+            } else {
+                missingIds.add(id);
+            }
+        }
+        if (!changes.isEmpty()) {
+            eventPublisher.publishEvent(new ProductBulkChangedEvent(changes));
+        }
+        return new ProductBulkResult(affectedIds, missingIds);
+    }
+
+    /**
+     * Checks number of ids and returns them without duplicates.
+     */
+    private static List<Integer> validateIds(List<Integer> ids, int maxSize) {
+
+        if (ids.size() > maxSize) {
+            throw new ProductValidationException("at most " + maxSize + " ids can be provided");
+        }
+        if (ids.contains(null)) {
+            throw new ProductValidationException("ids can't contain null");
+        }
+        return new ArrayList<>(new LinkedHashSet<>(ids));
+    }
+
+    /**
+     * Reads non-deleted products with given ids in chunks, ids rejected by {@link ProductIdFilter} are skipped.
+     */
+    private Map<Integer, Product> findNonDeleted(List<Integer> uniqueIds) {
+
+        List<Integer> candidateIds = uniqueIds;
+        if (idFilter != null) {
+            candidateIds = new ArrayList<>(uniqueIds.size());
+            for (Integer id : uniqueIds) {
+                if (idFilter.mightContain(id)) {
+                    candidateIds.add(id);
+                }
+            }
+        }
+        Map<Integer, Product> found = new HashMap<>();
+        for (int from = 0; from < candidateIds.size(); from += bulkChunkSize) {
+            for (Product product : repository.findNonDeletedByIds(candidateIds.subList(from,
+                    Math.min(from + bulkChunkSize, candidateIds.size())))) {
+                found.put(product.getId(), product);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Gets the current snapshot of {@link ProductReadModel} or null if it is disabled or not created yet.
+     */
+    private ProductSnapshot getSnapshot() {
+
+        return readModel != null ? readModel.getSnapshot() : null;
+    }
+
+    private ProductPage getPage(boolean deleted, int after, int limit) {
+
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        // fetch one more product to find out whether there is a next page
+        ProductSnapshot snapshot = getSnapshot();
+        if (snapshot != null) {
+            return toPage(snapshot.getProducts(deleted, after, pageSize + 1), pageSize,
+                    product -> String.valueOf(product.getId()));
+        }
+        List<Product> products = repository.findPage(deleted, after,
+                PageRequest.of(0, pageSize + 1));
+        if (deleted && archiveRepository != null) {
+            products = withArchived(products,
+                    archiveRepository.findPage(after, PageRequest.of(0, pageSize + 1)), ID_ORDER,
+                    pageSize + 1);
+        }
+        return toPage(products, pageSize, product -> String.valueOf(product.getId()));
+    }
+
+    /**
+     * Adds archived products to deleted products (both in given order, null for no order)
+     * and keeps at most limit products.
+     */
+    private static List<Product> withArchived(List<Product> products,
+            List<ArchivedProduct> archivedProducts, Comparator<Product> order, int limit) {
+
+        if (archivedProducts.isEmpty()) {
+            return products;
+        }
+        List<Product> merged = new ArrayList<>(products.size() + archivedProducts.size());
+        merged.addAll(products);
+        archivedProducts.forEach(product -> merged.add(product.toProduct()));
+        if (order != null) {
+            merged.sort(order);
+        }
+        return merged.size() > limit ? merged.subList(0, limit) : merged;
+    }
+
+    /**
+     * Creates page from products fetched with one extra product indicating the next page.
+     */
+    private ProductPage toPage(List<Product> products, int pageSize,
+            Function<Product, String> cursor) {
+
+        if (products.size() <= pageSize) {
+            return new ProductPage(products, null);
+        }
+        products = products.subList(0, pageSize);
+        return new ProductPage(products, cursor.apply(products.get(pageSize - 1)));
+    }
+
+    /**
+     * Finds ids of the page in the price index and reads only these products
+     * (from given snapshot of the read model if it is enabled).
+     * Products deleted in the meantime are skipped.
+     */
+    private ProductPage getPriceIndexPage(double minPrice, double maxPrice, PriceCursor after,
+            int pageSize, ProductSnapshot snapshot) {
+
+        ProductPriceIndex.Entries entries = priceIndex.find(minPrice, maxPrice, after,
+                pageSize + 1);
+        int size = Math.min(entries.size(), pageSize);
+        List<Integer> ids = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            ids.add(entries.getId(i));
+        }
+        Map<Integer, Product> found = new HashMap<>();
+        if (snapshot != null) {
+            for (Integer id : ids) {
+                found.put(id, snapshot.getProduct(id));
+            }
+        } else if (!ids.isEmpty()) {
+            for (Product product : repository.findNonDeletedByIds(ids)) {
+                found.put(product.getId(), product);
+            }
+        }
+        List<Product> products = new ArrayList<>(size);
+        for (Integer id : ids) {
+            Product product = found.get(id);
+            if (product != null) {
+                products.add(product);
+            }
+        }
+        String nextCursor = entries.size() > pageSize
+            ? new PriceCursor(entries.getPrice(size - 1), entries.getId(size - 1)).toString()
+            : null;
+        return new ProductPage(products, nextCursor);
+    }
+
+
+    /**
+     * Creates exception for product that couldn't be changed by conditional statement.
+     * It was either not found or its version didn't match.
+     */
+    private RuntimeException notChanged(int id, Integer expectedVersion) {
+
+        if (expectedVersion != null && repository.findNonDeletedById(id).isPresent()) {
+            return new ProductConflictException();
+        }
+        return new ProductNotFoundException();
+    }
+
+    private static long parseToken(String token) {
+
+        try {
+            return Long.parseLong(token);
+        } catch (NumberFormatException e) {
+            throw new ProductValidationException("modifiedSince has to contain token of previous response");
+        }
+    }
+
+    private byte[] serialize(List<Product> products) {
+
+        try {
+            return objectMapper.writeValueAsBytes(products);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Product publish(Type type, Product product) {
+
+        eventPublisher.publishEvent(new ProductChangedEvent(type, product.getId(), product));
+        return product;
     }
 
     private void validate(Product product) {
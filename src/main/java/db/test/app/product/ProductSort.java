@@ -0,0 +1,33 @@
+package db.test.app.product;
+
+import java.util.Locale;
+
+import db.test.app.product.validation.ProductValidationException;
+
+/**
+ * Order of listed products.
+ */
+public enum ProductSort {
+
+    /**
+     * Ascending by id, cursor is the id of the last product.
+     */
+    ID,
+
+    /**
+     * Ascending by price and id, cursor is {@link PriceCursor}.
+     */
+    PRICE;
+
+    /**
+     * Parses order from its case insensitive name.
+     */
+    public static ProductSort parse(String sort) {
+
+        try {
+            return valueOf(sort.trim().toUpperCase(Locale.ROOT));
+        } catch (RuntimeException e) {
+            throw new ProductValidationException("sort has to be id or price");
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package db.test.app.product;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.springframework.data.domain.Pageable;
+
+/**
+ * Storage of products used by {@link ProductService} and other components.
+ * It is implemented by JPA repository ({@link ProductRepository}) or by in-memory table
+ * ({@link InMemoryProductRepository}, enabled by inmemory profile).
+ * Queries are documented by {@link ProductRepository}.
+ */
+public interface ProductStore {
+
+    public List<Product> findAll();
+
+    public Optional<Product> findById(Integer id);
+
+    public List<Product> findAllById(Iterable<Integer> ids);
+
+    public <S extends Product> S save(S entity);
+
+    public List<Product> findAllNonDeleted();
+
+    public List<Product> findAllDeleted();
+
+    public List<ProductFields> findAllFields(boolean deleted, List<ProductField> fields);
+
+    public List<Product> findPage(boolean deleted, int after, Pageable pageable);
+
+    public List<Product> findPriceRangePage(boolean deleted, double minPrice, double maxPrice,
+            int after, Pageable pageable);
+
+    public List<Product> findPriceRangePageByPrice(boolean deleted, double minPrice,
+            double maxPrice, double afterPrice, int afterId, Pageable pageable);
+
+    public List<Product> findChangedAfter(long changeSequence);
+
+    public long findMaxChangeSequence();
+
+    public PriceAggregate aggregatePrices(boolean deleted);
+
+    public Stream<Product> streamAll(boolean deleted);
+
+    public Optional<Product> findNonDeletedById(Integer id);
+
+    public List<Product> findNonDeletedByIds(Collection<Integer> ids);
+
+    public List<Integer> findIdsByDeleted(Collection<Integer> ids, boolean deleted);
+
+    public List<ProductIdVersion> findVersionsByDeleted(Collection<Integer> ids, boolean deleted);
+
+    public int setDeleted(Collection<Integer> ids, boolean deleted, long changeSequence);
+
+    public List<Integer> findIdsDeletedBefore(Instant before, Pageable pageable);
+
+    public int removeDeleted(Collection<Integer> ids);
+
+    public int update(int id, String name, double price, long changeSequence);
+
+    public int update(int id, String name, double price, int version, long changeSequence);
+
+    public int softDelete(Integer id, long changeSequence);
+
+    public int softDelete(int id, int version, long changeSequence);
+
+    /**
+     * Sends pending changes to the storage and forgets products saved so far,
+     * so batch of saves doesn't keep all of them.
+     */
+    public void flushAndClear();
+
+    /**
+     * Forgets given product read in the current transaction, so it can be garbage collected.
+     */
+    public void detach(Product product);
+}
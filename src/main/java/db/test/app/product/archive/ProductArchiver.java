@@ -0,0 +1,145 @@
+package db.test.app.product.archive;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import db.test.app.product.ArchivedProduct;
+import db.test.app.product.Product;
+import db.test.app.product.ProductStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Background job moving products deleted longer than the retention period to the archive table
+ * (enabled by product.archive.enabled).
+ * Products are moved in small batches, each in its own transaction, with pause between batches,
+ * so foreground requests don't wait for long transactions and locks.
+ * Number of archived products is counted by product.archived metric.
+ */
+@Component
+@ConditionalOnProperty(name = "product.archive.enabled",
+    havingValue = "true")
+public class ProductArchiver {
+
+    /**
+     * Counter of archived products.
+     */
+    public static final String ARCHIVED_COUNTER = "product.archived";
+
+    @Autowired
+    private ProductStore repository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Counter archivedCounter;
+
+    /**
+     * Time since deletion after which product is archived.
+     */
+    @Value("${product.archive.retention:30d}")
+    private Duration retention;
+
+    /**
+     * Number of products moved in one transaction.
+     */
+    @Value("${product.archive.batch-size:500}")
+    private int batchSize;
+
+    /**
+     * Pause between two batches.
+     */
+    @Value("${product.archive.pause:100ms}")
+    private Duration pause;
+
+    public ProductArchiver(PlatformTransactionManager transactionManager, MeterRegistry registry) {
+
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.archivedCounter = registry.counter(ARCHIVED_COUNTER);
+    }
+
+    /**
+     * Archives products deleted longer than the retention period.
+     * It runs periodically with product.archive.interval between the end of one run and the start of the next one.
+     */
+    @Scheduled(initialDelayString = "${product.archive.interval:PT10M}",
+        fixedDelayString = "${product.archive.interval:PT10M}")
+    public void run() {
+
+        archive(Instant.now().minus(retention));
+    }
+
+    /**
+     * Archives products deleted before given time.
+     * Returns number of archived products.
+     */
+    public int archive(Instant deletedBefore) {
+
+        int archived = 0;
+        while (true) {
+            int moved = transactionTemplate.execute(status -> archiveBatch(deletedBefore));
+            archived += moved;
+            archivedCounter.increment(moved);
+            if (moved < batchSize || !pause()) {
+                return archived;
+            }
+        }
+    }
+
+    /**
+     * Moves one batch of products deleted before given time to the archive table.
+     * Returns number of archived products, products restored or deleted again in the meantime are skipped.
+     */
+    private int archiveBatch(Instant deletedBefore) {
+
+        List<Integer> ids = repository.findIdsDeletedBefore(deletedBefore,
+                PageRequest.of(0, batchSize));
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        // rows still deleted are locked, so they can't be restored before they are removed
+        List<Integer> archivedIds = new ArrayList<>(ids.size());
+        for (Product product : repository.findAllById(repository.findIdsByDeleted(ids, true))) {
+            if (product.getLastModified().isBefore(deletedBefore)) {
+                entityManager.persist(new ArchivedProduct(product));
+                archivedIds.add(product.getId());
+            }
+        }
+        if (!archivedIds.isEmpty()) {
+            entityManager.flush();
+            repository.removeDeleted(archivedIds);
+        }
+        return archivedIds.size();
+    }
+
+    /**
+     * Pauses before the next batch.
+     * Returns false if the thread has been interrupted.
+     */
+    private boolean pause() {
+
+        try {
+            Thread.sleep(pause.toMillis());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package db.test.app.product.cache;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import db.test.app.product.Product;
+import db.test.app.product.ProductBulkChangedEvent;
+import db.test.app.product.ProductChangedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Bounded cache of non-deleted products retrieved by id.
+ * Entries expire after configured time and are invalidated when the product is changed.
+ * Optionally ids of missing products are cached as well (negative entries).
+ * Statistics are exposed as metrics (cache=product) and JMX attributes.
+ */
+@Component
+@ManagedResource(objectName = "db.test.app:type=ProductCache")
+public class ProductCache implements MeterBinder {
+
+    private final Cache<Integer, Optional<Product>> cache;
+
+    private final boolean negativeEntries;
+
+    public ProductCache(@Value("${product.cache.maximum-size:10000}") long maximumSize,
+            @Value("${product.cache.time-to-live:60s}") Duration timeToLive,
+            @Value("${product.cache.negative-entries:false}") boolean negativeEntries) {
+
+        this.cache = Caffeine.newBuilder().maximumSize(maximumSize).expireAfterWrite(timeToLive)
+                .recordStats().build();
+        this.negativeEntries = negativeEntries;
+    }
+
+    /**
+     * Gets product with given id from cache or loads it using given loader.
+     * Missing product is cached only if negative entries are enabled.
+     */
+    public Optional<Product> get(int id, Function<Integer, Optional<Product>> loader) {
+
+        Optional<Product> product = cache.get(id, key -> {
+            Optional<Product> loadedProduct = loader.apply(key);
+            return loadedProduct.isPresent() || negativeEntries ? loadedProduct : null;
+        });
+        return product != null ? product : Optional.empty();
+    }
+
+    /**
+     * Gets cached product with given id or null if there is no entry for it.
+     */
+    public Optional<Product> getIfPresent(int id) {
+
+        return cache.getIfPresent(id);
+    }
+
+    /**
+     * Invalidates entry of changed product once the change is committed.
+     * Load running concurrently with invalidation is discarded so stale product is not cached.
+     */
+    @Order(ProductChangedEvent.UPDATE_ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+
+        cache.invalidate(event.getId());
+    }
+
+    /**
+     * Invalidates entries of all products changed by the bulk operation at once.
+     */
+    @Order(ProductChangedEvent.UPDATE_ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductsChanged(ProductBulkChangedEvent event) {
+
+        cache.invalidateAll(event.getChanges().stream().map(ProductChangedEvent::getId)
+                .collect(Collectors.toList()));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+
+        CaffeineCacheMetrics.monitor(registry, cache, "product");
+    }
+
+    /**
+     * Invalidates all entries.
+     */
+    @ManagedOperation
+    public void invalidateAll() {
+
+        cache.invalidateAll();
+    }
+
+    /**
+     * Gets statistics of the cache.
+     */
+    public CacheStats getStats() {
+
+        return cache.stats();
+    }
+
+    @ManagedAttribute
+    public long getSize() {
+
+        return cache.estimatedSize();
+    }
+
+    @ManagedAttribute
+    public long getHitCount() {
+
+        return cache.stats().hitCount();
+    }
+
+    @ManagedAttribute
+    public long getMissCount() {
+
+        return cache.stats().missCount();
+    }
+
+    @ManagedAttribute
+    public long getEvictionCount() {
+
+        return cache.stats().evictionCount();
+    }
+}
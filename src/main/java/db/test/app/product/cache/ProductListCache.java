@@ -0,0 +1,62 @@
+package db.test.app.product.cache;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Component;
+
+import db.test.app.product.CatalogVersion;
+
+/**
+ * Cache of complete lists of non-deleted and deleted products serialized as JSON (see {@link SerializedProducts}).
+ * Each list remembers the catalog version it was read in and it is rebuilt lazily by the first request
+ * after the version has changed, i.e. after any change of products has been committed.
+ * Concurrent requests wait for one rebuild instead of reading the products each.
+ */
+@Component
+public class ProductListCache {
+
+    private final CatalogVersion catalogVersion;
+
+    private final AtomicReferenceArray<SerializedProducts> lists = new AtomicReferenceArray<>(2);
+
+    private final Object[] locks = { new Object(), new Object() };
+
+    public ProductListCache(CatalogVersion catalogVersion) {
+
+        this.catalogVersion = catalogVersion;
+    }
+
+    /**
+     * Gets serialized list of non-deleted or deleted products.
+     * If the catalog has changed since it was created, it is rebuilt using given serializer.
+     */
+    public SerializedProducts get(boolean deleted, Supplier<byte[]> serializer) {
+
+        int index = deleted ? 1 : 0;
+        SerializedProducts list = lists.get(index);
+        if (list != null && list.getVersion() == catalogVersion.get()) {
+            return list;
+        }
+        synchronized (locks[index]) {
+            // version is read before products, so the list is rebuilt again if they change meanwhile
+            long version = catalogVersion.get();
+            list = lists.get(index);
+            if (list == null || list.getVersion() != version) {
+                list = new SerializedProducts(version, serializer.get());
+                lists.set(index, list);
+            }
+            return list;
+        }
+    }
+
+    /**
+     * Invalidates both lists.
+     */
+    public void invalidateAll() {
+
+        for (int i = 0; i < lists.length(); i++) {
+            lists.set(i, null);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package db.test.app.product.cache;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import db.test.app.product.Product;
+import db.test.app.product.ProductBulkChangedEvent;
+import db.test.app.product.ProductChangedEvent;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Coalesces concurrent loads of the same product (single-flight).
+ * The first caller loads the product, callers arriving while the load is in flight wait for its result
+ * (product, empty result or exception) instead of loading the product again.
+ * Waiting is bounded by configured timeout, then the caller loads the product itself
+ * by fallback loader (which must not wait for the load in flight, e.g. in the cache).
+ * Once a change of the product is committed, callers arriving later start a new load,
+ * so they don't get the product read before the change.
+ * Numbers of loads, coalesced calls and timeouts are exposed as product.loads metric.
+ */
+@Component
+public class ProductLoadCoalescer implements MeterBinder {
+
+    /**
+     * Counter of loads (tagged by result: loaded, coalesced, timeout).
+     */
+    public static final String LOADS_COUNTER = "product.loads";
+
+    private final ConcurrentHashMap<Integer, CompletableFuture<Optional<Product>>> inFlight = new ConcurrentHashMap<>();
+
+    private final long timeoutNanos;
+
+    private final LongAdder loaded = new LongAdder();
+
+    private final LongAdder coalesced = new LongAdder();
+
+    private final LongAdder timeouts = new LongAdder();
+
+    public ProductLoadCoalescer(@Value("${product.coalescing.timeout:1s}") Duration timeout) {
+
+        this.timeoutNanos = timeout.toNanos();
+    }
+
+    /**
+     * Loads product with given id using given loader or waits for the load already in flight.
+     * The same loader is used after timeout.
+     */
+    public Optional<Product> load(int id, Function<Integer, Optional<Product>> loader) {
+
+        return load(id, loader, loader);
+    }
+
+    /**
+     * Loads product with given id using given loader or waits for the load already in flight,
+     * given fallback loader is used after timeout.
+     */
+    public Optional<Product> load(int id, Function<Integer, Optional<Product>> loader,
+            Function<Integer, Optional<Product>> fallback) {
+
+        CompletableFuture<Optional<Product>> flight = new CompletableFuture<>();
+        CompletableFuture<Optional<Product>> current = inFlight.putIfAbsent(id, flight);
+        if (current != null) {
+            return await(current, id, fallback);
+        }
+        loaded.increment();
+        try {
+            Optional<Product> product = loader.apply(id);
+            flight.complete(product);
+            return product;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(id, flight);
+        }
+    }
+
+    /**
+     * Lets later callers start a new load once the change is committed.
+     */
+    @Order(ProductChangedEvent.UPDATE_ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+
+        inFlight.remove(event.getId());
+    }
+
+    /**
+     * Lets later callers start new loads of products changed by the bulk operation once it is committed.
+     */
+    @Order(ProductChangedEvent.UPDATE_ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductsChanged(ProductBulkChangedEvent event) {
+
+        event.getChanges().forEach(this::onProductChanged);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+
+        FunctionCounter.builder(LOADS_COUNTER, loaded, LongAdder::sum).tag("result", "loaded")
+                .register(registry);
+        FunctionCounter.builder(LOADS_COUNTER, coalesced, LongAdder::sum).tag("result", "coalesced")
+                .register(registry);
+        FunctionCounter.builder(LOADS_COUNTER, timeouts, LongAdder::sum).tag("result", "timeout")
+                .register(registry);
+    }
+
+    /**
+     * Gets number of loads made.
+     */
+    public long getLoadCount() {
+
+        return loaded.sum();
+    }
+
+    /**
+     * Gets number of calls that got result of load in flight.
+     */
+    public long getCoalescedCount() {
+
+        return coalesced.sum();
+    }
+
+    /**
+     * Gets number of calls that stopped waiting for load in flight and loaded the product themselves.
+     */
+    public long getTimeoutCount() {
+
+        return timeouts.sum();
+    }
+
+    private Optional<Product> await(CompletableFuture<Optional<Product>> flight, int id,
+            Function<Integer, Optional<Product>> fallback) {
+
+        try {
+            Optional<Product> product = flight.get(timeoutNanos, TimeUnit.NANOSECONDS);
+            coalesced.increment();
+            return product;
+        } catch (TimeoutException e) {
+            timeouts.increment();
+            loaded.increment();
+            return fallback.apply(id);
+        } catch (ExecutionException e) {
+            coalesced.increment();
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw (Error) cause;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for product " + id, e);
+        }
+    }
+}
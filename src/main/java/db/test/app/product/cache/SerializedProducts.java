@@ -0,0 +1,61 @@
+package db.test.app.product.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * List of products serialized as JSON together with its gzip-compressed copy.
+ * Arrays are shared by all requests and must not be modified.
+ */
+public class SerializedProducts {
+
+    private final long version;
+
+    private final byte[] json;
+
+    private final byte[] gzip;
+
+    public SerializedProducts(long version, byte[] json) {
+
+        this.version = version;
+        this.json = json;
+        this.gzip = compress(json);
+    }
+
+    /**
+     * Gets the catalog version the list was read in.
+     */
+    public long getVersion() {
+
+        return version;
+    }
+
+    /**
+     * Gets the JSON.
+     */
+    public byte[] getJson() {
+
+        return json;
+    }
+
+    /**
+     * Gets the gzip-compressed JSON.
+     */
+    public byte[] getGzip() {
+
+        return gzip;
+    }
+
+    private static byte[] compress(byte[] data) {
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4 + 64);
+        try (GZIPOutputStream gzipOut = new GZIPOutputStream(out)) {
+            gzipOut.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,68 @@
+package db.test.app.product.feed;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import db.test.app.product.Product;
+import db.test.app.product.ProductChangedEvent;
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+/**
+ * Change of the product with its offset in the change feed.
+ */
+@ApiModel(description = "Change of the product")
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ProductChange {
+
+    @ApiModelProperty(notes = "monotonically increasing offset of the change (event id is the offset prefixed with the start time of the feed)")
+    private final long offset;
+
+    @ApiModelProperty(notes = "type of the change")
+    private final ProductChangedEvent.Type type;
+
+    @ApiModelProperty(notes = "id of changed product")
+    private final int id;
+
+    @ApiModelProperty(notes = "product after the change (not present for deletion)")
+    private final Product product;
+
+    public ProductChange(long offset, ProductChangedEvent.Type type, int id, Product product) {
+
+        this.offset = offset;
+        this.type = type;
+        this.id = id;
+        this.product = product;
+    }
+
+    /**
+     * Gets the offset.
+     */
+    public long getOffset() {
+
+        return offset;
+    }
+
+    /**
+     * Gets the type.
+     */
+    public ProductChangedEvent.Type getType() {
+
+        return type;
+    }
+
+    /**
+     * Gets the id of changed product.
+     */
+    public int getId() {
+
+        return id;
+    }
+
+    /**
+     * Gets the product after the change or null if product was deleted.
+     */
+    public Product getProduct() {
+
+        return product;
+    }
+}
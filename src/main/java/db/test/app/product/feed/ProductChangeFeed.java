@@ -0,0 +1,258 @@
+package db.test.app.product.feed;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import db.test.app.product.ProductBulkChangedEvent;
+import db.test.app.product.ProductChangedEvent;
+
+/**
+ * Feed of committed changes of products for Server-Sent Events subscribers.
+ * Each change gets monotonically increasing offset (starting from 1 after each start)
+ * and is kept in a bounded ring buffer, so reconnecting subscriber can resume after the last
+ * received offset. Subscriber which has fallen behind the buffer receives resync event instead.
+ * Event ids are offsets prefixed with the epoch of the feed (its start time), so ids received
+ * before restart are recognized as unknown and also get resync event.
+ * Changes are queued for each subscriber in bounded queue and sent by a separate thread,
+ * subscriber whose queue overflows is disconnected, so slow subscribers never block writers.
+ */
+@Component
+public class ProductChangeFeed {
+
+    /**
+     * Name of the event telling subscriber to reload all products and continue from its offset.
+     */
+    public static final String RESYNC_EVENT = "resync";
+
+    private final String epoch = Long.toHexString(System.currentTimeMillis());
+
+    private final ProductChange[] buffer;
+
+    private final int queueSize;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    private final ExecutorService executor;
+
+    /**
+     * Offset of the last change, guarded by this.
+     */
+    private long lastOffset;
+
+    public ProductChangeFeed(@Value("${product.feed.capacity:10000}") int capacity,
+            @Value("${product.feed.subscriber-queue-size:1000}") int queueSize) {
+
+        this.buffer = new ProductChange[capacity];
+        this.queueSize = queueSize;
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "product-feed-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Appends the change once it is committed and queues it for all subscribers.
+     * Subscribers are notified last, once caches are updated and catalog version is incremented.
+     */
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onProductChanged(ProductChangedEvent event) {
+
+        ProductChange change = new ProductChange(++lastOffset, event.getType(), event.getId(),
+                event.getProduct());
+        buffer[(int) (change.getOffset() % buffer.length)] = change;
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(change);
+        }
+    }
+
+    /**
+     * Appends all changes of the bulk operation once they are committed.
+     */
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onProductsChanged(ProductBulkChangedEvent event) {
+
+        event.getChanges().forEach(this::onProductChanged);
+    }
+
+    /**
+     * Gets changes following given offset or null if some of them are no longer in the buffer
+     * (or the offset is unknown).
+     */
+    public synchronized List<ProductChange> getChanges(long after) {
+
+        if (after > lastOffset || after < lastOffset - buffer.length) {
+            return null;
+        }
+        List<ProductChange> changes = new ArrayList<>((int) (lastOffset - after));
+        for (long offset = after + 1; offset <= lastOffset; offset++) {
+            changes.add(buffer[(int) (offset % buffer.length)]);
+        }
+        return changes;
+    }
+
+    /**
+     * Gets offset of the last change.
+     */
+    public synchronized long getLastOffset() {
+
+        return lastOffset;
+    }
+
+    /**
+     * Gets id of the event of the change with given offset.
+     */
+    public String getEventId(long offset) {
+
+        return epoch + "-" + offset;
+    }
+
+    /**
+     * Gets offset of the change with given event id or null if the id is not from this epoch
+     * (or is not valid).
+     */
+    public Long parseEventId(String eventId) {
+
+        String prefix = epoch + "-";
+        if (!eventId.startsWith(prefix)) {
+            return null;
+        }
+        try {
+            return Long.parseLong(eventId.substring(prefix.length()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Subscribes given emitter to changes following the change with given event id
+     * (null for only new changes).
+     * Resync event is sent first if the changes are no longer available or the id is unknown.
+     */
+    public synchronized void subscribe(SseEmitter emitter, String lastEventId) {
+
+        Subscriber subscriber = new Subscriber(emitter);
+        List<ProductChange> changes = new ArrayList<>();
+        if (lastEventId != null) {
+            Long after = parseEventId(lastEventId);
+            changes = after != null ? getChanges(after) : null;
+        }
+        if (changes == null || changes.size() > queueSize) {
+            subscriber.resyncOffset = lastOffset;
+        } else {
+            changes.forEach(subscriber::offer);
+        }
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        subscriber.schedule();
+    }
+
+    /**
+     * Gets number of connected subscribers.
+     */
+    public int getSubscriberCount() {
+
+        return subscribers.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+
+        executor.shutdownNow();
+    }
+
+    /**
+     * Subscriber with its queue of changes, sending is scheduled only if there is something to send.
+     */
+    private class Subscriber {
+
+        private final SseEmitter emitter;
+
+        private final BlockingQueue<ProductChange> queue = new ArrayBlockingQueue<>(queueSize);
+
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        private volatile boolean overflow;
+
+        private Long resyncOffset;
+
+        Subscriber(SseEmitter emitter) {
+
+            this.emitter = emitter;
+        }
+
+        void offer(ProductChange change) {
+
+            if (!queue.offer(change)) {
+                overflow = true;
+                subscribers.remove(this);
+            }
+            schedule();
+        }
+
+        void schedule() {
+
+            if (scheduled.compareAndSet(false, true)) {
+                executor.execute(this::send);
+            }
+        }
+
+        private void send() {
+
+            try {
+                if (resyncOffset != null) {
+                    emitter.send(SseEmitter.event().id(getEventId(resyncOffset)).name(RESYNC_EVENT)
+                            .data(resyncOffset));
+                    resyncOffset = null;
+                }
+                while (true) {
+                    if (overflow) {
+                        // subscriber reconnects with the offset of the last sent change
+                        emitter.complete();
+                        return;
+                    }
+                    ProductChange change = queue.poll();
+                    if (change == null) {
+                        scheduled.set(false);
+                        // change offered after poll and before reset would not be scheduled
+                        if (queue.isEmpty() && !overflow || !scheduled.compareAndSet(false, true)) {
+                            return;
+                        }
+                        continue;
+                    }
+                    emitter.send(SseEmitter.event().id(getEventId(change.getOffset()))
+                            .name(change.getType().name().toLowerCase(Locale.ROOT))
+                            .data(change, MediaType.APPLICATION_JSON));
+                }
+            } catch (IOException | IllegalStateException e) {
+                subscribers.remove(this);
+                emitter.completeWithError(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package db.test.app.product.feed;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiParam;
+
+/**
+ * Controller providing feed of product changes as Server-Sent Events.
+ */
+@RestController
+@RequestMapping("products")
+public class ProductFeedController {
+
+    /**
+     * Request header containing event id of the last received change.
+     */
+    public static final String LAST_EVENT_ID_HEADER = "Last-Event-ID";
+
+    @Autowired
+    private ProductChangeFeed feed;
+
+    @ApiOperation(value = "Streams changes of products as Server-Sent Events",
+        notes = "Event name is the type of the change (created, updated, deleted), event id is the offset of the change prefixed with the start time of the feed. "
+                + "Reconnecting client resumes after the event id in Last-Event-ID header. "
+                + "If the changes are no longer available (or the id is from previous run), resync event is sent and client should reload all products. "
+                + "Client which doesn't keep up with the changes is disconnected")
+    @GetMapping(value = "/changes",
+        produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter getChanges(@ApiParam(name = LAST_EVENT_ID_HEADER,
+        value = "event id of the last received change") @RequestHeader(name = LAST_EVENT_ID_HEADER,
+            required = false) String lastEventId) {
+
+        // timeout is given by spring.mvc.async.request-timeout
+        SseEmitter emitter = new SseEmitter();
+        feed.subscribe(emitter, lastEventId);
+        return emitter;
+    }
+}
@@ -0,0 +1,107 @@
+package db.test.app.product.id;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.hibernate.id.IdentifierGeneratorHelper;
+import org.hibernate.id.IntegralDataTypeHolder;
+import org.hibernate.id.enhanced.AccessCallback;
+import org.hibernate.id.enhanced.Optimizer;
+
+/**
+ * Optimizer handing out ids from blocks reserved in database.
+ * Each value of the underlying sequence (incremented by block size) reserves block of ids
+ * starting with this value (pooled-lo strategy), so ids are never reused after restart.
+ * Ids of the current block are handed out without locking, only fetching of the next block
+ * is synchronized.
+ */
+public class BlockIdOptimizer implements Optimizer {
+
+    private final Class<?> returnClass;
+
+    private final int blockSize;
+
+    private final AtomicReference<Block> block = new AtomicReference<>();
+
+    private volatile IntegralDataTypeHolder lastSourceValue;
+
+    /**
+     * Constructor required by Hibernate.
+     */
+    public BlockIdOptimizer(Class<?> returnClass, int blockSize) {
+
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("block size has to be a positive value");
+        }
+        this.returnClass = returnClass;
+        this.blockSize = blockSize;
+    }
+
+    @Override
+    public Serializable generate(AccessCallback callback) {
+
+        while (true) {
+            Block current = block.get();
+            if (current != null) {
+                long id = current.next();
+                if (id != Block.EXHAUSTED) {
+                    return IdentifierGeneratorHelper.getIntegralDataTypeHolder(returnClass)
+                            .initialize(id).makeValue();
+                }
+            }
+            // block is exhausted - only one thread reserves the next one
+            synchronized (this) {
+                if (block.get() == current) {
+                    IntegralDataTypeHolder value = callback.getNextValue();
+                    long lo = value.makeValue().longValue();
+                    lastSourceValue = value;
+                    block.set(new Block(lo, lo + blockSize));
+                }
+            }
+        }
+    }
+
+    @Override
+    public IntegralDataTypeHolder getLastSourceValue() {
+
+        return lastSourceValue;
+    }
+
+    @Override
+    public int getIncrementSize() {
+
+        return blockSize;
+    }
+
+    @Override
+    public boolean applyIncrementSizeToSourceValues() {
+
+        // sequence is incremented by block size
+        return true;
+    }
+
+    /**
+     * Range of ids from lo (inclusive) to hi (exclusive).
+     */
+    private static final class Block {
+
+        static final long EXHAUSTED = Long.MIN_VALUE;
+
+        private final AtomicLong next;
+
+        private final long hi;
+
+        Block(long lo, long hi) {
+
+            this.next = new AtomicLong(lo);
+            this.hi = hi;
+        }
+
+        long next() {
+
+            long id = next.getAndIncrement();
+            return id < hi ? id : EXHAUSTED;
+        }
+    }
+}
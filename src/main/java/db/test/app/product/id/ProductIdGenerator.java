@@ -0,0 +1,40 @@
+package db.test.app.product.id;
+
+import java.util.Properties;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+/**
+ * Sequence based id generator reserving blocks of ids (see {@link BlockIdOptimizer}).
+ * Block size can be configured in application.properties using
+ * spring.jpa.properties.product.id.block-size property.
+ */
+public class ProductIdGenerator extends SequenceStyleGenerator {
+
+    /**
+     * Setting containing number of ids reserved in one database round trip.
+     */
+    public static final String BLOCK_SIZE_SETTING = "product.id.block-size";
+
+    /**
+     * Default number of ids reserved in one database round trip.
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 100;
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry)
+            throws MappingException {
+
+        int blockSize = ConfigurationHelper.getInt(BLOCK_SIZE_SETTING,
+                serviceRegistry.getService(ConfigurationService.class).getSettings(),
+                DEFAULT_BLOCK_SIZE);
+        params.setProperty(INCREMENT_PARAM, String.valueOf(blockSize));
+        params.setProperty(OPT_PARAM, BlockIdOptimizer.class.getName());
+        super.configure(type, params, serviceRegistry);
+    }
+}
@@ -0,0 +1,106 @@
+package db.test.app.product.inmemory;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.SmartTransactionObject;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Transaction manager used instead of JPA one by inmemory profile (there is no database).
+ * Transactions don't have any resource, they only demarcate the boundaries for transaction
+ * synchronizations, so committed changes are published after commit and changes of rolled back
+ * transactions are undone by {@link db.test.app.product.InMemoryProductRepository}.
+ */
+@Component
+@Profile("inmemory")
+public class InMemoryTransactionManager extends AbstractPlatformTransactionManager {
+
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected Object doGetTransaction() {
+
+        InMemoryTransaction transaction = new InMemoryTransaction();
+        transaction.rollbackOnly = (AtomicBoolean) TransactionSynchronizationManager.getResource(this);
+        return transaction;
+    }
+
+    @Override
+    protected boolean isExistingTransaction(Object transaction) {
+
+        return ((InMemoryTransaction) transaction).rollbackOnly != null;
+    }
+
+    @Override
+    protected void doBegin(Object transaction, TransactionDefinition definition) {
+
+        AtomicBoolean rollbackOnly = new AtomicBoolean();
+        ((InMemoryTransaction) transaction).rollbackOnly = rollbackOnly;
+        TransactionSynchronizationManager.bindResource(this, rollbackOnly);
+    }
+
+    @Override
+    protected Object doSuspend(Object transaction) {
+
+        ((InMemoryTransaction) transaction).rollbackOnly = null;
+        return TransactionSynchronizationManager.unbindResource(this);
+    }
+
+    @Override
+    protected void doResume(Object transaction, Object suspendedResources) {
+
+        TransactionSynchronizationManager.bindResource(this, suspendedResources);
+    }
+
+    @Override
+    protected void doCommit(DefaultTransactionStatus status) {
+
+        // changes are already applied
+    }
+
+    @Override
+    protected void doRollback(DefaultTransactionStatus status) {
+
+        // changes are undone by synchronizations
+    }
+
+    @Override
+    protected void doSetRollbackOnly(DefaultTransactionStatus status) {
+
+        ((InMemoryTransaction) status.getTransaction()).rollbackOnly.set(true);
+    }
+
+    @Override
+    protected void doCleanupAfterCompletion(Object transaction) {
+
+        TransactionSynchronizationManager.unbindResourceIfPossible(this);
+    }
+
+    /**
+     * Transaction whose rollback-only flag is shared with participating transactions.
+     */
+    private static class InMemoryTransaction implements SmartTransactionObject {
+
+        /**
+         * Flag of the active transaction, null if there is none.
+         */
+        private AtomicBoolean rollbackOnly;
+
+        @Override
+        public boolean isRollbackOnly() {
+
+            return rollbackOnly != null && rollbackOnly.get();
+        }
+
+        @Override
+        public void flush() {
+
+            // nothing to flush
+        }
+    }
+}
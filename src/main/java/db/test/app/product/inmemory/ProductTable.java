@@ -0,0 +1,433 @@
+package db.test.app.product.inmemory;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Concurrent in-memory table of product rows keyed by positive int id.
+ * Rows are stored in columns (primitive arrays) of open-addressing hash tables with linear probing,
+ * so there is no boxing and no object per row except the name.
+ * Table is split into segments with their own {@link StampedLock}, writers of different segments
+ * don't contend and lookup by id uses optimistic read without locking.
+ * Dates are stored as epoch days, {@link #NULL_DAY} represents missing date.
+ * Each row also keeps change sequence of its last modification.
+ */
+public class ProductTable {
+
+    /**
+     * Epoch day representing missing date.
+     */
+    public static final int NULL_DAY = Integer.MIN_VALUE;
+
+    /**
+     * Version matching any version of the row.
+     */
+    public static final int ANY_VERSION = -1;
+
+    private static final int SEGMENT_BITS = 4;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * Receives values of one row.
+     */
+    @FunctionalInterface
+    public interface RowMapper<T> {
+
+        T map(int id, String name, double price, int creationDay, int version, boolean deleted,
+                long lastModified, long changeSequence);
+    }
+
+    private final Segment[] segments = new Segment[1 << SEGMENT_BITS];
+
+    public ProductTable() {
+
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    /**
+     * Gets row with given id mapped by given mapper or null if there is no such row.
+     */
+    public <T> T get(int id, RowMapper<T> mapper) {
+
+        int hash = hash(id);
+        Segment segment = segment(hash);
+        long stamp = segment.lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                T row = segment.get(id, hash, mapper);
+                if (segment.lock.validate(stamp)) {
+                    return row;
+                }
+            } catch (RuntimeException e) {
+                // inconsistent read of concurrently modified segment, read again under lock
+            }
+        }
+        stamp = segment.lock.readLock();
+        try {
+            return segment.get(id, hash, mapper);
+        } finally {
+            segment.lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Inserts new row or replaces existing row with given id.
+     */
+    public void put(int id, String name, double price, int creationDay, int version,
+            boolean deleted, long lastModified, long changeSequence) {
+
+        int hash = hash(id);
+        Segment segment = segment(hash);
+        long stamp = segment.lock.writeLock();
+        try {
+            int index = segment.insertionIndex(id, hash);
+            segment.set(index, id, name, price, creationDay, version, deleted, lastModified,
+                    changeSequence);
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Replaces values of existing row with given id if its version matches
+     * and increments its version.
+     * Returns new version or -1 if there is no such row or its version didn't match.
+     */
+    public int replace(int id, String name, double price, int creationDay, boolean deleted,
+            int expectedVersion, long lastModified, long changeSequence) {
+
+        int hash = hash(id);
+        Segment segment = segment(hash);
+        long stamp = segment.lock.writeLock();
+        try {
+            int index = segment.indexOf(id, hash);
+            if (index < 0 || segment.versions[index] != expectedVersion) {
+                return -1;
+            }
+            segment.set(index, id, name, price, creationDay, expectedVersion + 1, deleted,
+                    lastModified, changeSequence);
+            return expectedVersion + 1;
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Updates name and price of non-deleted row with given id and version (or {@link #ANY_VERSION})
+     * and increments its version.
+     * Returns number of updated rows.
+     */
+    public int update(int id, String name, double price, int expectedVersion, long lastModified,
+            long changeSequence) {
+
+        int hash = hash(id);
+        Segment segment = segment(hash);
+        long stamp = segment.lock.writeLock();
+        try {
+            int index = segment.indexOf(id, hash);
+            if (index < 0 || !segment.matches(index, expectedVersion)) {
+                return 0;
+            }
+            segment.names[index] = name;
+            segment.prices[index] = price;
+            segment.versions[index]++;
+            segment.lastModified[index] = lastModified;
+            segment.changeSequences[index] = changeSequence;
+            return 1;
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Marks non-deleted row with given id and version (or {@link #ANY_VERSION}) as deleted
+     * and increments its version.
+     * Returns number of deleted rows.
+     */
+    public int softDelete(int id, int expectedVersion, long lastModified, long changeSequence) {
+
+        int hash = hash(id);
+        Segment segment = segment(hash);
+        long stamp = segment.lock.writeLock();
+        try {
+            int index = segment.indexOf(id, hash);
+            if (index < 0 || !segment.matches(index, expectedVersion)) {
+                return 0;
+            }
+            segment.deleted[index] = true;
+            segment.versions[index]++;
+            segment.lastModified[index] = lastModified;
+            segment.changeSequences[index] = changeSequence;
+            return 1;
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Marks deleted row with given id as non-deleted and increments its version.
+     * Returns number of restored rows.
+     */
+    public int restore(int id, long lastModified, long changeSequence) {
+
+        int hash = hash(id);
+        Segment segment = segment(hash);
+        long stamp = segment.lock.writeLock();
+        try {
+            int index = segment.indexOf(id, hash);
+            if (index < 0 || !segment.deleted[index]) {
+                return 0;
+            }
+            segment.deleted[index] = false;
+            segment.versions[index]++;
+            segment.lastModified[index] = lastModified;
+            segment.changeSequences[index] = changeSequence;
+            return 1;
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Removes row with given id.
+     * Returns true if the row existed.
+     */
+    public boolean remove(int id) {
+
+        int hash = hash(id);
+        Segment segment = segment(hash);
+        long stamp = segment.lock.writeLock();
+        try {
+            return segment.remove(id, hash);
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Removes all rows.
+     */
+    public void clear() {
+
+        for (Segment segment : segments) {
+            long stamp = segment.lock.writeLock();
+            try {
+                segment.init(INITIAL_CAPACITY);
+            } finally {
+                segment.lock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    /**
+     * Gets number of rows.
+     */
+    public int size() {
+
+        int size = 0;
+        for (Segment segment : segments) {
+            long stamp = segment.lock.readLock();
+            try {
+                size += segment.size;
+            } finally {
+                segment.lock.unlockRead(stamp);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Passes all rows to given mapper (segment by segment, in no particular order).
+     */
+    public void forEach(RowMapper<?> mapper) {
+
+        for (Segment segment : segments) {
+            long stamp = segment.lock.readLock();
+            try {
+                for (int i = 0; i < segment.ids.length; i++) {
+                    if (segment.ids[i] != 0) {
+                        segment.map(i, mapper);
+                    }
+                }
+            } finally {
+                segment.lock.unlockRead(stamp);
+            }
+        }
+    }
+
+    private Segment segment(int hash) {
+
+        return segments[hash >>> (32 - SEGMENT_BITS)];
+    }
+
+    private static int hash(int id) {
+
+        // Fibonacci hashing spreads consecutive ids, high bits select segment, low bits the slot
+        return id * 0x9E3779B9;
+    }
+
+    /**
+     * Open-addressing hash table of rows, guarded by its lock.
+     * Id 0 marks empty slot.
+     */
+    private static final class Segment {
+
+        private final StampedLock lock = new StampedLock();
+
+        private int[] ids;
+
+        private String[] names;
+
+        private double[] prices;
+
+        private int[] creationDays;
+
+        private int[] versions;
+
+        private boolean[] deleted;
+
+        private long[] lastModified;
+
+        private long[] changeSequences;
+
+        private int size;
+
+        Segment() {
+
+            init(INITIAL_CAPACITY);
+        }
+
+        void init(int capacity) {
+
+            ids = new int[capacity];
+            names = new String[capacity];
+            prices = new double[capacity];
+            creationDays = new int[capacity];
+            versions = new int[capacity];
+            deleted = new boolean[capacity];
+            lastModified = new long[capacity];
+            changeSequences = new long[capacity];
+            size = 0;
+        }
+
+        <T> T get(int id, int hash, RowMapper<T> mapper) {
+
+            int index = indexOf(id, hash);
+            return index >= 0 ? map(index, mapper) : null;
+        }
+
+        <T> T map(int index, RowMapper<T> mapper) {
+
+            return mapper.map(ids[index], names[index], prices[index], creationDays[index],
+                    versions[index], deleted[index], lastModified[index], changeSequences[index]);
+        }
+
+        boolean matches(int index, int expectedVersion) {
+
+            return !deleted[index]
+                    && (expectedVersion == ANY_VERSION || versions[index] == expectedVersion);
+        }
+
+        int indexOf(int id, int hash) {
+
+            int[] keys = ids;
+            int mask = keys.length - 1;
+            // bounded so that inconsistent optimistic read can't loop forever
+            for (int i = hash & mask, probes = 0; probes < keys.length; i = (i + 1) & mask, probes++) {
+                if (keys[i] == id) {
+                    return i;
+                }
+                if (keys[i] == 0) {
+                    return -1;
+                }
+            }
+            return -1;
+        }
+
+        int insertionIndex(int id, int hash) {
+
+            int index = indexOf(id, hash);
+            if (index >= 0) {
+                return index;
+            }
+            if ((size + 1) * 4 > ids.length * 3) {
+                resize();
+            }
+            int mask = ids.length - 1;
+            int i = hash & mask;
+            while (ids[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            size++;
+            return i;
+        }
+
+        void set(int index, int id, String name, double price, int creationDay, int version,
+                boolean isDeleted, long modified, long changeSequence) {
+
+            ids[index] = id;
+            names[index] = name;
+            prices[index] = price;
+            creationDays[index] = creationDay;
+            versions[index] = version;
+            deleted[index] = isDeleted;
+            lastModified[index] = modified;
+            changeSequences[index] = changeSequence;
+        }
+
+        boolean remove(int id, int hash) {
+
+            int index = indexOf(id, hash);
+            if (index < 0) {
+                return false;
+            }
+            // backward shift deletion keeps probe sequences without tombstones
+            int mask = ids.length - 1;
+            int hole = index;
+            for (int i = (hole + 1) & mask; ids[i] != 0; i = (i + 1) & mask) {
+                int home = hash(ids[i]) & mask;
+                if (((i - home) & mask) >= ((i - hole) & mask)) {
+                    move(i, hole);
+                    hole = i;
+                }
+            }
+            ids[hole] = 0;
+            names[hole] = null;
+            size--;
+            return true;
+        }
+
+        private void move(int from, int to) {
+
+            set(to, ids[from], names[from], prices[from], creationDays[from], versions[from],
+                    deleted[from], lastModified[from], changeSequences[from]);
+        }
+
+        private void resize() {
+
+            int[] oldIds = ids;
+            String[] oldNames = names;
+            double[] oldPrices = prices;
+            int[] oldCreationDays = creationDays;
+            int[] oldVersions = versions;
+            boolean[] oldDeleted = deleted;
+            long[] oldLastModified = lastModified;
+            long[] oldChangeSequences = changeSequences;
+            init(oldIds.length * 2);
+            int mask = ids.length - 1;
+            for (int j = 0; j < oldIds.length; j++) {
+                if (oldIds[j] != 0) {
+                    int i = hash(oldIds[j]) & mask;
+                    while (ids[i] != 0) {
+                        i = (i + 1) & mask;
+                    }
+                    set(i, oldIds[j], oldNames[j], oldPrices[j], oldCreationDays[j],
+                            oldVersions[j], oldDeleted[j], oldLastModified[j], oldChangeSequences[j]);
+                    size++;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package db.test.app.product.metrics;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Records timings of {@link db.test.app.product.ProductService} and
+ * {@link db.test.app.product.ProductStore} methods (except persistence context helpers detach
+ * and flushAndClear, which don't access the database) and counts exceptions thrown by the
+ * service and by REST controllers (e.g. validation of request parameters).
+ * Exception is counted once: during web request by the controller, otherwise by the service.
+ * Timings of REST endpoints are recorded by Spring Boot (http.server.requests).
+ */
+@Aspect
+@Component
+public class ProductMetricsAspect {
+
+    /**
+     * Timer of service methods.
+     */
+    public static final String SERVICE_TIMER = "product.service";
+
+    /**
+     * Timer of repository methods.
+     */
+    public static final String REPOSITORY_TIMER = "product.repository";
+
+    /**
+     * Counter of exceptions thrown by service or controllers.
+     */
+    public static final String EXCEPTION_COUNTER = "product.exceptions";
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Around("execution(public * db.test.app.product.ProductService.*(..))")
+    public Object timeService(ProceedingJoinPoint joinPoint) throws Throwable {
+
+        try {
+            return time(SERVICE_TIMER, joinPoint);
+        } catch (RuntimeException e) {
+            // exceptions thrown during web request are counted by the controller
+            if (RequestContextHolder.getRequestAttributes() == null) {
+                count(e);
+            }
+            throw e;
+        }
+    }
+
+    @Around("execution(public * db.test.app.product..*(..)) "
+            + "&& @within(org.springframework.web.bind.annotation.RestController)")
+    public Object countControllerExceptions(ProceedingJoinPoint joinPoint) throws Throwable {
+
+        try {
+            return joinPoint.proceed();
+        } catch (RuntimeException e) {
+            count(e);
+            throw e;
+        }
+    }
+
+    @Around("execution(public * *(..)) && target(db.test.app.product.ProductStore) "
+            + "&& !execution(* detach(..)) && !execution(* flushAndClear(..))")
+    public Object timeRepository(ProceedingJoinPoint joinPoint) throws Throwable {
+
+        return time(REPOSITORY_TIMER, joinPoint);
+    }
+
+    private void count(RuntimeException e) {
+
+        registry.counter(EXCEPTION_COUNTER, "exception", e.getClass().getSimpleName()).increment();
+    }
+
+    private Object time(String name, ProceedingJoinPoint joinPoint) throws Throwable {
+
+        Timer.Sample sample = Timer.start(registry);
+        String exception = "none";
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable e) {
+            exception = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            sample.stop(registry.timer(name, "method", joinPoint.getSignature().getName(),
+                    "exception", exception));
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package db.test.app.product.readmodel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+
+import db.test.app.product.PriceCursor;
+import db.test.app.product.Product;
+
+/**
+ * Immutable sequence of products ordered by id split into chunks of at most {@value #MAX_CHUNK_SIZE} products.
+ * Change of one product copies only the array of chunks and the changed chunk, not all products,
+ * many changes at once are merged with all products in one pass.
+ */
+final class ProductChunks {
+
+    static final int MAX_CHUNK_SIZE = 1024;
+
+    static final ProductChunks EMPTY = new ProductChunks(new Product[0][], 0);
+
+    private static final Comparator<Product> PRICE_ORDER = Comparator
+            .comparingDouble(Product::getPrice).thenComparingInt(Product::getId);
+
+    /**
+     * Non-empty chunks, products are ordered by id within and across chunks.
+     */
+    private final Product[][] chunks;
+
+    private final int size;
+
+    private ProductChunks(Product[][] chunks, int size) {
+
+        this.chunks = chunks;
+        this.size = size;
+    }
+
+    /**
+     * Creates chunks from given products ordered by id.
+     * Chunks are filled to half, so products can be added without splitting them at once.
+     */
+    static ProductChunks of(List<Product> products) {
+
+        int chunkSize = MAX_CHUNK_SIZE / 2;
+        Product[][] chunks = new Product[(products.size() + chunkSize - 1) / chunkSize][];
+        for (int i = 0; i < chunks.length; i++) {
+            chunks[i] = products.subList(i * chunkSize, Math.min((i + 1) * chunkSize, products.size()))
+                    .toArray(new Product[0]);
+        }
+        return new ProductChunks(chunks, products.size());
+    }
+
+    /**
+     * Gets number of products.
+     */
+    int size() {
+
+        return size;
+    }
+
+    /**
+     * Gets product with given id or null if there is no such product.
+     */
+    Product get(int id) {
+
+        int chunk = chunkIndex(id);
+        if (chunk < 0) {
+            return null;
+        }
+        int index = indexOf(chunks[chunk], id);
+        return index >= 0 ? chunks[chunk][index] : null;
+    }
+
+    /**
+     * Gets at most limit products with id greater than given cursor.
+     */
+    List<Product> page(int after, int limit) {
+
+        List<Product> page = new ArrayList<>(Math.min(limit, size));
+        int chunk = Math.max(0, chunkIndex(after));
+        int index = chunk < chunks.length ? indexOf(chunks[chunk], after) : 0;
+        index = index >= 0 ? index + 1 : -index - 1;
+        for (; chunk < chunks.length && page.size() < limit; chunk++, index = 0) {
+            for (; index < chunks[chunk].length && page.size() < limit; index++) {
+                page.add(chunks[chunk][index]);
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Gets at most limit products with price in given range (inclusive) and id greater than given cursor.
+     * Products are scanned in order of ids until the page is filled.
+     */
+    List<Product> priceRangePage(double minPrice, double maxPrice, int after, int limit) {
+
+        List<Product> page = new ArrayList<>(Math.min(limit, size));
+        int chunk = Math.max(0, chunkIndex(after));
+        int index = chunk < chunks.length ? indexOf(chunks[chunk], after) : 0;
+        index = index >= 0 ? index + 1 : -index - 1;
+        for (; chunk < chunks.length && page.size() < limit; chunk++, index = 0) {
+            for (; index < chunks[chunk].length && page.size() < limit; index++) {
+                Product product = chunks[chunk][index];
+                if (product.getPrice() >= minPrice && product.getPrice() <= maxPrice) {
+                    page.add(product);
+                }
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Gets at most limit products with price in given range (inclusive) that follow given cursor
+     * ordered by price and id.
+     * All products are scanned once and only the first limit products are kept in a bounded heap.
+     */
+    List<Product> priceRangePageByPrice(double minPrice, double maxPrice, PriceCursor after, int limit) {
+
+        // the last product of the page is on top
+        PriorityQueue<Product> heap = new PriorityQueue<>(Math.min(limit, Math.max(1, size)) + 1,
+                PRICE_ORDER.reversed());
+        for (Product[] chunk : chunks) {
+            for (Product product : chunk) {
+                double price = product.getPrice();
+                if (price < minPrice || price > maxPrice || price < after.getPrice()
+                        || price == after.getPrice() && product.getId() <= after.getId()) {
+                    continue;
+                }
+                if (heap.size() < limit) {
+                    heap.add(product);
+                } else if (PRICE_ORDER.compare(product, heap.peek()) < 0) {
+                    heap.poll();
+                    heap.add(product);
+                }
+            }
+        }
+        List<Product> page = new ArrayList<>(heap);
+        page.sort(PRICE_ORDER);
+        return page;
+    }
+
+    /**
+     * Gets all products as a new list.
+     */
+    List<Product> toList() {
+
+        List<Product> products = new ArrayList<>(size);
+        for (Product[] chunk : chunks) {
+            products.addAll(Arrays.asList(chunk));
+        }
+        return products;
+    }
+
+    /**
+     * Creates chunks with given changes (product by id, null value removes the product).
+     * Few changes are applied one by one copying only changed chunks, otherwise products are merged in one pass.
+     */
+    ProductChunks with(NavigableMap<Integer, Product> changes) {
+
+        if ((long) changes.size() * (chunks.length + MAX_CHUNK_SIZE) >= size) {
+            return merge(changes);
+        }
+        ProductChunks result = this;
+        for (Map.Entry<Integer, Product> change : changes.entrySet()) {
+            result = change.getValue() != null ? result.with(change.getValue())
+                : result.without(change.getKey());
+        }
+        return result;
+    }
+
+    /**
+     * Creates chunks with given product added or replacing product with the same id.
+     */
+    ProductChunks with(Product product) {
+
+        if (chunks.length == 0) {
+            return new ProductChunks(new Product[][] { { product } }, 1);
+        }
+        int chunk = Math.max(0, chunkIndex(product.getId()));
+        Product[] products = chunks[chunk];
+        int index = indexOf(products, product.getId());
+        if (index >= 0) {
+            Product[] newProducts = products.clone();
+            newProducts[index] = product;
+            return replace(chunk, size, newProducts);
+        }
+        index = -index - 1;
+        Product[] newProducts = new Product[products.length + 1];
+        System.arraycopy(products, 0, newProducts, 0, index);
+        newProducts[index] = product;
+        System.arraycopy(products, index, newProducts, index + 1, products.length - index);
+        if (newProducts.length <= MAX_CHUNK_SIZE) {
+            return replace(chunk, size + 1, newProducts);
+        }
+        // split full chunk into halves
+        int half = newProducts.length / 2;
+        return replace(chunk, size + 1, Arrays.copyOfRange(newProducts, 0, half),
+                Arrays.copyOfRange(newProducts, half, newProducts.length));
+    }
+
+    /**
+     * Creates chunks without product with given id.
+     */
+    ProductChunks without(int id) {
+
+        int chunk = chunkIndex(id);
+        int index = chunk >= 0 ? indexOf(chunks[chunk], id) : -1;
+        if (index < 0) {
+            return this;
+        }
+        Product[] products = chunks[chunk];
+        if (products.length == 1) {
+            return replace(chunk, size - 1);
+        }
+        Product[] newProducts = new Product[products.length - 1];
+        System.arraycopy(products, 0, newProducts, 0, index);
+        System.arraycopy(products, index + 1, newProducts, index, newProducts.length - index);
+        return replace(chunk, size - 1, newProducts);
+    }
+
+    private ProductChunks merge(NavigableMap<Integer, Product> changes) {
+
+        List<Product> products = new ArrayList<>(size + changes.size());
+        Iterator<Map.Entry<Integer, Product>> changeIterator = changes.entrySet().iterator();
+        Map.Entry<Integer, Product> change = changeIterator.hasNext() ? changeIterator.next() : null;
+        for (Product[] chunk : chunks) {
+            for (Product product : chunk) {
+                while (change != null && change.getKey() <= product.getId()) {
+                    if (change.getValue() != null) {
+                        products.add(change.getValue());
+                    }
+                    boolean replaced = change.getKey() == product.getId();
+                    change = changeIterator.hasNext() ? changeIterator.next() : null;
+                    if (replaced) {
+                        product = null;
+                        break;
+                    }
+                }
+                if (product != null) {
+                    products.add(product);
+                }
+            }
+        }
+        for (; change != null; change = changeIterator.hasNext() ? changeIterator.next() : null) {
+            if (change.getValue() != null) {
+                products.add(change.getValue());
+            }
+        }
+        return of(products);
+    }
+
+    /**
+     * Replaces chunk with given index by given chunks (none to remove it).
+     */
+    private ProductChunks replace(int chunk, int newSize, Product[]... newChunks) {
+
+        Product[][] result = new Product[chunks.length - 1 + newChunks.length][];
+        System.arraycopy(chunks, 0, result, 0, chunk);
+        System.arraycopy(newChunks, 0, result, chunk, newChunks.length);
+        System.arraycopy(chunks, chunk + 1, result, chunk + newChunks.length,
+                chunks.length - chunk - 1);
+        return new ProductChunks(result, newSize);
+    }
+
+    /**
+     * Gets index of the last chunk starting with id less than or equal to given id (-1 if there is none).
+     */
+    private int chunkIndex(int id) {
+
+        int low = 0;
+        int high = chunks.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (chunks[middle][0].getId() <= id) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low - 1;
+    }
+
+    /**
+     * Finds product with given id in the chunk (binary search), returns (-(insertion point) - 1) if it is missing.
+     */
+    private static int indexOf(Product[] products, int id) {
+
+        int low = 0;
+        int high = products.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int middleId = products[middle].getId();
+            if (middleId < id) {
+                low = middle + 1;
+            } else if (middleId > id) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+}
@@ -0,0 +1,152 @@
+package db.test.app.product.readmodel;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import db.test.app.product.Product;
+import db.test.app.product.ProductBulkChangedEvent;
+import db.test.app.product.ProductChangedEvent;
+import db.test.app.product.ProductService;
+
+/**
+ * In-memory read model of the catalog (enabled by product.read-model.enabled).
+ * It holds immutable {@link ProductSnapshot} of all products, so reads see consistent catalog
+ * without accessing the database and without locking.
+ * Snapshot is created once the context is refreshed and replaced by a new one (copy-on-write)
+ * after each committed change, bulk changes are applied at once.
+ * New snapshot copies only changed chunks of products (see {@link ProductChunks}).
+ * Changes are still written to the database by {@link ProductService}.
+ */
+@Component
+@ConditionalOnProperty(name = "product.read-model.enabled",
+    havingValue = "true")
+public class ProductReadModel {
+
+    private volatile ProductSnapshot snapshot;
+
+    /**
+     * Versions of products deleted before the snapshot contained them, guarded by this.
+     * They prevent late change of such product from adding it again.
+     */
+    private final Map<Integer, Integer> tombstones = new HashMap<>();
+
+    @Autowired
+    private ProductService productService;
+
+    /**
+     * Creates snapshot from all non-deleted and deleted (including archived) products.
+     */
+    @EventListener(ContextRefreshedEvent.class)
+    public synchronized void load() {
+
+        List<Product> products = new ArrayList<>();
+        List<Product> deletedProducts = new ArrayList<>();
+        productService.exportProducts(false, products::add);
+        // archived products follow deleted ones
+        productService.exportProducts(true, deletedProducts::add);
+        products.sort(Comparator.comparingInt(Product::getId));
+        deletedProducts.sort(Comparator.comparingInt(Product::getId));
+        ProductSnapshot current = snapshot != null ? snapshot : ProductSnapshot.EMPTY;
+        tombstones.clear();
+        snapshot = new ProductSnapshot(current.getVersion() + 1, ProductChunks.of(products),
+                ProductChunks.of(deletedProducts));
+    }
+
+    /**
+     * Gets the current snapshot or null if it wasn't created yet.
+     */
+    public ProductSnapshot getSnapshot() {
+
+        return snapshot;
+    }
+
+    /**
+     * Publishes new snapshot with the change once it is committed.
+     */
+    @Order(ProductChangedEvent.UPDATE_ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+
+        apply(Collections.singletonList(event));
+    }
+
+    /**
+     * Publishes one new snapshot with all changes of the bulk operation once they are committed.
+     */
+    @Order(ProductChangedEvent.UPDATE_ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductsChanged(ProductBulkChangedEvent event) {
+
+        apply(event.getChanges());
+    }
+
+    /**
+     * Creates new snapshot from the current one with given changes.
+     * Change is applied only if its version is newer than the version of the product in the snapshot
+     * (or of its tombstone), so changes of concurrent transactions published in different order
+     * don't overwrite newer state. Deleted product not found in the snapshot is remembered as tombstone.
+     * Changes published before the snapshot is created are ignored, it reads them from database.
+     */
+    private synchronized void apply(List<ProductChangedEvent> changes) {
+
+        ProductSnapshot current = snapshot;
+        if (current == null) {
+            return;
+        }
+        // changed products by id (null value for removed product) applied to the snapshot at once
+        TreeMap<Integer, Product> products = new TreeMap<>();
+        TreeMap<Integer, Product> deletedProducts = new TreeMap<>();
+        for (ProductChangedEvent change : changes) {
+            int id = change.getId();
+            Product product = find(current, false, products, id);
+            if (product == null) {
+                product = find(current, true, deletedProducts, id);
+            }
+            Integer tombstone = tombstones.get(id);
+            int version = product != null ? product.getVersion()
+                : tombstone != null ? tombstone : ProductChangedEvent.UNKNOWN_VERSION;
+            int changeVersion = change.getVersion() != ProductChangedEvent.UNKNOWN_VERSION
+                ? change.getVersion() : version + 1;
+            if (changeVersion <= version) {
+                // stale change can still provide attributes of product known only by its tombstone
+                if (product == null && change.getProduct() != null) {
+                    deletedProducts.put(id, change.getProduct().toDeleted(version));
+                    tombstones.remove(id);
+                }
+            } else if (change.getType() != ProductChangedEvent.Type.DELETED) {
+                deletedProducts.put(id, null);
+                tombstones.remove(id);
+                products.put(id, change.getProduct());
+            } else if (product != null) {
+                products.put(id, null);
+                deletedProducts.put(id, product.toDeleted(changeVersion));
+            } else {
+                tombstones.put(id, changeVersion);
+            }
+        }
+        snapshot = new ProductSnapshot(current.getVersion() + 1, current.view(false).with(products),
+                current.view(true).with(deletedProducts));
+    }
+
+    /**
+     * Finds product with given id among pending changes or in the snapshot.
+     */
+    private static Product find(ProductSnapshot snapshot, boolean deleted,
+            Map<Integer, Product> changes, int id) {
+
+        return changes.containsKey(id) ? changes.get(id) : snapshot.view(deleted).get(id);
+    }
+}
@@ -0,0 +1,114 @@
+package db.test.app.product.readmodel;
+
+import java.util.Collections;
+import java.util.List;
+
+import db.test.app.product.PriceCursor;
+import db.test.app.product.Product;
+
+/**
+ * Immutable snapshot of all products split into non-deleted and deleted products ordered by id.
+ * New snapshot is created for each committed change (see {@link ProductReadModel}),
+ * so snapshot can be read by any number of threads without locking.
+ * Products are kept in {@link ProductChunks}, so new snapshot shares unchanged chunks with the previous one.
+ */
+public final class ProductSnapshot {
+
+    static final ProductSnapshot EMPTY = new ProductSnapshot(0, ProductChunks.EMPTY,
+            ProductChunks.EMPTY);
+
+    private final long version;
+
+    private final ProductChunks products;
+
+    private final ProductChunks deletedProducts;
+
+    // lists of all products are created on first use (concurrent creation is harmless)
+    private volatile List<Product> productList;
+
+    private volatile List<Product> deletedProductList;
+
+    ProductSnapshot(long version, ProductChunks products, ProductChunks deletedProducts) {
+
+        this.version = version;
+        this.products = products;
+        this.deletedProducts = deletedProducts;
+    }
+
+    /**
+     * Gets the version (incremented by each change).
+     */
+    public long getVersion() {
+
+        return version;
+    }
+
+    /**
+     * Gets non-deleted product with given id or null if there is no such product.
+     */
+    public Product getProduct(int id) {
+
+        return products.get(id);
+    }
+
+    /**
+     * Gets all non-deleted or deleted products ordered by id (unmodifiable list).
+     */
+    public List<Product> getProducts(boolean deleted) {
+
+        if (deleted) {
+            List<Product> list = deletedProductList;
+            if (list == null) {
+                deletedProductList = list = Collections.unmodifiableList(deletedProducts.toList());
+            }
+            return list;
+        }
+        List<Product> list = productList;
+        if (list == null) {
+            productList = list = Collections.unmodifiableList(products.toList());
+        }
+        return list;
+    }
+
+    /**
+     * Gets at most limit non-deleted or deleted products with id greater than given cursor ordered by id.
+     */
+    public List<Product> getProducts(boolean deleted, int after, int limit) {
+
+        return view(deleted).page(after, limit);
+    }
+
+    /**
+     * Gets at most limit non-deleted or deleted products with price in given range (inclusive)
+     * and id greater than given cursor ordered by id.
+     */
+    public List<Product> getProducts(boolean deleted, double minPrice, double maxPrice, int after,
+            int limit) {
+
+        return view(deleted).priceRangePage(minPrice, maxPrice, after, limit);
+    }
+
+    /**
+     * Gets at most limit non-deleted or deleted products with price in given range (inclusive)
+     * that follow given cursor ordered by price and id.
+     * Snapshot is ordered by id, so all its products are scanned.
+     */
+    public List<Product> getProducts(boolean deleted, double minPrice, double maxPrice, PriceCursor after,
+            int limit) {
+
+        return view(deleted).priceRangePageByPrice(minPrice, maxPrice, after, limit);
+    }
+
+    /**
+     * Gets number of non-deleted or deleted products.
+     */
+    public int size(boolean deleted) {
+
+        return view(deleted).size();
+    }
+
+    ProductChunks view(boolean deleted) {
+
+        return deleted ? deletedProducts : products;
+    }
+}
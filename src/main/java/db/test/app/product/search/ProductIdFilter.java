@@ -0,0 +1,142 @@
+package db.test.app.product.search;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import db.test.app.product.ProductBulkChangedEvent;
+import db.test.app.product.ProductChangedEvent;
+import db.test.app.product.ProductService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * In-memory set of ids of products (enabled by product.id-filter.enabled),
+ * so lookups of ids that don't exist are answered without accessing the database.
+ * Ids are kept in a bitset split into pages of {@value #PAGE_BITS} bits allocated on first use,
+ * bits are set and cleared atomically, so lookups don't lock.
+ * Filter is filled with ids of non-deleted products once the context is refreshed and ids of created
+ * products are added by {@link ProductChangedEvent}s. Ids of deleted products are kept: listeners of
+ * concurrent transactions may run in different order than the transactions committed, so late event
+ * of deletion could otherwise remove id of product that was restored meanwhile. Lookups of products
+ * deleted after the filter was filled therefore access the database.
+ * Until it is filled, all ids are reported as possibly existing.
+ * Number of rejected lookups is exposed as product.id-filter.rejected metric.
+ */
+@Component
+@ConditionalOnProperty(name = "product.id-filter.enabled",
+    havingValue = "true")
+public class ProductIdFilter implements MeterBinder {
+
+    static final int PAGE_BITS = 1 << 16;
+
+    private static final int PAGE_WORDS = PAGE_BITS / Long.SIZE;
+
+    private final AtomicReferenceArray<AtomicLongArray> pages = new AtomicReferenceArray<>(
+            (int) ((1L << Integer.SIZE - 1) / PAGE_BITS));
+
+    private final LongAdder rejected = new LongAdder();
+
+    private volatile boolean loaded;
+
+    @Autowired
+    private ProductService productService;
+
+    /**
+     * Fills the filter with ids of all non-deleted products.
+     * Ids of products changed concurrently may be added although they were deleted meanwhile,
+     * which only makes lookups of them access the database.
+     */
+    @EventListener(ContextRefreshedEvent.class)
+    public void load() {
+
+        productService.exportProducts(false, product -> add(product.getId()));
+        loaded = true;
+    }
+
+    /**
+     * Checks whether non-deleted product with given id may exist.
+     * If false is returned, product certainly doesn't exist (or is deleted) and the lookup is counted as rejected.
+     */
+    public boolean mightContain(int id) {
+
+        if (!loaded) {
+            return true;
+        }
+        AtomicLongArray page = id >= 0 ? pages.get(id / PAGE_BITS) : null;
+        boolean contains = page != null
+                && (page.get(id % PAGE_BITS / Long.SIZE) & 1L << id) != 0;
+        if (!contains) {
+            rejected.increment();
+        }
+        return contains;
+    }
+
+    /**
+     * Updates the filter once the change is committed, ids of deleted products are not removed.
+     */
+    @Order(ProductChangedEvent.UPDATE_ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+
+        if (event.getType() != ProductChangedEvent.Type.DELETED) {
+            add(event.getId());
+        }
+    }
+
+    /**
+     * Updates the filter with all changes of the bulk operation once they are committed.
+     */
+    @Order(ProductChangedEvent.UPDATE_ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductsChanged(ProductBulkChangedEvent event) {
+
+        event.getChanges().forEach(this::onProductChanged);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+
+        FunctionCounter.builder("product.id-filter.rejected", rejected, LongAdder::sum)
+                .register(registry);
+    }
+
+    /**
+     * Gets number of lookups rejected by the filter.
+     */
+    public long getRejectedCount() {
+
+        return rejected.sum();
+    }
+
+    /**
+     * Adds product with given id.
+     */
+    void add(int id) {
+
+        if (id < 0) {
+            return;
+        }
+        int index = id / PAGE_BITS;
+        AtomicLongArray page = pages.get(index);
+        if (page == null) {
+            pages.compareAndSet(index, null, new AtomicLongArray(PAGE_WORDS));
+            page = pages.get(index);
+        }
+        int word = id % PAGE_BITS / Long.SIZE;
+        long mask = 1L << id;
+        long bits;
+        do {
+            bits = page.get(word);
+        } while ((bits & mask) == 0 && !page.compareAndSet(word, bits, bits | mask));
+    }
+}
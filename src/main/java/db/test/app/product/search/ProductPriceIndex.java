@@ -0,0 +1,490 @@
+package db.test.app.product.search;
+
+import java.util.Arrays;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import db.test.app.product.PriceAggregate;
+import db.test.app.product.PriceCursor;
+import db.test.app.product.ProductBulkChangedEvent;
+import db.test.app.product.ProductChangedEvent;
+import db.test.app.product.ProductService;
+
+/**
+ * In-memory index of prices of non-deleted products (enabled by product.price-index.enabled).
+ * Prices and ids are kept in pairs of arrays sorted by price and id split into chunks of at most
+ * {@value #MAX_CHUNK_SIZE} entries, so range and top-N queries are answered by binary search
+ * without boxing and without reading entities.
+ * Chunks are immutable and replaced on each change (copy-on-write), so queries don't lock
+ * and a change copies only the changed chunk and the array of chunks.
+ * Each instance of chunks also carries aggregate of the prices (count, minimum, maximum and sum
+ * with compensated summation), see {@link #getAggregate()}.
+ * Index is built once the context is refreshed and kept up to date by {@link ProductChangedEvent}s.
+ * Change is applied only if its version is newer than the last applied one (deleted products are
+ * kept as tombstones), so changes of concurrent transactions published in different order
+ * don't overwrite newer state (see {@link ProductVersions}).
+ */
+@Component
+@ConditionalOnProperty(name = "product.price-index.enabled",
+    havingValue = "true")
+public class ProductPriceIndex {
+
+    static final int MAX_CHUNK_SIZE = 1024;
+
+    /**
+     * Order of the listener loading the index, it runs before {@link db.test.app.product.stats.ProductStatsCollector}
+     * verifies it.
+     */
+    public static final int ORDER = Ordered.LOWEST_PRECEDENCE - 1;
+
+    private static final Entries EMPTY = new Entries(new double[0], new int[0]);
+
+    private volatile Chunks chunks = new Chunks(new Entries[0], 0, 0, 0);
+
+    /**
+     * Version and price of each indexed product and versions of deleted products, guarded by this.
+     */
+    private final ProductVersions versions = new ProductVersions();
+
+    @Autowired
+    private ProductService productService;
+
+    /**
+     * Builds the index from all non-deleted products.
+     */
+    @Order(ORDER)
+    @EventListener(ContextRefreshedEvent.class)
+    public synchronized void load() {
+
+        versions.clear();
+        productService.exportProducts(false,
+                product -> versions.put(product.getId(), product.getVersion(), product.getPrice()));
+        rebuild();
+    }
+
+    /**
+     * Creates sorted arrays from current prices.
+     */
+    private void rebuild() {
+
+        double[] sortedPrices = new double[versions.size()];
+        int[] sortedIds = new int[versions.size()];
+        int[] i = { 0 };
+        versions.forEach((id, price) -> {
+            sortedIds[i[0]] = id;
+            sortedPrices[i[0]++] = price;
+        });
+        sort(sortedPrices, sortedIds);
+        double sum = 0;
+        double compensation = 0;
+        for (double price : sortedPrices) {
+            double newSum = sum + price;
+            compensation += compensation(sum, price, newSum);
+            sum = newSum;
+        }
+        // chunks are filled to half, so entries can be added without splitting them at once
+        int chunkSize = MAX_CHUNK_SIZE / 2;
+        Entries[] newChunks = new Entries[(sortedIds.length + chunkSize - 1) / chunkSize];
+        for (int chunk = 0; chunk < newChunks.length; chunk++) {
+            int from = chunk * chunkSize;
+            int to = Math.min(from + chunkSize, sortedIds.length);
+            newChunks[chunk] = new Entries(Arrays.copyOfRange(sortedPrices, from, to),
+                    Arrays.copyOfRange(sortedIds, from, to));
+        }
+        chunks = new Chunks(newChunks, sortedIds.length, sum, compensation);
+    }
+
+    /**
+     * Finds at most limit products with price in given range that follow given cursor
+     * in order by price and id.
+     */
+    public Entries find(double minPrice, double maxPrice, PriceCursor after, int limit) {
+
+        // chunks and their size are read from one instance, they are replaced concurrently
+        Chunks snapshot = chunks;
+        Entries[] current = snapshot.chunks;
+        // start after the greater of minimal price and cursor
+        double price = minPrice;
+        int id = Integer.MIN_VALUE;
+        if (compare(after.getPrice(), after.getId(), price, id) > 0) {
+            price = after.getPrice();
+            id = after.getId();
+        }
+        int chunk = chunkAfter(current, price, id, false);
+        int index = chunk < current.length ? current[chunk].indexAfter(price, id) : 0;
+        double[] prices = new double[Math.min(limit, snapshot.size)];
+        int[] ids = new int[prices.length];
+        int size = 0;
+        for (; chunk < current.length && size < limit; chunk++, index = 0) {
+            Entries entries = current[chunk];
+            for (; index < entries.size() && size < limit; index++) {
+                if (entries.prices[index] > maxPrice) {
+                    return new Entries(Arrays.copyOf(prices, size), Arrays.copyOf(ids, size));
+                }
+                prices[size] = entries.prices[index];
+                ids[size++] = entries.ids[index];
+            }
+        }
+        return new Entries(Arrays.copyOf(prices, size), Arrays.copyOf(ids, size));
+    }
+
+    /**
+     * Gets number of indexed products.
+     */
+    public int size() {
+
+        return chunks.size;
+    }
+
+    /**
+     * Gets aggregate of indexed prices (number of products, minimum, maximum and sum).
+     * All values belong to the same state of the index.
+     */
+    public PriceAggregate getAggregate() {
+
+        return chunks;
+    }
+
+    /**
+     * Updates the index once the change is committed.
+     */
+    @Order(ProductChangedEvent.UPDATE_ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onProductChanged(ProductChangedEvent event) {
+
+        int version = versions.versionOf(event);
+        if (version == ProductChangedEvent.UNKNOWN_VERSION) {
+            // stale change
+            return;
+        }
+        if (event.getType() == ProductChangedEvent.Type.DELETED) {
+            remove(event.getId(), version);
+        } else {
+            put(event.getId(), version, event.getProduct().getPrice());
+        }
+    }
+
+    /**
+     * Updates the index with all changes of the bulk operation once they are committed.
+     * Arrays are rebuilt only once instead of being copied for each change.
+     */
+    @Order(ProductChangedEvent.UPDATE_ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onProductsChanged(ProductBulkChangedEvent event) {
+
+        for (ProductChangedEvent change : event.getChanges()) {
+            int version = versions.versionOf(change);
+            if (version == ProductChangedEvent.UNKNOWN_VERSION) {
+                continue;
+            }
+            if (change.getType() == ProductChangedEvent.Type.DELETED) {
+                versions.delete(change.getId(), version);
+            } else {
+                versions.put(change.getId(), version, change.getProduct().getPrice());
+            }
+        }
+        rebuild();
+    }
+
+    /**
+     * Adds product with given price or changes its price (as the next version of the product).
+     */
+    public synchronized void put(int id, double price) {
+
+        put(id, versions.versionOf(id, ProductChangedEvent.UNKNOWN_VERSION), price);
+    }
+
+    /**
+     * Removes product with given id (as the next version of the product).
+     */
+    public synchronized void remove(int id) {
+
+        remove(id, versions.versionOf(id, ProductChangedEvent.UNKNOWN_VERSION));
+    }
+
+    private void put(int id, int version, double price) {
+
+        double previous = versions.getPrice(id);
+        versions.put(id, version, price);
+        if (previous == price) {
+            return;
+        }
+        Chunks current = chunks;
+        if (!Double.isNaN(previous)) {
+            current = current.without(previous, id);
+        }
+        chunks = current.with(price, id);
+    }
+
+    private void remove(int id, int version) {
+
+        double previous = versions.getPrice(id);
+        versions.delete(id, version);
+        if (!Double.isNaN(previous)) {
+            chunks = chunks.without(previous, id);
+        }
+    }
+
+    /**
+     * Gets index of the first chunk whose last entry is greater than given price and id
+     * (or equal if inclusive), number of chunks if there is none.
+     */
+    private static int chunkAfter(Entries[] chunks, double price, int id, boolean inclusive) {
+
+        int low = 0;
+        int high = chunks.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            Entries last = chunks[middle];
+            int result = compare(last.prices[last.size() - 1], last.ids[last.size() - 1], price, id);
+            if (result < 0 || result == 0 && !inclusive) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Sorts prices and ids (parallel arrays) by price and id using heap sort.
+     */
+    static void sort(double[] prices, int[] ids) {
+
+        int n = prices.length;
+        for (int i = n / 2 - 1; i >= 0; i--) {
+            siftDown(prices, ids, i, n);
+        }
+        for (int end = n - 1; end > 0; end--) {
+            swap(prices, ids, 0, end);
+            siftDown(prices, ids, 0, end);
+        }
+    }
+
+    private static void siftDown(double[] prices, int[] ids, int i, int n) {
+
+        while (2 * i + 1 < n) {
+            int child = 2 * i + 1;
+            if (child + 1 < n && compare(prices[child + 1], ids[child + 1], prices[child],
+                    ids[child]) > 0) {
+                child++;
+            }
+            if (compare(prices[i], ids[i], prices[child], ids[child]) >= 0) {
+                return;
+            }
+            swap(prices, ids, i, child);
+            i = child;
+        }
+    }
+
+    private static void swap(double[] prices, int[] ids, int i, int j) {
+
+        double price = prices[i];
+        prices[i] = prices[j];
+        prices[j] = price;
+        int id = ids[i];
+        ids[i] = ids[j];
+        ids[j] = id;
+    }
+
+    /**
+     * Gets rounding error of addition of given value to given sum (Neumaier summation).
+     */
+    private static double compensation(double sum, double value, double newSum) {
+
+        return Math.abs(sum) >= Math.abs(value) ? sum - newSum + value : value - newSum + sum;
+    }
+
+    private static int compare(double price1, int id1, double price2, int id2) {
+
+        int result = Double.compare(price1, price2);
+        return result != 0 ? result : Integer.compare(id1, id2);
+    }
+
+    /**
+     * Immutable non-empty chunks of entries ordered by price and id within and across chunks
+     * with aggregate of their prices.
+     */
+    private static final class Chunks implements PriceAggregate {
+
+        private final Entries[] chunks;
+
+        private final int size;
+
+        private final double sum;
+
+        private final double compensation;
+
+        Chunks(Entries[] chunks, int size, double sum, double compensation) {
+
+            this.chunks = chunks;
+            this.size = size;
+            this.sum = sum;
+            this.compensation = compensation;
+        }
+
+        @Override
+        public long getProductCount() {
+
+            return size;
+        }
+
+        @Override
+        public Double getMinPrice() {
+
+            return chunks.length > 0 ? chunks[0].prices[0] : null;
+        }
+
+        @Override
+        public Double getMaxPrice() {
+
+            if (chunks.length == 0) {
+                return null;
+            }
+            Entries last = chunks[chunks.length - 1];
+            return last.prices[last.size() - 1];
+        }
+
+        @Override
+        public Double getPriceSum() {
+
+            return size > 0 ? sum + compensation : null;
+        }
+
+        Chunks with(double price, int id) {
+
+            if (chunks.length == 0) {
+                return new Chunks(new Entries[] { EMPTY.with(0, price, id) }, 1, price, 0);
+            }
+            int chunk = Math.min(chunkAfter(chunks, price, id, false), chunks.length - 1);
+            Entries entries = chunks[chunk];
+            entries = entries.with(entries.indexAfter(price, id), price, id);
+            if (entries.size() <= MAX_CHUNK_SIZE) {
+                return replace(chunk, 1, price, entries);
+            }
+            // split full chunk into halves
+            int half = entries.size() / 2;
+            return replace(chunk, 1, price,
+                    new Entries(Arrays.copyOfRange(entries.prices, 0, half),
+                            Arrays.copyOfRange(entries.ids, 0, half)),
+                    new Entries(Arrays.copyOfRange(entries.prices, half, entries.size()),
+                            Arrays.copyOfRange(entries.ids, half, entries.size())));
+        }
+
+        Chunks without(double price, int id) {
+
+            int chunk = chunkAfter(chunks, price, id, true);
+            Entries entries = chunks[chunk];
+            if (entries.size() == 1) {
+                return replace(chunk, -1, -price);
+            }
+            return replace(chunk, -1, -price, entries.without(entries.indexAfter(price, id) - 1));
+        }
+
+        /**
+         * Replaces chunk with given index by given chunks (none to remove it) after entry was added
+         * (change of size 1, positive price) or removed (change of size -1, negative price).
+         */
+        private Chunks replace(int chunk, int sizeChange, double price, Entries... newChunks) {
+
+            Entries[] result = new Entries[chunks.length - 1 + newChunks.length];
+            System.arraycopy(chunks, 0, result, 0, chunk);
+            System.arraycopy(newChunks, 0, result, chunk, newChunks.length);
+            System.arraycopy(chunks, chunk + 1, result, chunk + newChunks.length,
+                    chunks.length - chunk - 1);
+            int newSize = size + sizeChange;
+            double newSum = sum + price;
+            double newCompensation = newSize > 0 ? compensation + compensation(sum, price, newSum) : 0;
+            return new Chunks(result, newSize, newSize > 0 ? newSum : 0, newCompensation);
+        }
+    }
+
+    /**
+     * Prices and ids of products ordered by price and id.
+     */
+    public static final class Entries {
+
+        private final double[] prices;
+
+        private final int[] ids;
+
+        Entries(double[] prices, int[] ids) {
+
+            this.prices = prices;
+            this.ids = ids;
+        }
+
+        /**
+         * Gets number of entries.
+         */
+        public int size() {
+
+            return ids.length;
+        }
+
+        /**
+         * Gets price of the entry with given index.
+         */
+        public double getPrice(int index) {
+
+            return prices[index];
+        }
+
+        /**
+         * Gets product id of the entry with given index.
+         */
+        public int getId(int index) {
+
+            return ids[index];
+        }
+
+        /**
+         * Gets index of the first entry greater than given price and id (binary search).
+         */
+        int indexAfter(double price, int id) {
+
+            int low = 0;
+            int high = ids.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (compare(prices[middle], ids[middle], price, id) <= 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        private Entries with(int index, double price, int id) {
+
+            double[] newPrices = new double[prices.length + 1];
+            int[] newIds = new int[ids.length + 1];
+            System.arraycopy(prices, 0, newPrices, 0, index);
+            System.arraycopy(ids, 0, newIds, 0, index);
+            newPrices[index] = price;
+            newIds[index] = id;
+            System.arraycopy(prices, index, newPrices, index + 1, prices.length - index);
+            System.arraycopy(ids, index, newIds, index + 1, ids.length - index);
+            return new Entries(newPrices, newIds);
+        }
+
+        private Entries without(int index) {
+
+            double[] newPrices = new double[prices.length - 1];
+            int[] newIds = new int[ids.length - 1];
+            System.arraycopy(prices, 0, newPrices, 0, index);
+            System.arraycopy(ids, 0, newIds, 0, index);
+            System.arraycopy(prices, index + 1, newPrices, index, prices.length - index - 1);
+            System.arraycopy(ids, index + 1, newIds, index, ids.length - index - 1);
+            return new Entries(newPrices, newIds);
+        }
+    }
+}
@@ -0,0 +1,319 @@
+package db.test.app.product.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import db.test.app.product.Product;
+import db.test.app.product.ProductBulkChangedEvent;
+import db.test.app.product.ProductChangedEvent;
+import db.test.app.product.ProductService;
+
+/**
+ * In-memory index of names of non-deleted products.
+ * Names are split into lower case tokens (letters and digits), tokens are kept in sorted
+ * concurrent map (token to ids) so that tokens with given prefix form a continuous range.
+ * Index is built once the context is refreshed (before the web server accepts requests) and kept up to date by {@link ProductChangedEvent}s.
+ * Searches don't lock, changes of the index are serialized.
+ * Change is applied only if its version is newer than the last applied one (deleted products are
+ * kept as tombstones), so changes of concurrent transactions published in different order
+ * don't overwrite newer state (see {@link ProductVersions}).
+ */
+@Component
+public class ProductSearchIndex {
+
+    /**
+     * Score of the product whose name contains query term.
+     */
+    private static final int TOKEN_SCORE = 2;
+
+    /**
+     * Score of the product whose name contains token starting with query term.
+     */
+    private static final int PREFIX_SCORE = 1;
+
+    /**
+     * Maximal number of candidates scored by one search.
+     * Candidates are taken from the term matching fewest products, results of terms matching more
+     * products are truncated.
+     */
+    static final int MAX_CANDIDATES = 1000;
+
+    private final Map<Integer, Product> products = new ConcurrentHashMap<>();
+
+    private final ConcurrentSkipListMap<String, Set<Integer>> tokens = new ConcurrentSkipListMap<>();
+
+    /**
+     * Versions of indexed and deleted products, guarded by this.
+     */
+    private final ProductVersions versions = new ProductVersions();
+
+    @Autowired
+    private ProductService productService;
+
+    /**
+     * Builds the index from all non-deleted products.
+     */
+    @EventListener(ContextRefreshedEvent.class)
+    public synchronized void load() {
+
+        products.clear();
+        tokens.clear();
+        versions.clear();
+        productService.exportProducts(false, product -> index(product, product.getVersion()));
+    }
+
+    /**
+     * Searches products whose name contains all terms of the query, either as whole tokens
+     * or as prefixes of tokens.
+     * The term matching fewest products selects at most {@value #MAX_CANDIDATES} candidates
+     * (products containing it as whole token first, then tokens starting with it in alphabetical order),
+     * other terms are checked against names of the candidates, so the work doesn't depend on the size
+     * of the catalog. If every term matches more products, results are truncated to the candidates.
+     * Only the best {@code limit} products are kept while ranking, products are ordered by score
+     * (whole tokens first), length of the name and id.
+     */
+    public List<Product> search(String query, int limit) {
+
+        List<String> terms = tokenize(query);
+        if (terms.isEmpty() || limit < 1) {
+            return Collections.emptyList();
+        }
+        String first = null;
+        int fewest = Integer.MAX_VALUE;
+        for (String term : terms) {
+            int count = count(term);
+            if (count == 0) {
+                return Collections.emptyList();
+            }
+            if (count < fewest) {
+                first = term;
+                fewest = count;
+            }
+        }
+        Map<Integer, Integer> scores = candidates(first);
+        for (String term : terms) {
+            if (term.equals(first)) {
+                continue;
+            }
+            scores.entrySet().removeIf(candidate -> {
+                Product product = products.get(candidate.getKey());
+                int score = product != null ? score(term, product) : 0;
+                candidate.setValue(candidate.getValue() + score);
+                return score == 0;
+            });
+        }
+        return top(scores, limit);
+    }
+
+    /**
+     * Updates the index once the change is committed.
+     */
+    @Order(ProductChangedEvent.UPDATE_ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onProductChanged(ProductChangedEvent event) {
+
+        int version = versions.versionOf(event);
+        if (version == ProductChangedEvent.UNKNOWN_VERSION) {
+            // stale change
+            return;
+        }
+        if (event.getType() == ProductChangedEvent.Type.DELETED) {
+            remove(event.getId(), version);
+        } else {
+            index(event.getProduct(), version);
+        }
+    }
+
+    /**
+     * Updates the index with all changes of the bulk operation once they are committed.
+     */
+    @Order(ProductChangedEvent.UPDATE_ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onProductsChanged(ProductBulkChangedEvent event) {
+
+        event.getChanges().forEach(this::onProductChanged);
+    }
+
+    /**
+     * Adds product to the index or replaces it (as the next version of the product).
+     */
+    public synchronized void add(Product product) {
+
+        index(product, versions.versionOf(product.getId(), ProductChangedEvent.UNKNOWN_VERSION));
+    }
+
+    /**
+     * Removes product with given id from the index (as the next version of the product).
+     */
+    public synchronized void remove(int id) {
+
+        remove(id, versions.versionOf(id, ProductChangedEvent.UNKNOWN_VERSION));
+    }
+
+    private void index(Product product, int version) {
+
+        versions.put(product.getId(), version, product.getPrice());
+        Product previous = products.put(product.getId(), product);
+        if (previous != null) {
+            removeTokens(previous);
+        }
+        for (String token : tokenize(product.getName())) {
+            tokens.computeIfAbsent(token, t -> ConcurrentHashMap.newKeySet()).add(product.getId());
+        }
+    }
+
+    private void remove(int id, int version) {
+
+        versions.delete(id, version);
+        Product previous = products.remove(id);
+        if (previous != null) {
+            removeTokens(previous);
+        }
+    }
+
+    private void removeTokens(Product product) {
+
+        for (String token : tokenize(product.getName())) {
+            Set<Integer> ids = tokens.get(token);
+            if (ids != null) {
+                ids.remove(product.getId());
+                if (ids.isEmpty()) {
+                    tokens.remove(token);
+                }
+            }
+        }
+    }
+
+    /**
+     * Counts products with token equal to or starting with given term, at most
+     * {@value #MAX_CANDIDATES} + 1 (products with more matching tokens are counted more times).
+     */
+    private int count(String term) {
+
+        int count = 0;
+        for (Set<Integer> ids : tokens.subMap(term, true, term + Character.MAX_VALUE, false).values()) {
+            count += ids.size();
+            if (count > MAX_CANDIDATES) {
+                return MAX_CANDIDATES + 1;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Collects at most {@value #MAX_CANDIDATES} products matching given term with their scores,
+     * products with the whole token first.
+     */
+    private Map<Integer, Integer> candidates(String term) {
+
+        Map<Integer, Integer> scores = new HashMap<>();
+        Set<Integer> ids = tokens.get(term);
+        if (ids != null) {
+            addCandidates(scores, ids, TOKEN_SCORE);
+        }
+        for (Set<Integer> prefixIds : tokens.subMap(term, false, term + Character.MAX_VALUE, false)
+                .values()) {
+            if (scores.size() >= MAX_CANDIDATES) {
+                break;
+            }
+            addCandidates(scores, prefixIds, PREFIX_SCORE);
+        }
+        return scores;
+    }
+
+    private static void addCandidates(Map<Integer, Integer> scores, Set<Integer> ids, int score) {
+
+        for (Integer id : ids) {
+            if (scores.size() >= MAX_CANDIDATES && !scores.containsKey(id)) {
+                return;
+            }
+            scores.merge(id, score, Math::max);
+        }
+    }
+
+    /**
+     * Gets score of the best token of the product name matching given term, 0 if none matches.
+     */
+    private static int score(String term, Product product) {
+
+        int score = 0;
+        for (String token : tokenize(product.getName())) {
+            if (token.equals(term)) {
+                return TOKEN_SCORE;
+            }
+            if (token.startsWith(term)) {
+                score = PREFIX_SCORE;
+            }
+        }
+        return score;
+    }
+
+    /**
+     * Selects best products by bounded heap with the worst of them on top.
+     */
+    private List<Product> top(Map<Integer, Integer> scores, int limit) {
+
+        Comparator<Map.Entry<Product, Integer>> order = Comparator
+                .<Map.Entry<Product, Integer>> comparingInt(e -> -e.getValue())
+                .thenComparingInt(e -> e.getKey().getName().length())
+                .thenComparingInt(e -> e.getKey().getId());
+        PriorityQueue<Map.Entry<Product, Integer>> heap = new PriorityQueue<>(
+                Math.min(limit, scores.size()) + 1, order.reversed());
+        for (Map.Entry<Integer, Integer> score : scores.entrySet()) {
+            Product product = products.get(score.getKey());
+            if (product != null) {
+                heap.add(Map.entry(product, score.getValue()));
+                if (heap.size() > limit) {
+                    heap.poll();
+                }
+            }
+        }
+        Product[] result = new Product[heap.size()];
+        for (int i = result.length - 1; i >= 0; i--) {
+            result[i] = heap.poll().getKey();
+        }
+        return Arrays.asList(result);
+    }
+
+    /**
+     * Splits text into distinct lower case tokens consisting of letters and digits.
+     */
+    static List<String> tokenize(String text) {
+
+        List<String> result = new ArrayList<>();
+        if (text == null) {
+            return result;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean tokenChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (tokenChar && start < 0) {
+                start = i;
+            } else if (!tokenChar && start >= 0) {
+                String token = text.substring(start, i).toLowerCase(Locale.ROOT);
+                if (!result.contains(token)) {
+                    result.add(token);
+                }
+                start = -1;
+            }
+        }
+        return result;
+    }
+}
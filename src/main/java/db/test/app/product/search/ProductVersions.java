@@ -0,0 +1,219 @@
+package db.test.app.product.search;
+
+import java.util.Arrays;
+
+import db.test.app.product.ProductChangedEvent;
+
+/**
+ * Versions of products applied to in-memory indexes, with the price of each indexed product.
+ * Deleted products are kept as tombstones (their version without price), so late change of
+ * a concurrent transaction can't add them again.
+ * Entries are stored in primitive arrays of open-addressing hash table with linear probing,
+ * so there is no boxing and no object per product.
+ * It is not thread-safe, it is guarded by the index.
+ */
+final class ProductVersions {
+
+    /**
+     * Receives id and price of indexed product.
+     */
+    @FunctionalInterface
+    interface PriceConsumer {
+
+        void accept(int id, double price);
+    }
+
+    private static final int EMPTY = Integer.MIN_VALUE;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int[] ids;
+
+    private int[] versions;
+
+    private double[] prices;
+
+    private boolean[] indexed;
+
+    private int size;
+
+    private int indexedSize;
+
+    ProductVersions() {
+
+        clear();
+    }
+
+    /**
+     * Gets version of given change if it is newer than the last change applied to the product,
+     * otherwise {@link ProductChangedEvent#UNKNOWN_VERSION} (see {@link #versionOf(int, int)}).
+     */
+    int versionOf(ProductChangedEvent change) {
+
+        return versionOf(change.getId(), change.getVersion());
+    }
+
+    /**
+     * Gets given version of the change of product with given id if it is newer than the last
+     * applied one, otherwise {@link ProductChangedEvent#UNKNOWN_VERSION}.
+     * Unknown version of the change follows the last applied one.
+     */
+    int versionOf(int id, int changeVersion) {
+
+        int slot = find(id);
+        int known = slot >= 0 ? versions[slot] : ProductChangedEvent.UNKNOWN_VERSION;
+        int version = changeVersion != ProductChangedEvent.UNKNOWN_VERSION ? changeVersion : known + 1;
+        return version > known ? version : ProductChangedEvent.UNKNOWN_VERSION;
+    }
+
+    /**
+     * Checks whether product with given id is indexed (not deleted).
+     */
+    boolean isIndexed(int id) {
+
+        int slot = find(id);
+        return slot >= 0 && indexed[slot];
+    }
+
+    /**
+     * Gets price of indexed product or NaN if it is not indexed.
+     */
+    double getPrice(int id) {
+
+        int slot = find(id);
+        return slot >= 0 && indexed[slot] ? prices[slot] : Double.NaN;
+    }
+
+    /**
+     * Gets number of indexed products (without tombstones).
+     */
+    int size() {
+
+        return indexedSize;
+    }
+
+    /**
+     * Stores version and price of indexed product.
+     */
+    void put(int id, int version, double price) {
+
+        int slot = slot(id);
+        if (!indexed[slot]) {
+            indexed[slot] = true;
+            indexedSize++;
+        }
+        versions[slot] = version;
+        prices[slot] = price;
+    }
+
+    /**
+     * Stores version of deleted product (tombstone).
+     */
+    void delete(int id, int version) {
+
+        int slot = slot(id);
+        if (indexed[slot]) {
+            indexed[slot] = false;
+            indexedSize--;
+        }
+        versions[slot] = version;
+        prices[slot] = 0;
+    }
+
+    /**
+     * Passes all indexed products to given consumer.
+     */
+    void forEach(PriceConsumer consumer) {
+
+        for (int slot = 0; slot < ids.length; slot++) {
+            if (indexed[slot]) {
+                consumer.accept(ids[slot], prices[slot]);
+            }
+        }
+    }
+
+    /**
+     * Removes all products and tombstones.
+     */
+    void clear() {
+
+        ids = new int[INITIAL_CAPACITY];
+        Arrays.fill(ids, EMPTY);
+        versions = new int[INITIAL_CAPACITY];
+        prices = new double[INITIAL_CAPACITY];
+        indexed = new boolean[INITIAL_CAPACITY];
+        size = 0;
+        indexedSize = 0;
+    }
+
+    /**
+     * Finds slot of given id, negative if there is none.
+     */
+    private int find(int id) {
+
+        int mask = ids.length - 1;
+        for (int slot = hash(id) & mask;; slot = slot + 1 & mask) {
+            if (ids[slot] == id) {
+                return slot;
+            }
+            if (ids[slot] == EMPTY) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Finds slot of given id, new slot is occupied if there is none.
+     */
+    private int slot(int id) {
+
+        int slot = find(id);
+        if (slot >= 0) {
+            return slot;
+        }
+        if (2 * (size + 1) > ids.length) {
+            resize();
+        }
+        int mask = ids.length - 1;
+        slot = hash(id) & mask;
+        while (ids[slot] != EMPTY) {
+            slot = slot + 1 & mask;
+        }
+        ids[slot] = id;
+        size++;
+        return slot;
+    }
+
+    private void resize() {
+
+        int[] oldIds = ids;
+        int[] oldVersions = versions;
+        double[] oldPrices = prices;
+        boolean[] oldIndexed = indexed;
+        int capacity = oldIds.length * 2;
+        ids = new int[capacity];
+        Arrays.fill(ids, EMPTY);
+        versions = new int[capacity];
+        prices = new double[capacity];
+        indexed = new boolean[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldIds.length; i++) {
+            if (oldIds[i] != EMPTY) {
+                int slot = hash(oldIds[i]) & mask;
+                while (ids[slot] != EMPTY) {
+                    slot = slot + 1 & mask;
+                }
+                ids[slot] = oldIds[i];
+                versions[slot] = oldVersions[i];
+                prices[slot] = oldPrices[i];
+                indexed[slot] = oldIndexed[i];
+            }
+        }
+    }
+
+    private static int hash(int id) {
+
+        int hash = id * 0x9E3779B9;
+        return hash ^ hash >>> 16;
+    }
+}
@@ -0,0 +1,89 @@
+package db.test.app.product.stats;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+/**
+ * Aggregate statistics of the catalog.
+ * Price statistics are computed from non-deleted products, they are null if there are none.
+ */
+@ApiModel(description = "Aggregate statistics of the catalog")
+public class ProductStats {
+
+    @ApiModelProperty(notes = "number of non-deleted products")
+    private final long count;
+
+    @ApiModelProperty(notes = "number of deleted products")
+    private final long deletedCount;
+
+    @ApiModelProperty(notes = "minimal price of non-deleted products")
+    private final Double minPrice;
+
+    @ApiModelProperty(notes = "maximal price of non-deleted products")
+    private final Double maxPrice;
+
+    @ApiModelProperty(notes = "sum of prices of non-deleted products")
+    private final Double totalPrice;
+
+    @ApiModelProperty(notes = "average price of non-deleted products")
+    private final Double averagePrice;
+
+    public ProductStats(long count, long deletedCount, Double minPrice, Double maxPrice,
+            Double totalPrice) {
+
+        this.count = count;
+        this.deletedCount = deletedCount;
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+        this.totalPrice = totalPrice;
+        this.averagePrice = count > 0 && totalPrice != null ? totalPrice / count : null;
+    }
+
+    /**
+     * Gets the count.
+     */
+    public long getCount() {
+
+        return count;
+    }
+
+    /**
+     * Gets the deleted count.
+     */
+    public long getDeletedCount() {
+
+        return deletedCount;
+    }
+
+    /**
+     * Gets the min price.
+     */
+    public Double getMinPrice() {
+
+        return minPrice;
+    }
+
+    /**
+     * Gets the max price.
+     */
+    public Double getMaxPrice() {
+
+        return maxPrice;
+    }
+
+    /**
+     * Gets the total price.
+     */
+    public Double getTotalPrice() {
+
+        return totalPrice;
+    }
+
+    /**
+     * Gets the average price.
+     */
+    public Double getAveragePrice() {
+
+        return averagePrice;
+    }
+}
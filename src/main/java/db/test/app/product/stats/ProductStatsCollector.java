@@ -0,0 +1,119 @@
+package db.test.app.product.stats;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import db.test.app.product.PriceAggregate;
+import db.test.app.product.ProductArchiveRepository;
+import db.test.app.product.ProductBulkChangedEvent;
+import db.test.app.product.ProductChangedEvent;
+import db.test.app.product.ProductStore;
+import db.test.app.product.search.ProductPriceIndex;
+
+/**
+ * Aggregate statistics of the catalog.
+ * Count, minimum, maximum and sum of prices of non-deleted products are taken from aggregate
+ * of {@link ProductPriceIndex} (maintained with each change of the index), so statistics are read
+ * in constant time without access to the database and values of non-deleted products belong
+ * to the same state of the index. Number of deleted (including archived) products is counted
+ * in a striped adder by {@link ProductChangedEvent}s.
+ * Statistics are available only if the price index is enabled.
+ */
+@Component
+@ConditionalOnProperty(name = "product.price-index.enabled",
+    havingValue = "true")
+public class ProductStatsCollector {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductStatsCollector.class);
+
+    /**
+     * Relative difference of sums of prices tolerated when they are compared with database aggregate
+     * (database adds prices in different order).
+     */
+    static final double SUM_TOLERANCE = 1e-9;
+
+    private final LongAdder deletedCount = new LongAdder();
+
+    @Autowired
+    private ProductStore repository;
+
+    @Autowired(required = false)
+    private ProductArchiveRepository archiveRepository;
+
+    @Autowired
+    private ProductPriceIndex priceIndex;
+
+    /**
+     * Counts deleted (including archived) products and verifies the loaded price index against
+     * database aggregate, if they don't match (e.g. products were changed meanwhile) the mismatch
+     * is logged and the index is loaded again.
+     */
+    @Order(ProductPriceIndex.ORDER + 1)
+    @EventListener(ContextRefreshedEvent.class)
+    public synchronized void load() {
+
+        deletedCount.reset();
+        deletedCount.add(repository.aggregatePrices(true).getProductCount());
+        if (archiveRepository != null) {
+            deletedCount.add(archiveRepository.count());
+        }
+        PriceAggregate aggregate = repository.aggregatePrices(false);
+        PriceAggregate indexed = priceIndex.getAggregate();
+        double aggregateSum = aggregate.getPriceSum() != null ? aggregate.getPriceSum() : 0;
+        double sum = indexed.getPriceSum() != null ? indexed.getPriceSum() : 0;
+        if (aggregate.getProductCount() != indexed.getProductCount()
+                || Math.abs(aggregateSum - sum) > SUM_TOLERANCE * Math.max(1, Math.abs(aggregateSum))) {
+            logger.warn("Price index (count {}, sum {}) doesn't match database aggregate (count {}, sum {})",
+                    indexed.getProductCount(), sum, aggregate.getProductCount(), aggregateSum);
+            priceIndex.load();
+        }
+    }
+
+    /**
+     * Gets current statistics.
+     */
+    public ProductStats getStats() {
+
+        PriceAggregate aggregate = priceIndex.getAggregate();
+        return new ProductStats(aggregate.getProductCount(), deletedCount.sum(), aggregate.getMinPrice(),
+                aggregate.getMaxPrice(), aggregate.getPriceSum());
+    }
+
+    /**
+     * Counts deleted products once the change is committed.
+     */
+    @Order(ProductChangedEvent.UPDATE_ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+
+        switch (event.getType()) {
+        case DELETED:
+            deletedCount.increment();
+            break;
+        case RESTORED:
+            deletedCount.decrement();
+            break;
+        default:
+            break;
+        }
+    }
+
+    /**
+     * Counts deleted products of the bulk operation once the changes are committed.
+     */
+    @Order(ProductChangedEvent.UPDATE_ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductsChanged(ProductBulkChangedEvent event) {
+
+        event.getChanges().forEach(this::onProductChanged);
+    }
+}
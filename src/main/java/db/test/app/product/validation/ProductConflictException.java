@@ -0,0 +1,13 @@
+package db.test.app.product.validation;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Exception indicating that product has been modified (its version doesn't match).
+ */
+@SuppressWarnings("serial")
+@ResponseStatus(code = HttpStatus.CONFLICT,
+    reason = "Product has been modified")
+public class ProductConflictException extends RuntimeException {
+}
@@ -10,4 +10,25 @@ import org.springframework.web.bind.annotation.ResponseStatus;
 @ResponseStatus(code = HttpStatus.NOT_FOUND,
     reason = "Product not found")
 public class ProductNotFoundException extends RuntimeException {
+
+    private static final ProductNotFoundException STACKLESS = new ProductNotFoundException(false);
+
+    public ProductNotFoundException() {
+
+        this(true);
+    }
+
+    private ProductNotFoundException(boolean writableStackTrace) {
+
+        super(null, null, false, writableStackTrace);
+    }
+
+    /**
+     * Gets shared instance without stack trace for lookups of missing products,
+     * which are expected and frequent, so filling in stack trace would be wasted.
+     */
+    public static ProductNotFoundException stackless() {
+
+        return STACKLESS;
+    }
 }
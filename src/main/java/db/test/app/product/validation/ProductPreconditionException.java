@@ -0,0 +1,14 @@
+package db.test.app.product.validation;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Exception indicating that If-Match header contains entity tag that can't match the product
+ * (e.g. entity tag of the catalog instead of version of the product).
+ */
+@SuppressWarnings("serial")
+@ResponseStatus(code = HttpStatus.PRECONDITION_FAILED,
+    reason = "If-Match doesn't contain version of the product")
+public class ProductPreconditionException extends RuntimeException {
+}
@@ -0,0 +1,13 @@
+package db.test.app.product.validation;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Exception indicating that statistics of products are not available (price index is disabled).
+ */
+@SuppressWarnings("serial")
+@ResponseStatus(code = HttpStatus.NOT_IMPLEMENTED,
+    reason = "Statistics require price index")
+public class ProductStatsUnavailableException extends RuntimeException {
+}
@@ -1,35 +1,69 @@
 package db.test.app.product.validation;
 
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.lang.reflect.Field;
 
-import javax.validation.ConstraintViolation;
-import javax.validation.Validator;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.Positive;
 
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import db.test.app.product.Product;
 
 /**
  * Simple product validator.
+ * It checks {@link NotBlank} name and {@link Positive} price of the product directly without
+ * bean validation metadata traversal, messages are taken from the constraints of the product.
+ * Nothing is allocated when product is valid.
  */
 @Service
 public class ProductValidator {
 
-    @Autowired
-    private Validator validator;
+    private static final String NAME_MESSAGE = getField("name").getAnnotation(NotBlank.class)
+            .message();
+
+    private static final String PRICE_MESSAGE = getField("price").getAnnotation(Positive.class)
+            .message();
+
+    private static final String NAME_AND_PRICE_MESSAGE = NAME_MESSAGE + ", " + PRICE_MESSAGE;
 
     /**
      * Validates product.
      */
     public void validate(Product product) {
 
-        Set<ConstraintViolation<Product>> violations = validator.validate(product);
-        if (!violations.isEmpty()) {
-            throw new ProductValidationException(
-                    violations.stream().map(ConstraintViolation::getMessageTemplate)
-                            .collect(Collectors.joining(", ")));
+        boolean validName = isNotBlank(product.getName());
+        // NaN is not a positive value
+        boolean validPrice = product.getPrice() > 0;
+        if (validName && validPrice) {
+            return;
+        }
+        throw new ProductValidationException(
+                validName ? PRICE_MESSAGE : validPrice ? NAME_MESSAGE : NAME_AND_PRICE_MESSAGE);
+    }
+
+    /**
+     * Same as {@link NotBlank}, value has to contain at least one character that is not
+     * a whitespace or control character.
+     */
+    private static boolean isNotBlank(String value) {
+
+        if (value == null) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > ' ') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Field getField(String name) {
+
+        try {
+            return Product.class.getDeclaredField(name);
+        } catch (NoSuchFieldException e) {
+            throw new IllegalStateException("Product doesn't have field " + name, e);
         }
     }
 }
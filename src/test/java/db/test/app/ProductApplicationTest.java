@@ -1,22 +1,45 @@
 package db.test.app;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
 
+import db.test.app.product.Product;
 import db.test.app.product.ProductController;
+import db.test.app.product.ProductService;
+import db.test.app.product.metrics.ProductMetricsAspect;
+import io.micrometer.core.instrument.MeterRegistry;
 
 /**
  * Test of ProductApplication.
  */
 @SpringBootTest
+@AutoConfigureMockMvc
 public class ProductApplicationTest {
 
     @Autowired
     private ProductController controller;
 
+    @Autowired
+    private ProductService service;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MeterRegistry registry;
+
     /**
      * Tests context initialization.
      */
@@ -26,4 +49,60 @@ public class ProductApplicationTest {
         assertThat(controller).isNotNull();
     }
 
+    /**
+     * Tests metrics are exposed in Prometheus format.
+     */
+    @Test
+    void metrics() throws Exception {
+
+        mockMvc.perform(get("/products/")).andExpect(status().isOk());
+        mockMvc.perform(get("/products/0")).andExpect(status().isNotFound());
+        mockMvc.perform(get("/actuator/prometheus"))//
+                .andExpect(status().isOk())//
+                .andExpect(content().string(containsString("http_server_requests_seconds")))//
+                .andExpect(content().string(containsString("product_service_seconds")))//
+                .andExpect(content().string(
+                        containsString("product_repository_seconds_count{exception=\"none\",method=\"findAllNonDeleted\"")))//
+                .andExpect(content().string(containsString(
+                        "product_exceptions_total{exception=\"ProductNotFoundException\"")))//
+                .andExpect(content().string(containsString("cache_gets_total{cache=\"product\"")))//
+                .andExpect(content().string(containsString("hikaricp_connections")))//
+                .andExpect(content().string(containsString("hibernate_statements")))//
+                .andExpect(content().string(containsString("jvm_gc")));
+    }
+
+    /**
+     * Tests repository queries are timed and persistence context helpers are not.
+     */
+    @Test
+    void repositoryMetrics() {
+
+        Product product = new Product();
+        product.setName("metrics product");
+        product.setPrice(10);
+        service.addProduct(product);
+        service.exportProducts(false, exported -> {
+        });
+        assertNotNull(registry.find(ProductMetricsAspect.REPOSITORY_TIMER).tag("method", "streamAll").timer());
+        assertNull(registry.find(ProductMetricsAspect.REPOSITORY_TIMER).tag("method", "detach").timer());
+    }
+
+    /**
+     * Tests exceptions thrown by controller and by service are counted once.
+     */
+    @Test
+    void exceptionMetrics() throws Exception {
+
+        double notFound = countExceptions("ProductNotFoundException");
+        double invalid = countExceptions("ProductValidationException");
+        mockMvc.perform(get("/products/0")).andExpect(status().isNotFound());
+        mockMvc.perform(get("/products/?sort=name")).andExpect(status().isBadRequest());
+        assertEquals(notFound + 1, countExceptions("ProductNotFoundException"));
+        assertEquals(invalid + 1, countExceptions("ProductValidationException"));
+    }
+
+    private double countExceptions(String exception) {
+
+        return registry.counter(ProductMetricsAspect.EXCEPTION_COUNTER, "exception", exception).count();
+    }
 }
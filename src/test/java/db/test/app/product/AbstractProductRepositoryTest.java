@@ -0,0 +1,370 @@
+package db.test.app.product;
+
+import static db.test.app.product.TestUtils.getProduct;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Test of ProductStore shared by its implementations.
+ * Tests are transactional (rolled back) when run by Spring test context, transaction attributes
+ * are resolved from the class declaring the test method.
+ */
+@Transactional
+public abstract class AbstractProductRepositoryTest {
+
+    @Autowired
+    protected ProductStore repository;
+
+    /**
+     * Tests if unique id is generated.
+     */
+    @Test
+    public void testIdGeneration() {
+
+        int expectedSize = 5;
+        Product product = getProduct(-1, "product", 10, LocalDate.now(), false);
+        assertEquals(0, repository.findAll().size());
+        for (int i = 0; i < expectedSize; i++) {
+            repository.save(product);
+        }
+        // id is primary key so it needs to be unique - check the count of elements
+        assertEquals(expectedSize, repository.findAll().size());
+    }
+
+    /**
+     * Tests if ids are handed out from reserved block.
+     */
+    @Test
+    public void testIdBlock() {
+
+        Product first = repository.save(getProduct(0, "product 1", 10, LocalDate.now(), false));
+        Product second = repository.save(getProduct(0, "product 2", 10, LocalDate.now(), false));
+        // ids are reserved in blocks so they are consecutive
+        assertEquals(first.getId() + 1, second.getId());
+    }
+
+    /**
+     *  Tests {@link ProductRepository#findAllNonDeleted()}
+     */
+    @Test
+    public void testFindAllNonDeleted() {
+
+        repository.save(getProduct(-1, "product 1", 10, LocalDate.now(), false));
+        repository.save(getProduct(-1, "product 2", 10, LocalDate.now(), false));
+        // validate both products are accessible
+        List<Product> products = repository.findAllNonDeleted();
+        assertNotNull(products);
+        assertEquals(2, products.size());
+    }
+
+    /**
+     *  Tests {@link ProductRepository#findAllDeleted()}
+     */
+    @Test
+    public void testFindAllDeleted() {
+
+        repository.save(getProduct(-1, "product 1", 10, LocalDate.now(), false));
+        repository.save(getProduct(-1, "product 2", 10, LocalDate.now(), true));
+        // validate deleted products
+        List<Product> products = repository.findAllDeleted();
+        assertNotNull(products);
+        assertEquals(1, products.size());
+    }
+
+    /**
+     *  Tests {@link ProductRepository#findPage(boolean, int, org.springframework.data.domain.Pageable)}
+     */
+    @Test
+    public void testFindPage() {
+
+        Product[] products = new Product[5];
+        for (int i = 0; i < products.length; i++) {
+            products[i] = repository.save(getProduct(-1, "product " + i, 10, LocalDate.now(), false));
+        }
+        repository.save(getProduct(-1, "product 5", 10, LocalDate.now(), true));
+        // validate pages are ordered by id and contain only non-deleted products
+        List<Product> page = repository.findPage(false, 0, PageRequest.of(0, 3));
+        assertEquals(3, page.size());
+        assertEquals(products[0], page.get(0));
+        assertEquals(products[2], page.get(2));
+        page = repository.findPage(false, page.get(2).getId(), PageRequest.of(0, 3));
+        assertEquals(2, page.size());
+        assertEquals(products[3], page.get(0));
+        assertEquals(products[4], page.get(1));
+        // validate deleted products
+        assertEquals(1, repository.findPage(true, 0, PageRequest.of(0, 3)).size());
+    }
+
+    /**
+     *  Tests {@link ProductRepository#findPriceRangePage(boolean, double, double, int, org.springframework.data.domain.Pageable)}
+     *  and {@link ProductRepository#findPriceRangePageByPrice(boolean, double, double, double, int, org.springframework.data.domain.Pageable)}
+     */
+    @Test
+    public void testFindPriceRangePage() {
+
+        Product p30 = repository.save(getProduct(-1, "product 1", 30, LocalDate.now(), false));
+        Product p10 = repository.save(getProduct(-1, "product 2", 10, LocalDate.now(), false));
+        Product p20 = repository.save(getProduct(-1, "product 3", 20, LocalDate.now(), false));
+        Product p20b = repository.save(getProduct(-1, "product 4", 20, LocalDate.now(), false));
+        repository.save(getProduct(-1, "product 5", 20, LocalDate.now(), true));
+        // validate order by id
+        assertEquals(Arrays.asList(p30, p20, p20b),
+                repository.findPriceRangePage(false, 20, 30, 0, PageRequest.of(0, 5)));
+        assertEquals(Arrays.asList(p20b),
+                repository.findPriceRangePage(false, 20, 30, p20.getId(), PageRequest.of(0, 5)));
+        // validate order by price and id
+        assertEquals(Arrays.asList(p10, p20, p20b),
+                repository.findPriceRangePageByPrice(false, 0, 25, -Double.MAX_VALUE, 0,
+                        PageRequest.of(0, 5)));
+        assertEquals(Arrays.asList(p20b, p30),
+                repository.findPriceRangePageByPrice(false, 0, 100, 20, p20.getId(),
+                        PageRequest.of(0, 5)));
+        // validate deleted products
+        assertEquals(1, repository
+                .findPriceRangePageByPrice(true, 0, 100, 0, 0, PageRequest.of(0, 5)).size());
+    }
+
+    /**
+     *  Tests {@link ProductRepository#findNonDeletedByIds(java.util.Collection)}
+     */
+    @Test
+    public void testFindNonDeletedByIds() {
+
+        Product product = repository.save(getProduct(-1, "product 1", 10, LocalDate.now(), false));
+        Product deleted = repository.save(getProduct(-1, "product 2", 10, LocalDate.now(), true));
+        assertEquals(Arrays.asList(product), repository
+                .findNonDeletedByIds(Arrays.asList(product.getId(), deleted.getId(), -1)));
+    }
+
+    /**
+     *  Tests {@link ProductRepository#findIdsByDeleted(java.util.Collection, boolean)},
+     *  {@link ProductRepository#findVersionsByDeleted(java.util.Collection, boolean)}
+     *  and {@link ProductRepository#setDeleted(java.util.Collection, boolean, long)}
+     */
+    @Test
+    public void testSetDeleted() {
+
+        Product first = repository.save(getProduct(-1, "product 1", 10, LocalDate.now(), false));
+        Product second = repository.save(getProduct(-1, "product 2", 10, LocalDate.now(), false));
+        Product deleted = repository.save(getProduct(-1, "product 3", 10, LocalDate.now(), true));
+        List<Integer> ids = Arrays.asList(first.getId(), second.getId(), deleted.getId(), -1);
+        assertEquals(Arrays.asList(deleted.getId()), repository.findIdsByDeleted(ids, true));
+        List<Integer> found = repository.findIdsByDeleted(ids, false);
+        found.sort(null);
+        assertEquals(Arrays.asList(first.getId(), second.getId()), found);
+        List<ProductIdVersion> versions = repository.findVersionsByDeleted(ids, true);
+        assertEquals(1, versions.size());
+        assertEquals(deleted.getId(), versions.get(0).getId());
+        assertEquals(deleted.getVersion(), versions.get(0).getVersion());
+        // validate only products with opposite flag are changed
+        assertEquals(2, repository.setDeleted(ids, true, 1));
+        assertEquals(0, repository.setDeleted(ids, true, 2));
+        assertEquals(3, repository.findAllDeleted().size());
+        assertEquals(1, repository.setDeleted(Arrays.asList(first.getId()), false, 3));
+        Product restored = repository.findNonDeletedById(first.getId()).get();
+        assertEquals(first.getVersion() + 2, restored.getVersion());
+        assertEquals(3, restored.getChangeSequence());
+    }
+
+    /**
+     *  Tests {@link ProductRepository#findIdsDeletedBefore(Instant, org.springframework.data.domain.Pageable)}
+     *  and {@link ProductRepository#removeDeleted(java.util.Collection)}
+     */
+    @Test
+    public void testRemoveDeleted() {
+
+        Product product = repository.save(getProduct(-1, "product 1", 10, LocalDate.now(), false));
+        Product first = repository.save(getProduct(-1, "product 2", 10, LocalDate.now(), true));
+        Product second = repository.save(getProduct(-1, "product 3", 10, LocalDate.now(), true));
+        Instant future = Instant.now().plusSeconds(60);
+        assertEquals(Arrays.asList(first.getId(), second.getId()),
+                repository.findIdsDeletedBefore(future, PageRequest.of(0, 10)));
+        assertEquals(Arrays.asList(first.getId()),
+                repository.findIdsDeletedBefore(future, PageRequest.of(0, 1)));
+        assertEquals(0, repository.findIdsDeletedBefore(Instant.EPOCH, PageRequest.of(0, 10)).size());
+        // validate only deleted products are removed
+        assertEquals(1, repository.removeDeleted(Arrays.asList(product.getId(), first.getId())));
+        assertTrue(repository.findById(product.getId()).isPresent());
+        assertFalse(repository.findById(first.getId()).isPresent());
+    }
+
+    /**
+     *  Tests {@link ProductRepository#findAllFields(boolean, List)}
+     */
+    @Test
+    public void testFindAllFields() {
+
+        Product second = repository.save(getProduct(-1, "product 2", 20, LocalDate.now(), false));
+        Product first = repository.save(getProduct(-1, "product 1", 10, LocalDate.now(), false));
+        repository.save(getProduct(-1, "product 3", 30, LocalDate.now(), true));
+        List<ProductField> fields = Arrays.asList(ProductField.NAME, ProductField.ID);
+        List<ProductFields> products = repository.findAllFields(false, fields);
+        assertEquals(2, products.size());
+        // validate only requested fields are returned
+        assertEquals(ProductFields.of(fields, second), products.get(0));
+        assertNull(products.get(0).getPrice());
+        assertEquals(first.getName(), products.get(1).getName());
+        products = repository.findAllFields(true, Arrays.asList(ProductField.CREATION_DATE));
+        assertEquals(LocalDate.now(), products.get(0).getCreationDate());
+        assertNull(products.get(0).getId());
+    }
+
+    /**
+     *  Tests {@link ProductRepository#aggregatePrices(boolean)}
+     */
+    @Test
+    public void testAggregatePrices() {
+
+        assertEquals(0, repository.aggregatePrices(false).getProductCount());
+        assertNull(repository.aggregatePrices(false).getMinPrice());
+        repository.save(getProduct(-1, "product 1", 10, LocalDate.now(), false));
+        repository.save(getProduct(-1, "product 2", 30, LocalDate.now(), false));
+        repository.save(getProduct(-1, "product 3", 50, LocalDate.now(), true));
+        PriceAggregate aggregate = repository.aggregatePrices(false);
+        assertEquals(2, aggregate.getProductCount());
+        assertEquals(10, aggregate.getMinPrice());
+        assertEquals(30, aggregate.getMaxPrice());
+        assertEquals(40, aggregate.getPriceSum());
+        assertEquals(1, repository.aggregatePrices(true).getProductCount());
+    }
+
+    /**
+     *  Tests {@link ProductRepository#streamAll(boolean)}
+     */
+    @Test
+    public void testStreamAll() {
+
+        Product product = repository.save(getProduct(-1, "product 1", 10, LocalDate.now(), false));
+        repository.save(getProduct(-1, "product 2", 10, LocalDate.now(), true));
+        // validate only non-deleted products are streamed
+        try (Stream<Product> products = repository.streamAll(false)) {
+            List<Product> nonDeletedProducts = products.collect(Collectors.toList());
+            assertEquals(1, nonDeletedProducts.size());
+            assertEquals(product, nonDeletedProducts.get(0));
+        }
+    }
+
+    /**
+     *  Tests {@link ProductRepository#findNonDeletedById(Integer)}
+     */
+    @Test
+    public void testFindNonDeletedById() {
+
+        Product product = repository.save(getProduct(-1, "product 1", 10, LocalDate.now(), false));
+        repository.save(getProduct(-1, "product 2", 10, LocalDate.now(), true));
+        // validate non-deleted products can be found
+        Optional<Product> nonDeletedproduct = repository.findNonDeletedById(product.getId());
+        assertNotNull(nonDeletedproduct.get());
+        assertEquals(product, nonDeletedproduct.get());
+    }
+
+    /**
+     *  Tests {@link ProductRepository#findChangedAfter(long)}
+     *  and {@link ProductRepository#findMaxChangeSequence()}
+     */
+    @Test
+    public void testFindChangedAfter() {
+
+        assertEquals(0, repository.findMaxChangeSequence());
+        Product first = getProduct(-1, "product 1", 10, LocalDate.now(), false);
+        first.setChangeSequence(2);
+        first = repository.save(first);
+        Product second = getProduct(-1, "product 2", 10, LocalDate.now(), false);
+        second.setChangeSequence(1);
+        second = repository.save(second);
+        assertNotNull(first.getLastModified());
+        assertEquals(Arrays.asList(second, first), repository.findChangedAfter(0));
+        assertEquals(Arrays.asList(first), repository.findChangedAfter(1));
+        assertTrue(repository.findChangedAfter(2).isEmpty());
+        // validate update and deletion change number of the last change
+        repository.update(second.getId(), "product 3", 20, 3);
+        repository.softDelete(first.getId(), 4);
+        List<Product> changes = repository.findChangedAfter(2);
+        assertEquals(2, changes.size());
+        assertEquals("product 3", changes.get(0).getName());
+        assertTrue(changes.get(1).isDeleted());
+        assertEquals(4, repository.findMaxChangeSequence());
+    }
+
+    /**
+     *  Tests {@link ProductRepository#update(int, String, double, long)}
+     */
+    @Test
+    public void testUpdate() {
+
+        Product product = repository.save(getProduct(-1, "product 1", 10, LocalDate.now(), false));
+        Product deletedProduct = repository
+                .save(getProduct(-1, "product 2", 10, LocalDate.now(), true));
+        // validate only non-deleted product is updated
+        assertEquals(1, repository.update(product.getId(), "product 3", 20, 1));
+        assertEquals(0, repository.update(deletedProduct.getId(), "product 3", 20, 1));
+        Product updatedProduct = repository.findNonDeletedById(product.getId()).get();
+        assertEquals(getProduct(product.getId(), "product 3", 20, product.getCreationDate(), false),
+                updatedProduct);
+        assertEquals(product.getVersion() + 1, updatedProduct.getVersion());
+    }
+
+    /**
+     *  Tests {@link ProductRepository#update(int, String, double, int, long)}
+     */
+    @Test
+    public void testUpdateVersion() {
+
+        Product product = repository.save(getProduct(-1, "product 1", 10, LocalDate.now(), false));
+        // validate product is updated only if version matches
+        assertEquals(0, repository.update(product.getId(), "product 2", 20, product.getVersion() + 1, 1));
+        assertEquals(1, repository.update(product.getId(), "product 2", 20, product.getVersion(), 1));
+        assertEquals(0, repository.update(product.getId(), "product 3", 30, product.getVersion(), 2));
+        assertEquals("product 2", repository.findNonDeletedById(product.getId()).get().getName());
+    }
+
+    /**
+     *  Tests {@link ProductRepository#softDelete(int, int, long)}
+     */
+    @Test
+    public void testSoftDeleteVersion() {
+
+        Product product = repository.save(getProduct(-1, "product 1", 10, LocalDate.now(), false));
+        // validate product is deleted only if version matches
+        assertEquals(0, repository.softDelete(product.getId(), product.getVersion() + 1, 1));
+        assertEquals(1, repository.softDelete(product.getId(), product.getVersion(), 1));
+        assertEquals(0, repository.softDelete(product.getId(), product.getVersion() + 1, 2));
+        assertTrue(repository.findAllDeleted().get(0).isDeleted());
+    }
+
+    /**
+     *  Tests {@link ProductRepository#softDelete(Integer, long)}
+     */
+    @Test
+    public void testSoftDelete() {
+
+        Product product = repository.save(getProduct(-1, "product 1", 10, LocalDate.now(), false));
+        // delete and validate
+        repository.softDelete(product.getId(), 1);
+        // product should be still accessible using findAll query
+        List<Product> products = repository.findAll();
+        assertNotNull(products);
+        assertEquals(1, products.size());
+        assertTrue(products.get(0).isDeleted());
+        // validate attributes didn't changed
+        product.markAsDeleted();
+        assertEquals(product,
+                products.stream().filter(p -> p.getId() == product.getId()).findFirst().get());
+    }
+}
@@ -0,0 +1,157 @@
+package db.test.app.product;
+
+import static db.test.app.product.TestUtils.getProduct;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import db.test.app.product.validation.ProductConflictException;
+import db.test.app.product.validation.ProductNotFoundException;
+
+/**
+ * Test of ProductService with real repository shared by storage engines.
+ * Products are not removed between tests, so assertions are relative to the created products.
+ */
+public abstract class AbstractProductServiceIntegrationTest {
+
+    @Autowired
+    protected ProductService service;
+
+    /**
+     * Tests product lifecycle (create, read, update, delete).
+     */
+    @Test
+    public void testProductLifecycle() {
+
+        Product product = service.addProduct(getProduct(0, "lifecycle product", 10, null, false));
+        assertEquals(product, service.getProduct(product.getId()));
+        // validate update with stale version is rejected
+        Product update = getProduct(0, "updated lifecycle product", 20, null, false);
+        assertThrows(ProductConflictException.class,
+                () -> service.updateProduct(product.getId(), update, product.getVersion() + 1));
+        Product updated = service.updateProduct(product.getId(), update, product.getVersion());
+        assertEquals("updated lifecycle product", updated.getName());
+        assertEquals(product.getVersion() + 1, updated.getVersion());
+        assertEquals(updated, service.getProduct(product.getId()));
+        // validate deleted product is not found any more
+        service.deleteProduct(product.getId(), updated.getVersion());
+        // validate lookup of missing product doesn't fill in stack trace
+        assertEquals(0, assertThrows(ProductNotFoundException.class,
+                () -> service.getProduct(product.getId())).getStackTrace().length);
+        assertThrows(ProductNotFoundException.class, () -> service.deleteProduct(product.getId()));
+        assertTrue(service.getDeletedProducts().stream()
+                .anyMatch(deleted -> deleted.getId() == product.getId()));
+    }
+
+    /**
+     * Tests pagination of products created in batch.
+     */
+    @Test
+    public void testGetProductsPage() {
+
+        List<ProductBatchResult> results = service.addProducts(
+                Arrays.asList(getProduct(0, "page product 1", 10, null, false),
+                        getProduct(0, "page product 2", 20, null, false),
+                        getProduct(0, "page product 3", 30, null, false)));
+        int first = results.get(0).getProduct().getId();
+        ProductPage page = service.getProducts(first - 1, 2);
+        assertEquals(Arrays.asList(results.get(0).getProduct(), results.get(1).getProduct()),
+                page.getProducts());
+        page = service.getProducts(Integer.parseInt(page.getNextCursor()), 1);
+        assertEquals(Arrays.asList(results.get(2).getProduct()), page.getProducts());
+    }
+
+    /**
+     * Tests retrieval of products by ids.
+     */
+    @Test
+    public void testGetProductsByIds() {
+
+        Product first = service.addProduct(getProduct(0, "lookup product 1", 10, null, false));
+        Product second = service.addProduct(getProduct(0, "lookup product 2", 20, null, false));
+        Product deleted = service.addProduct(getProduct(0, "lookup product 3", 30, null, false));
+        service.deleteProduct(deleted.getId());
+        ProductLookup lookup = service.getProducts(
+                Arrays.asList(second.getId(), deleted.getId(), first.getId(), second.getId(), -1));
+        assertEquals(Arrays.asList(second, first), lookup.getProducts());
+        assertEquals(Arrays.asList(deleted.getId(), -1), lookup.getMissingIds());
+    }
+
+    /**
+     * Tests bulk deletion and restoration.
+     */
+    @Test
+    public void testDeleteAndRestoreProducts() {
+
+        Product first = service.addProduct(getProduct(0, "bulk product 1", 10, null, false));
+        Product second = service.addProduct(getProduct(0, "bulk product 2", 20, null, false));
+        long count = service.getStats().getCount();
+        ProductBulkResult result = service.deleteProducts(
+                Arrays.asList(second.getId(), -1, first.getId(), second.getId()));
+        assertEquals(Arrays.asList(second.getId(), first.getId()), result.getAffectedIds());
+        assertEquals(Arrays.asList(-1), result.getMissingIds());
+        assertThrows(ProductNotFoundException.class, () -> service.getProduct(first.getId()));
+        assertEquals(count - 2, service.getStats().getCount());
+        // validate only deleted products are restored
+        result = service.restoreProducts(Arrays.asList(first.getId(), first.getId() + 1000000));
+        assertEquals(Arrays.asList(first.getId()), result.getAffectedIds());
+        assertEquals(Arrays.asList(first.getId() + 1000000), result.getMissingIds());
+        assertEquals(first.getName(), service.getProduct(first.getId()).getName());
+        assertEquals(count - 1, service.getStats().getCount());
+        assertTrue(service.searchProducts("bulk product", 10).stream()
+                .anyMatch(product -> product.getId() == first.getId()));
+    }
+
+    /**
+     * Tests only requested fields of products are returned.
+     */
+    @Test
+    public void testGetProductsFields() {
+
+        Product product = service.addProduct(getProduct(0, "fields product", 10, null, false));
+        List<ProductField> fields = Arrays.asList(ProductField.ID, ProductField.NAME);
+        List<ProductFields> products = service.getProducts(false, fields);
+        assertTrue(products.contains(ProductFields.of(fields, product)));
+    }
+
+    /**
+     * Tests serialized list of products is rebuilt after change.
+     */
+    @Test
+    public void testGetSerializedProducts() throws IOException {
+
+        byte[] before = service.getSerializedProducts(false).getJson();
+        assertSame(before, service.getSerializedProducts(false).getJson());
+        Product product = service.addProduct(getProduct(0, "serialized product", 10, null, false));
+        Product[] products = new ObjectMapper().readValue(service.getSerializedProducts(false).getJson(),
+                Product[].class);
+        assertTrue(Arrays.asList(products).contains(product));
+    }
+
+    /**
+     * Tests delta of changes contains created and deleted products.
+     */
+    @Test
+    public void testGetChanges() {
+
+        ProductDelta start = service.getChanges("0");
+        Product created = service.addProduct(getProduct(0, "delta product 1", 10, null, false));
+        Product deleted = service.addProduct(getProduct(0, "delta product 2", 10, null, false));
+        service.deleteProduct(deleted.getId());
+        ProductDelta delta = service.getChanges(start.getNextToken());
+        assertTrue(delta.getProducts().contains(created));
+        assertFalse(delta.getProducts().contains(deleted));
+        assertTrue(delta.getDeletedIds().contains(deleted.getId()));
+    }
+}
@@ -0,0 +1,84 @@
+package db.test.app.product;
+
+import static db.test.app.product.TestUtils.getProduct;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.annotation.Order;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Test of CatalogVersion.
+ */
+@SpringBootTest(properties = "product.read-model.enabled=true")
+public class CatalogVersionTest {
+
+    @Autowired
+    private ProductService service;
+
+    @Autowired
+    private CatalogVersion catalogVersion;
+
+    @Autowired
+    private VersionProbe probe;
+
+    /**
+     * Tests version is incremented only after products are updated in caches and read model.
+     */
+    @Test
+    public void testOrder() {
+
+        Product product = service.addProduct(getProduct(0, "versioned product", 10, null, false));
+        service.getProduct(product.getId());
+        long version = catalogVersion.get();
+        probe.versions.clear();
+        probe.names.clear();
+        product.setName("renamed product");
+        service.updateProduct(product.getId(), product);
+        // listener running just before the version is incremented already gets the new product
+        assertEquals(Long.valueOf(version), probe.versions.get(0));
+        assertEquals("renamed product", probe.names.get(0));
+        assertEquals(version + 1, catalogVersion.get());
+    }
+
+    /**
+     * Listener recording the version and the product just before the version is incremented.
+     */
+    static class VersionProbe {
+
+        private final List<Long> versions = new ArrayList<>();
+
+        private final List<String> names = new ArrayList<>();
+
+        @Autowired
+        private CatalogVersion catalogVersion;
+
+        @Autowired
+        private ProductService service;
+
+        @Order(CatalogVersion.ORDER - 1)
+        @TransactionalEventListener(fallbackExecution = true)
+        public void onProductChanged(ProductChangedEvent event) {
+
+            versions.add(catalogVersion.get());
+            names.add(service.getProduct(event.getId()).getName());
+        }
+    }
+
+    @TestConfiguration
+    static class ProbeConfig {
+
+        @Bean
+        public VersionProbe versionProbe() {
+
+            return new VersionProbe();
+        }
+    }
+}
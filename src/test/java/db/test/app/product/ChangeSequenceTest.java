@@ -0,0 +1,72 @@
+package db.test.app.product;
+
+import static db.test.app.product.TestUtils.getProduct;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Test of ChangeSequence.
+ */
+@SpringBootTest
+public class ChangeSequenceTest {
+
+    @Autowired
+    private ChangeSequence changeSequence;
+
+    @Autowired
+    private ProductService service;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * Tests transaction keeps its number and committed number doesn't pass it until it completes.
+     */
+    @Test
+    public void testGetCommitted() throws Exception {
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        CompletableFuture<Long> running = CompletableFuture.supplyAsync(
+                () -> new TransactionTemplate(transactionManager).execute(status -> {
+                    long sequence = changeSequence.next();
+                    assertEquals(sequence, changeSequence.next());
+                    started.countDown();
+                    await(finish);
+                    return sequence;
+                }));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        long committed = changeSequence.getCommitted();
+        // validate product changed later is returned, but the token stays before the running transaction
+        ProductDelta start = service.getChanges(Long.toString(committed));
+        Product product = service.addProduct(getProduct(0, "sequenced product", 10, null, false));
+        ProductDelta delta = service.getChanges(start.getNextToken());
+        assertTrue(delta.getProducts().contains(product));
+        assertEquals(committed, Long.parseLong(delta.getNextToken()));
+        // validate the token passes both changes once the running transaction completes
+        finish.countDown();
+        long sequence = running.get(10, TimeUnit.SECONDS);
+        long nextToken = Long.parseLong(service.getChanges(delta.getNextToken()).getNextToken());
+        assertTrue(nextToken > sequence);
+        assertTrue(nextToken >= product.getChangeSequence());
+    }
+
+    private static void await(CountDownLatch latch) {
+
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
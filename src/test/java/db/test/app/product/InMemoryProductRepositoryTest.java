@@ -0,0 +1,110 @@
+package db.test.app.product;
+
+import static db.test.app.product.TestUtils.getProduct;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import db.test.app.product.inmemory.InMemoryTransactionManager;
+
+/**
+ * Test of InMemoryProductRepository.
+ */
+public class InMemoryProductRepositoryTest extends AbstractProductRepositoryTest {
+
+    @BeforeEach
+    public void setUp() {
+
+        repository = new InMemoryProductRepository();
+    }
+
+    /**
+     * Tests changes are undone when transaction is rolled back and kept when it is committed.
+     */
+    @Test
+    public void testRollback() {
+
+        Product updated = repository.save(getProduct(0, "product 1", 10, LocalDate.now(), false));
+        Product deleted = repository.save(getProduct(0, "product 2", 20, LocalDate.now(), false));
+        TransactionTemplate transaction = new TransactionTemplate(new InMemoryTransactionManager());
+        int created = transaction.execute(status -> {
+            Product product = repository.save(getProduct(0, "product 3", 30, LocalDate.now(), false));
+            assertEquals(1, repository.update(updated.getId(), "product 4", 40, 1));
+            assertEquals(1, repository.update(updated.getId(), "product 5", 50, 2));
+            assertEquals(1, repository.setDeleted(Arrays.asList(deleted.getId()), true, 1));
+            // changes are visible to the transaction before commit
+            assertEquals("product 5", repository.findById(updated.getId()).get().getName());
+            status.setRollbackOnly();
+            return product.getId();
+        });
+        assertFalse(repository.findById(created).isPresent());
+        Product product = repository.findById(updated.getId()).get();
+        assertEquals("product 1", product.getName());
+        assertEquals(updated.getVersion(), product.getVersion());
+        assertEquals(0, product.getChangeSequence());
+        assertFalse(repository.findById(deleted.getId()).get().isDeleted());
+
+        transaction.executeWithoutResult(
+                status -> repository.softDelete(deleted.getId(), deleted.getVersion(), 2));
+        assertTrue(repository.findById(deleted.getId()).get().isDeleted());
+    }
+
+    /**
+     * Tests rows changed by a transaction are locked until it completes and other transactions
+     * read them as they were before the change.
+     */
+    @Test
+    public void testLock() throws Exception {
+
+        Product product = repository.save(getProduct(0, "product 1", 10, LocalDate.now(), false));
+        TransactionTemplate transaction = new TransactionTemplate(new InMemoryTransactionManager());
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Integer> concurrentUpdate = transaction.execute(status -> {
+                assertEquals(1, repository.update(product.getId(), "product 2", 20, 1));
+                Product inserted = repository.save(getProduct(0, "product 3", 30, LocalDate.now(), false));
+                // validate other transactions don't see uncommitted changes
+                Future<Optional<Product>> concurrentRead = executor
+                        .submit(() -> repository.findById(product.getId()));
+                assertEquals("product 1", get(concurrentRead).get().getName());
+                assertFalse(get(executor.submit(() -> repository.findById(inserted.getId()))).isPresent());
+                // validate other transaction waits for the lock
+                Future<Integer> update = executor.submit(() -> transaction.execute(
+                        concurrentStatus -> repository.update(product.getId(), "product 4", 40, 2)));
+                assertThrows(TimeoutException.class, () -> update.get(100, TimeUnit.MILLISECONDS));
+                status.setRollbackOnly();
+                return update;
+            });
+            // the other transaction changes the restored row
+            assertEquals(1, get(concurrentUpdate));
+            Product updated = repository.findById(product.getId()).get();
+            assertEquals("product 4", updated.getName());
+            assertEquals(product.getVersion() + 1, updated.getVersion());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static <T> T get(Future<T> future) {
+
+        try {
+            return future.get(10, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package db.test.app.product;
+
+import static db.test.app.product.TestUtils.getProduct;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import db.test.app.product.inmemory.InMemoryTransactionManager;
+
+/**
+ * Test of ProductService with in-memory repository (without database).
+ */
+@SpringBootTest
+@ActiveProfiles("inmemory")
+public class InMemoryProductServiceIntegrationTest extends AbstractProductServiceIntegrationTest {
+
+    @Autowired
+    private ProductStore repository;
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * Tests in-memory repository is used and there is no database.
+     */
+    @Test
+    public void testRepository() {
+
+        assertTrue(repository instanceof InMemoryProductRepository);
+        assertTrue(transactionManager instanceof InMemoryTransactionManager);
+        assertEquals(0, context.getBeanNamesForType(DataSource.class).length);
+        assertEquals(0, context.getBeanNamesForType(EntityManagerFactory.class).length);
+    }
+
+    /**
+     * Tests product created by rolled back transaction is removed and not published.
+     */
+    @Test
+    public void testRollback() {
+
+        int id = new TransactionTemplate(transactionManager).execute(status -> {
+            Product product = service.addProduct(getProduct(0, "rolled back product", 10, null, false));
+            status.setRollbackOnly();
+            return product.getId();
+        });
+        assertFalse(repository.findById(id).isPresent());
+        assertTrue(service.searchProducts("rolled", 10).isEmpty());
+    }
+}
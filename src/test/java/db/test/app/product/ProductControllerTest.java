@@ -1,31 +1,52 @@
 package db.test.app.product;
 
 import static db.test.app.product.TestUtils.getProduct;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 
+import db.test.app.product.cache.SerializedProducts;
+import db.test.app.product.stats.ProductStats;
+import db.test.app.product.validation.ProductConflictException;
 import db.test.app.product.validation.ProductNotFoundException;
 import db.test.app.product.validation.ProductValidationException;
 
@@ -42,7 +63,7 @@ public class ProductControllerTest {
     private ProductService service;
 
     /**
-     * Tests {@link ProductController#getProducts()}. 
+     * Tests {@link ProductController#getProducts(boolean, String, Integer, Double, Double, String, String, org.springframework.web.context.request.WebRequest)}. 
      */
     @Test
     public void testGetProducts() throws Exception {
@@ -52,8 +73,10 @@ public class ProductControllerTest {
         Product[] deletedProducts = { getProduct(3, "product 3", 30.50, LocalDate.now(), true),
                 getProduct(4, "product 4", 40.50, LocalDate.now(), true) };
         // setup mocks
-        when(service.getProducts()).thenReturn(Arrays.asList(nonDeletedProducts));
-        when(service.getDeletedProducts()).thenReturn(Arrays.asList(deletedProducts));
+        when(service.getSerializedProducts(false))
+                .thenReturn(new SerializedProducts(1, asJson(nonDeletedProducts).getBytes(StandardCharsets.UTF_8)));
+        when(service.getSerializedProducts(true))
+                .thenReturn(new SerializedProducts(1, asJson(deletedProducts).getBytes(StandardCharsets.UTF_8)));
         // validate without deleted parameter
         mockMvc.perform(get("/products/"))//
                 .andExpect(status().isOk())//
@@ -69,7 +92,226 @@ public class ProductControllerTest {
     }
 
     /**
-     * Tests {@link ProductController#getProduct(int)}. 
+     * Tests {@link ProductController#getProducts(boolean, String, Integer, Double, Double, String, String, org.springframework.web.context.request.WebRequest)}
+     * with gzip-compressed response. 
+     */
+    @Test
+    public void testGetProductsGzip() throws Exception {
+
+        Product[] products = { getProduct(1, "product 1", 10.50, LocalDate.now(), false) };
+        SerializedProducts serializedProducts = new SerializedProducts(1,
+                asJson(products).getBytes(StandardCharsets.UTF_8));
+        // setup mock
+        when(service.getSerializedProducts(false)).thenReturn(serializedProducts);
+        // validate compressed copy is returned
+        mockMvc.perform(get("/products/").header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))//
+                .andExpect(status().isOk())//
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))//
+                .andExpect(header().string(HttpHeaders.VARY, "Accept, Accept-Encoding"))//
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))//
+                .andExpect(content().bytes(serializedProducts.getGzip()));
+        // validate gzip can be refused
+        mockMvc.perform(get("/products/").header(HttpHeaders.ACCEPT_ENCODING, "*, gzip;q=0"))//
+                .andExpect(status().isOk())//
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))//
+                .andExpect(content().json(asJson(products), true));
+    }
+
+    /**
+     * Tests {@link ProductController#getProducts(boolean, String, Integer, Double, Double, String, String, org.springframework.web.context.request.WebRequest)}
+     * with sparse fieldset. 
+     */
+    @Test
+    public void testGetProductsFields() throws Exception {
+
+        Product[] products = { getProduct(1, "product 1", 10.50, LocalDate.of(2020, 3, 1), false),
+                getProduct(2, "product 2", 20.50, LocalDate.of(2020, 3, 2), false) };
+        List<ProductField> fields = Arrays.asList(ProductField.ID, ProductField.CREATION_DATE);
+        // setup mocks
+        when(service.getProducts(true, fields)).thenReturn(Arrays.asList(
+                ProductFields.of(fields, products[0]), ProductFields.of(fields, products[1])));
+        when(service.getProducts(0, 1)).thenReturn(new ProductPage(Arrays.asList(products[0]), "1"));
+        // validate complete list
+        mockMvc.perform(get("/products/").param("deleted", "true").param("fields", "id, creationDate,id"))//
+                .andExpect(status().isOk())//
+                .andExpect(content().json(
+                        "[{\"id\":1,\"creationDate\":\"2020-03-01\"},{\"id\":2,\"creationDate\":\"2020-03-02\"}]",
+                        true));
+        // validate page
+        mockMvc.perform(get("/products/").param("limit", "1").param("fields", "name"))//
+                .andExpect(status().isOk())//
+                .andExpect(header().string(ProductController.NEXT_CURSOR_HEADER, "1"))//
+                .andExpect(content().json("[{\"name\":\"product 1\"}]", true));
+        // validate unknown field is rejected
+        mockMvc.perform(get("/products/").param("fields", "id,deleted"))//
+                .andExpect(status().isBadRequest());
+    }
+
+    /**
+     * Tests {@link ProductController#getProductsByIds(List)} and {@link ProductController#lookupProducts(List)}. 
+     */
+    @Test
+    public void testGetProductsByIds() throws Exception {
+
+        Product[] products = { getProduct(3, "product 3", 10.50, LocalDate.now(), false),
+                getProduct(1, "product 1", 20.50, LocalDate.now(), false) };
+        // setup mock
+        when(service.getProducts(Arrays.asList(3, 2, 1)))
+                .thenReturn(new ProductLookup(Arrays.asList(products), Arrays.asList(2)));
+        // validate
+        String expected = "{\"products\":" + asJson(products) + ",\"missingIds\":[2]}";
+        mockMvc.perform(get("/products/").param("ids", "3,2,1"))//
+                .andExpect(status().isOk())//
+                .andExpect(content().json(expected, true));
+        mockMvc.perform(post("/products/lookup").contentType(MediaType.APPLICATION_JSON).content("[3,2,1]"))//
+                .andExpect(status().isOk())//
+                .andExpect(content().json(expected, true));
+        mockMvc.perform(get("/products/").param("ids", "3,x"))//
+                .andExpect(status().isBadRequest());
+    }
+
+    /**
+     * Tests {@link ProductController#prefersJson(String)} and {@link ProductController#acceptsGzip(String)}.
+     */
+    @Test
+    public void testNegotiation() {
+
+        assertTrue(ProductController.prefersJson(null));
+        assertTrue(ProductController.prefersJson("*/*"));
+        assertTrue(ProductController.prefersJson("application/json, application/cbor"));
+        assertTrue(ProductController.prefersJson("application/cbor;q=0.5, application/*"));
+        assertFalse(ProductController.prefersJson("application/cbor"));
+        assertFalse(ProductController.prefersJson("application/x-jackson-smile, */*;q=0.1"));
+        assertFalse(ProductController.prefersJson("text/html"));
+        assertFalse(ProductController.acceptsGzip(null));
+        assertFalse(ProductController.acceptsGzip("deflate, gzip;q=0.0"));
+        assertTrue(ProductController.acceptsGzip("deflate, GZIP;q=0.8"));
+        assertTrue(ProductController.acceptsGzip("*"));
+    }
+
+    /**
+     * Tests {@link ProductController#getProducts(boolean, String, Integer, Double, Double, String, String, org.springframework.web.context.request.WebRequest)} with pagination. 
+     */
+    @Test
+    public void testGetProductsPage() throws Exception {
+
+        Product[] nonDeletedProducts = { getProduct(1, "product 1", 10.50, LocalDate.now(), false),
+                getProduct(2, "product 2", 20.50, LocalDate.now(), false) };
+        Product[] deletedProducts = { getProduct(3, "product 3", 30.50, LocalDate.now(), true) };
+        // setup mocks
+        when(service.getProducts(0, 2))
+                .thenReturn(new ProductPage(Arrays.asList(nonDeletedProducts), "2"));
+        when(service.getDeletedProducts(2, ProductController.DEFAULT_PAGE_SIZE))
+                .thenReturn(new ProductPage(Arrays.asList(deletedProducts), null));
+        // validate first page with next cursor
+        mockMvc.perform(get("/products/").param("limit", "2"))//
+                .andExpect(status().isOk())//
+                .andExpect(header().string(ProductController.NEXT_CURSOR_HEADER, "2"))//
+                .andExpect(content().json(asJson(nonDeletedProducts), true));
+        // validate last page without next cursor
+        mockMvc.perform(get("/products/").param("deleted", "true").param("after", "2"))//
+                .andExpect(status().isOk())//
+                .andExpect(header().doesNotExist(ProductController.NEXT_CURSOR_HEADER))//
+                .andExpect(content().json(asJson(deletedProducts), true));
+    }
+
+    /**
+     * Tests {@link ProductController#getProducts(boolean, String, Integer, Double, Double, String, String, org.springframework.web.context.request.WebRequest)}
+     * with price range and order. 
+     */
+    @Test
+    public void testGetProductsByPrice() throws Exception {
+
+        Product[] products = { getProduct(2, "product 2", 10.50, LocalDate.now(), false),
+                getProduct(1, "product 1", 20.50, LocalDate.now(), false) };
+        // setup mocks
+        when(service.getProducts(false, 10, 30, ProductSort.PRICE, null, 2))
+                .thenReturn(new ProductPage(Arrays.asList(products), "20.5_1"));
+        when(service.getProducts(true, -Double.MAX_VALUE, 30, ProductSort.ID, "1",
+                ProductController.DEFAULT_PAGE_SIZE))
+                        .thenReturn(new ProductPage(Arrays.asList(products[0]), null));
+        // validate price range ordered by price
+        mockMvc.perform(get("/products/").param("minPrice", "10").param("maxPrice", "30")
+                .param("sort", "price").param("limit", "2"))//
+                .andExpect(status().isOk())//
+                .andExpect(header().string(ProductController.NEXT_CURSOR_HEADER, "20.5_1"))//
+                .andExpect(content().json(asJson(products), true));
+        // validate price range ordered by id
+        mockMvc.perform(get("/products/").param("deleted", "true").param("maxPrice", "30")
+                .param("after", "1"))//
+                .andExpect(status().isOk())//
+                .andExpect(header().doesNotExist(ProductController.NEXT_CURSOR_HEADER))//
+                .andExpect(content().json(asJson(new Product[] { products[0] }), true));
+        // validate invalid parameters
+        mockMvc.perform(get("/products/").param("minPrice", "30").param("maxPrice", "10"))//
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/products/").param("sort", "name"))//
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/products/").param("after", "x"))//
+                .andExpect(status().isBadRequest());
+    }
+
+    /**
+     * Tests {@link ProductController#getChanges(String)}. 
+     */
+    @Test
+    public void testGetChanges() throws Exception {
+
+        Product product = getProduct(1, "product 1", 10.50, LocalDate.now(), false);
+        // setup mocks
+        when(service.getChanges("1000"))
+                .thenReturn(new ProductDelta(Arrays.asList(product), Arrays.asList(2), "2000"));
+        // validate
+        mockMvc.perform(get("/products/").param("modifiedSince", "1000"))//
+                .andExpect(status().isOk())//
+                .andExpect(content().json("{\"products\":[" + asJson(product)
+                        + "],\"deletedIds\":[2],\"nextToken\":\"2000\"}", true));
+    }
+
+    /**
+     * Tests {@link ProductController#exportProducts(boolean)}. 
+     */
+    @Test
+    public void testExportProducts() throws Exception {
+
+        Product[] deletedProducts = { getProduct(3, "product 3", 30.50, LocalDate.now(), true),
+                getProduct(4, "product 4", 40.50, LocalDate.now(), true) };
+        // setup mock
+        doAnswer(i -> {
+            Consumer<Product> consumer = i.getArgument(1);
+            Arrays.stream(deletedProducts).forEach(consumer);
+            return null;
+        }).when(service).exportProducts(eq(true), any());
+        // validate each product is written on separate line
+        MvcResult result = mockMvc
+                .perform(get("/products/").param("deleted", "true")
+                        .accept(ProductController.APPLICATION_NDJSON_VALUE))//
+                .andExpect(request().asyncStarted())//
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))//
+                .andExpect(status().isOk())//
+                .andExpect(content().contentType(ProductController.APPLICATION_NDJSON_VALUE))//
+                .andExpect(content().string(
+                        asJson(deletedProducts[0]) + "\n" + asJson(deletedProducts[1]) + "\n"));
+    }
+
+    /**
+     * Tests {@link ProductController#getStats()}. 
+     */
+    @Test
+    public void testGetStats() throws Exception {
+
+        // setup mocks
+        when(service.getStats()).thenReturn(new ProductStats(2, 1, 10.0, 30.0, 40.0));
+        // validate
+        mockMvc.perform(get("/products/stats"))//
+                .andExpect(status().isOk())//
+                .andExpect(content().json("{\"count\":2,\"deletedCount\":1,\"minPrice\":10.0,"
+                        + "\"maxPrice\":30.0,\"totalPrice\":40.0,\"averagePrice\":20.0}", true));
+    }
+
+    /**
+     * Tests {@link ProductController#getProduct(int, org.springframework.web.context.request.WebRequest)}. 
      */
     @Test
     public void testGetProduct() throws Exception {
@@ -89,6 +331,70 @@ public class ProductControllerTest {
                 .andExpect(status().isBadRequest());
     }
 
+    /**
+     * Tests {@link ProductController#searchProducts(String, int)}. 
+     */
+    @Test
+    public void testSearchProducts() throws Exception {
+
+        Product[] products = { getProduct(1, "red apple", 10.50, LocalDate.now(), false),
+                getProduct(2, "red apples", 20.50, LocalDate.now(), false) };
+        // setup mocks
+        when(service.searchProducts("red app", 20)).thenReturn(Arrays.asList(products));
+        when(service.searchProducts("red app", 1)).thenReturn(Arrays.asList(products[0]));
+        // validate with default limit
+        mockMvc.perform(get("/products/search").param("q", "red app"))//
+                .andExpect(status().isOk())//
+                .andExpect(content().json(asJson(products), true));
+        // validate with limit
+        mockMvc.perform(get("/products/search").param("q", "red app").param("limit", "1"))//
+                .andExpect(status().isOk())//
+                .andExpect(content().json(asJson(new Product[] { products[0] }), true));
+        // validate without query
+        mockMvc.perform(get("/products/search"))//
+                .andExpect(status().isBadRequest());
+    }
+
+    /**
+     * Tests conditional requests of {@link ProductController#getProducts(boolean, String, Integer, Double, Double, String, String, org.springframework.web.context.request.WebRequest)}
+     * and {@link ProductController#getProduct(int, org.springframework.web.context.request.WebRequest)}. 
+     */
+    @Test
+    public void testNotModified() throws Exception {
+
+        String etag = "W/\"1-1\"";
+        // setup mocks
+        when(service.getCatalogEntityTag()).thenReturn(etag);
+        when(service.getSerializedProducts(false))
+                .thenReturn(new SerializedProducts(1, "[]".getBytes(StandardCharsets.UTF_8)));
+        when(service.getProduct(1))
+                .thenReturn(getProduct(1, "product 1", 10.50, LocalDate.now(), false));
+        // validate entity tag is returned
+        mockMvc.perform(get("/products/1"))//
+                .andExpect(status().isOk())//
+                .andExpect(header().string(HttpHeaders.ETAG, etag))//
+                .andExpect(header().string(HttpHeaders.VARY, "Accept, Accept-Encoding"));
+        // validate products are not retrieved if entity tag matches
+        mockMvc.perform(get("/products/").header(HttpHeaders.IF_NONE_MATCH, etag))//
+                .andExpect(status().isNotModified())//
+                .andExpect(header().string(HttpHeaders.VARY, "Accept, Accept-Encoding"))//
+                .andExpect(content().string(""));
+        mockMvc.perform(get("/products/1").header(HttpHeaders.IF_NONE_MATCH, etag))//
+                .andExpect(status().isNotModified());
+        verify(service, never()).getSerializedProducts(false);
+        verify(service).getProduct(1);
+        // validate products are retrieved if entity tag doesn't match
+        mockMvc.perform(get("/products/").header(HttpHeaders.IF_NONE_MATCH, "W/\"1-0\""))//
+                .andExpect(status().isOk())//
+                .andExpect(header().string(HttpHeaders.ETAG, etag))//
+                .andExpect(header().string(HttpHeaders.VARY, "Accept, Accept-Encoding"));
+        // validate CBOR representation of the same version is not modified either
+        mockMvc.perform(get("/products/").accept("application/cbor")
+                .header(HttpHeaders.IF_NONE_MATCH, etag))//
+                .andExpect(status().isNotModified());
+        verify(service).getSerializedProducts(false);
+    }
+
     /**
      * Tests {@link ProductController#addProduct(Product)}. 
      */
@@ -105,6 +411,40 @@ public class ProductControllerTest {
                 .andExpect(content().json(asJson(product), true));
     }
 
+    /**
+     * Tests {@link ProductController#getProducts(boolean, String, Integer, Double, Double, String, String, org.springframework.web.context.request.WebRequest)}
+     * and {@link ProductController#addProduct(Product)} with CBOR and Smile content. 
+     */
+    @Test
+    public void testBinaryFormats() throws Exception {
+
+        Product[] products = { getProduct(1, "product 1", 10.50, LocalDate.of(2020, 3, 1), false),
+                getProduct(2, "product 2", 20.50, LocalDate.of(2020, 3, 2), false) };
+        // setup mocks
+        when(service.getProducts()).thenReturn(Arrays.asList(products));
+        when(service.addProduct(any(Product.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        for (ObjectMapper mapper : Arrays.asList(new ObjectMapper(new CBORFactory()),
+                new ObjectMapper(new SmileFactory()))) {
+            MediaType mediaType = MediaType.parseMediaType(mapper.getFactory() instanceof CBORFactory
+                    ? "application/cbor"
+                    : "application/x-jackson-smile");
+            // validate list response
+            MvcResult result = mockMvc.perform(get("/products/").accept(mediaType))//
+                    .andExpect(status().isOk())//
+                    .andExpect(content().contentType(mediaType))//
+                    .andReturn();
+            assertArrayEquals(products,
+                    mapper.readValue(result.getResponse().getContentAsByteArray(), Product[].class));
+            // validate request and response body
+            result = mockMvc.perform(post("/products/").contentType(mediaType).accept(mediaType)
+                    .content(mapper.writeValueAsBytes(products[0])))//
+                    .andExpect(status().isOk())//
+                    .andExpect(content().contentType(mediaType))//
+                    .andReturn();
+            assertEquals(products[0], mapper.readValue(result.getResponse().getContentAsByteArray(), Product.class));
+        }
+    }
+
     /**
      * Tests {@link ProductController#addProduct(Product)}. 
      */
@@ -121,15 +461,36 @@ public class ProductControllerTest {
     }
 
     /**
-     * Tests {@link ProductController#updateProduct(int, Product)}. 
+     * Tests {@link ProductController#addProducts(java.util.List)}. 
+     */
+    @Test
+    public void testAddProducts() throws Exception {
+
+        Product[] products = { getProduct(1, "product 1", 10.50, LocalDate.now(), false),
+                new Product() };
+        // setup mock
+        when(service.addProducts(any())).thenReturn(
+                Arrays.asList(ProductBatchResult.created(products[0]),
+                        ProductBatchResult.invalid("validation error")));
+        // validate result is returned for each product
+        mockMvc.perform(post("/products/batch").contentType(MediaType.APPLICATION_JSON)
+                .content(asJson(products)))//
+                .andExpect(status().isOk())//
+                .andExpect(content().json("[{\"status\":\"CREATED\",\"product\":"
+                        + asJson(products[0])
+                        + "},{\"status\":\"INVALID\",\"error\":\"validation error\"}]", true));
+    }
+
+    /**
+     * Tests {@link ProductController#updateProduct(int, Product, String)}. 
      */
     @Test
     public void testUpdateProduct() throws Exception {
 
         Product product = getProduct(1, "product 1", 10.50, LocalDate.now(), false);
         // setup mocks
-        when(service.updateProduct(eq(1), any(Product.class))).thenReturn(product);
-        when(service.updateProduct(eq(2), any(Product.class)))
+        when(service.updateProduct(eq(1), any(Product.class), isNull())).thenReturn(product);
+        when(service.updateProduct(eq(2), any(Product.class), isNull()))
                 .thenThrow(new ProductNotFoundException());
         // validate
         mockMvc.perform(
@@ -142,20 +503,76 @@ public class ProductControllerTest {
     }
 
     /**
-     * Tests {@link ProductController#deleteProduct(int)}. 
+     * Tests {@link ProductController#updateProduct(int, Product, String)} with If-Match header. 
+     */
+    @Test
+    public void testUpdateProductVersion() throws Exception {
+
+        Product product = getProduct(1, "product 1", 10.50, LocalDate.now(), false);
+        // setup mocks
+        when(service.updateProduct(eq(1), any(Product.class), eq(1))).thenReturn(product);
+        when(service.updateProduct(eq(1), any(Product.class), eq(2)))
+                .thenThrow(new ProductConflictException());
+        // validate
+        mockMvc.perform(put("/products/1").header(HttpHeaders.IF_MATCH, "\"1\"")
+                .contentType(MediaType.APPLICATION_JSON).content(asJson(product)))//
+                .andExpect(status().isOk())//
+                .andExpect(content().json(asJson(product), true));
+        mockMvc.perform(put("/products/1").header(HttpHeaders.IF_MATCH, "2")
+                .contentType(MediaType.APPLICATION_JSON).content(asJson(product)))//
+                .andExpect(status().isConflict());
+        mockMvc.perform(put("/products/1").header(HttpHeaders.IF_MATCH, "version")
+                .contentType(MediaType.APPLICATION_JSON).content(asJson(product)))//
+                .andExpect(status().isBadRequest());
+        // catalog ETag returned with the product can't match its version
+        mockMvc.perform(put("/products/1").header(HttpHeaders.IF_MATCH, "\"17a-2\"")
+                .contentType(MediaType.APPLICATION_JSON).content(asJson(product)))//
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(put("/products/1").header(HttpHeaders.IF_MATCH, "W/\"1\"")
+                .contentType(MediaType.APPLICATION_JSON).content(asJson(product)))//
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    /**
+     * Tests {@link ProductController#deleteProduct(int, String)}. 
      */
     @Test
     public void testDeleteProduct() throws Exception {
 
-        doNothing().when(service).deleteProduct(1);
+        doNothing().when(service).deleteProduct(eq(1), isNull());
         // setup mock
-        doThrow(new ProductNotFoundException()).when(service).deleteProduct(2);
+        doThrow(new ProductNotFoundException()).when(service).deleteProduct(eq(2), isNull());
+        doThrow(new ProductConflictException()).when(service).deleteProduct(1, 2);
         // validate
         mockMvc.perform(delete("/products/1"))//
                 .andExpect(status().isOk())//
                 .andExpect(content().string(""));
         mockMvc.perform(delete("/products/2"))//
                 .andExpect(status().isNotFound());
+        mockMvc.perform(delete("/products/1").header(HttpHeaders.IF_MATCH, "\"2\""))//
+                .andExpect(status().isConflict());
+        mockMvc.perform(delete("/products/1").header(HttpHeaders.IF_MATCH, "\"17a-2\""))//
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    /**
+     * Tests {@link ProductController#deleteProducts(java.util.List)} and {@link ProductController#restoreProducts(java.util.List)}. 
+     */
+    @Test
+    public void testDeleteAndRestoreProducts() throws Exception {
+
+        // setup mocks
+        when(service.deleteProducts(Arrays.asList(1, 2, 3)))
+                .thenReturn(new ProductBulkResult(Arrays.asList(1, 3), Arrays.asList(2)));
+        when(service.restoreProducts(Arrays.asList(1)))
+                .thenReturn(new ProductBulkResult(Arrays.asList(1), Arrays.asList()));
+        // validate
+        mockMvc.perform(post("/products/delete").contentType(MediaType.APPLICATION_JSON).content("[1,2,3]"))//
+                .andExpect(status().isOk())//
+                .andExpect(content().json("{\"affectedIds\":[1,3],\"missingIds\":[2]}", true));
+        mockMvc.perform(post("/products/restore").contentType(MediaType.APPLICATION_JSON).content("[1]"))//
+                .andExpect(status().isOk())//
+                .andExpect(content().json("{\"affectedIds\":[1],\"missingIds\":[]}", true));
     }
 
     private String asJson(Product product) throws JsonProcessingException {
@@ -0,0 +1,10 @@
+package db.test.app.product;
+
+import org.springframework.boot.test.context.SpringBootTest;
+
+/**
+ * Test of ProductService with JPA repository and embedded database.
+ */
+@SpringBootTest
+public class ProductServiceIntegrationTest extends AbstractProductServiceIntegrationTest {
+}
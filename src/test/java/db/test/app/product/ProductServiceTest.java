@@ -2,40 +2,83 @@ package db.test.app.product;
 
 import static db.test.app.product.TestUtils.getProduct;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
-import static org.mockito.AdditionalAnswers.returnsFirstArg;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.Answers;
 import org.mockito.invocation.InvocationOnMock;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageRequest;
 
+import db.test.app.product.cache.ProductCache;
+import db.test.app.product.search.ProductPriceIndex;
+import db.test.app.product.stats.ProductStats;
+import db.test.app.product.validation.ProductConflictException;
 import db.test.app.product.validation.ProductNotFoundException;
 import db.test.app.product.validation.ProductValidationException;
 
 /**
  * Test of ProductService.
- * It uses mocked JPA repository.
+ * It uses mocked JPA repository, so filter of product ids (filled from the database on startup) is disabled.
  */
-@SpringBootTest
+@SpringBootTest(properties = "product.id-filter.enabled=false")
 public class ProductServiceTest {
 
+    private static final long CHANGE = 7;
+
     @Autowired
     private ProductService service;
 
+    // mocks are returned for unstubbed methods so that aggregates read on startup are empty
+    @MockBean(answer = Answers.RETURNS_MOCKS)
+    private ProductStore repository;
+
+    // all changes get the same number
     @MockBean
-    private ProductRepository repository;
+    private ChangeSequence changeSequence;
+
+    @Autowired
+    private ProductCache cache;
+
+    @Autowired
+    private ProductPriceIndex priceIndex;
+
+    @BeforeEach
+    public void setUp() {
+
+        cache.invalidateAll();
+        when(changeSequence.next()).thenReturn(CHANGE);
+    }
 
     private Product[] getProducts() {
 
@@ -83,6 +126,123 @@ public class ProductServiceTest {
         assertTrue(Arrays.deepEquals(getDeletedProducts(), asArray(products)));
     }
 
+    /**
+     * Tests {@link ProductService#getProducts(int, int)}.
+     */
+    @Test
+    public void testGetProductsPage() {
+
+        Product[] products = getProducts();
+        // setup mocks - one more product than requested is fetched
+        when(repository.findPage(false, 0, PageRequest.of(0, 3)))
+                .thenReturn(asList(products[0], products[1], products[2]));
+        when(repository.findPage(false, 2, PageRequest.of(0, 3)))
+                .thenReturn(asList(products[2], products[3]));
+
+        // validate first page contains requested number of products and cursor of next page
+        ProductPage page = service.getProducts(0, 2);
+        assertTrue(Arrays.deepEquals(new Product[] { products[0], products[1] },
+                asArray(page.getProducts())));
+        assertEquals("2", page.getNextCursor());
+        // validate last page has no next cursor
+        page = service.getProducts(2, 2);
+        assertTrue(Arrays.deepEquals(new Product[] { products[2], products[3] },
+                asArray(page.getProducts())));
+        assertNull(page.getNextCursor());
+    }
+
+    /**
+     * Tests {@link ProductService#getProducts(boolean, double, double, ProductSort, String, int)}
+     * using the price index.
+     */
+    @Test
+    public void testGetProductsByPrice() {
+
+        Product[] products = { getProduct(200, "product 200", 1000.5, LocalDate.now(), false),
+                getProduct(201, "product 201", 1000.75, LocalDate.now(), false) };
+        // setup mocks - products are read only by ids found in the price index
+        when(repository.findNonDeletedByIds(Arrays.asList(200))).thenReturn(asList(products[0]));
+        when(repository.findNonDeletedByIds(Arrays.asList(201))).thenReturn(asList(products[1]));
+        priceIndex.put(200, 1000.5);
+        priceIndex.put(201, 1000.75);
+        priceIndex.put(202, 2000);
+
+        // validate pages are found in the price index
+        ProductPage page = service.getProducts(false, 1000, 1500, ProductSort.PRICE, null, 1);
+        assertEquals(asList(products[0]), page.getProducts());
+        assertEquals("1000.5_200", page.getNextCursor());
+        page = service.getProducts(false, 1000, 1500, ProductSort.PRICE, page.getNextCursor(), 1);
+        assertEquals(asList(products[1]), page.getProducts());
+        assertNull(page.getNextCursor());
+        verify(repository, times(0)).findPriceRangePageByPrice(eq(false), anyDouble(),
+                anyDouble(), anyDouble(), anyInt(), any());
+        priceIndex.remove(200);
+        priceIndex.remove(201);
+        priceIndex.remove(202);
+    }
+
+    /**
+     * Tests {@link ProductService#getProducts(boolean, double, double, ProductSort, String, int)}
+     * using the database.
+     */
+    @Test
+    public void testGetDeletedProductsByPrice() {
+
+        Product[] products = getDeletedProducts();
+        // setup mocks - one more product than requested is fetched
+        when(repository.findPriceRangePageByPrice(true, 10, 50, -Double.MAX_VALUE, 0,
+                PageRequest.of(0, 2))).thenReturn(asList(products[0], products[1]));
+        when(repository.findPriceRangePage(true, 10, 50, 5, PageRequest.of(0, 2)))
+                .thenReturn(asList(products[1]));
+
+        // validate cursor contains price and id
+        ProductPage page = service.getProducts(true, 10, 50, ProductSort.PRICE, null, 1);
+        assertEquals(asList(products[0]), page.getProducts());
+        assertEquals(new PriceCursor(products[0].getPrice(), products[0].getId()).toString(),
+                page.getNextCursor());
+        // validate order by id
+        page = service.getProducts(true, 10, 50, ProductSort.ID, "5", 1);
+        assertEquals(asList(products[1]), page.getProducts());
+        assertNull(page.getNextCursor());
+        // validate invalid cursors
+        assertThrows(ProductValidationException.class,
+                () -> service.getProducts(true, 10, 50, ProductSort.PRICE, "5", 1));
+        assertThrows(ProductValidationException.class,
+                () -> service.getProducts(true, 10, 50, ProductSort.ID, "5_1", 1));
+    }
+
+    /**
+     * Tests {@link ProductService#getDeletedProducts(int, int)}.
+     */
+    @Test
+    public void testGetDeletedProductsPage() {
+
+        // setup mock
+        when(repository.findPage(eq(true), eq(0), any(PageRequest.class)))
+                .thenReturn(asList(getDeletedProducts()));
+
+        // validate limit is adjusted to allowed range
+        service.getDeletedProducts(0, 0);
+        verify(repository).findPage(true, 0, PageRequest.of(0, 2));
+        service.getDeletedProducts(0, Integer.MAX_VALUE);
+        verify(repository).findPage(true, 0, PageRequest.of(0, ProductService.MAX_PAGE_SIZE + 1));
+    }
+
+    /**
+     * Tests {@link ProductService#exportProducts(boolean, java.util.function.Consumer)}.
+     */
+    @Test
+    public void testExportProducts() {
+
+        // setup mock
+        when(repository.streamAll(false)).thenReturn(Stream.of(getProducts()));
+        List<Product> products = new ArrayList<>();
+        service.exportProducts(false, products::add);
+
+        // validate all products are passed without modifications
+        assertTrue(Arrays.deepEquals(getProducts(), asArray(products)));
+    }
+
     /**
      * Tests {@link ProductService#getProduct(int)}.
      */
@@ -99,6 +259,63 @@ public class ProductServiceTest {
         assertThrows(ProductNotFoundException.class, () -> service.getProduct(5));
     }
 
+    /**
+     * Tests {@link ProductService#getProduct(int)} called while slow load of the same product is in flight
+     * reads the product itself after coalescing timeout instead of waiting for the load in the cache.
+     */
+    @Test
+    public void testGetProductSlowLoad() throws Exception {
+
+        Product originalProduct = getProducts()[0];
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        // setup mock - the first load is blocked until released
+        when(repository.findNonDeletedById(1)).thenAnswer(i -> {
+            if (loads.getAndIncrement() == 0) {
+                release.await(30, TimeUnit.SECONDS);
+            }
+            return Optional.of(originalProduct);
+        });
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Product> slow = executor.submit(() -> service.getProduct(1));
+            while (loads.get() == 0) {
+                Thread.sleep(1);
+            }
+            // validate the second caller gets the product while the first load is still blocked
+            assertEquals(originalProduct, service.getProduct(1));
+            assertFalse(slow.isDone());
+            assertEquals(2, loads.get());
+            release.countDown();
+            assertEquals(originalProduct, slow.get(10, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Tests {@link ProductService#getProduct(int)} uses cache.
+     */
+    @Test
+    public void testGetCachedProduct() {
+
+        Product originalProduct = getProducts()[0];
+        // setup mocks
+        when(repository.findNonDeletedById(1)).thenReturn(Optional.of(originalProduct));
+        when(repository.update(1, "product", 10, CHANGE)).thenReturn(1);
+
+        // validate product is loaded only once
+        assertEquals(originalProduct, service.getProduct(1));
+        assertEquals(originalProduct, service.getProduct(1));
+        verify(repository, times(1)).findNonDeletedById(1);
+        // validate cached product is invalidated by update (which reads updated product)
+        service.updateProduct(1, getProduct(-1, "product", 10, null, false));
+        service.getProduct(1);
+        verify(repository, times(3)).findNonDeletedById(1);
+    }
+
     /**
      * Tests {@link ProductService#addProduct(Product)}.
      */
@@ -121,6 +338,34 @@ public class ProductServiceTest {
         assertEquals(expectedProduct, newProduct);
     }
 
+    /**
+     * Tests {@link ProductService#addProducts(List)}.
+     */
+    @Test
+    public void testAddProducts() {
+
+        int generatedId = 1;
+        Product invalidProduct = getProduct(0, null, 0, null, false);
+        Product validProduct = getProduct(-1, "product", 10, LocalDate.now().minusDays(10), false);
+        Product expectedProduct = getProduct(generatedId, "product", 10, LocalDate.now(), false);
+
+        // setup mock
+        when(repository.save(any(Product.class))).thenAnswer(i -> updateId(i, generatedId));
+
+        // validate results are in the same order as products
+        List<ProductBatchResult> results = service
+                .addProducts(Arrays.asList(invalidProduct, validProduct, null));
+        assertEquals(3, results.size());
+        assertEquals(ProductBatchResult.Status.INVALID, results.get(0).getStatus());
+        assertNotNull(results.get(0).getError());
+        assertEquals(ProductBatchResult.Status.CREATED, results.get(1).getStatus());
+        assertEquals(expectedProduct, results.get(1).getProduct());
+        assertEquals(ProductBatchResult.Status.INVALID, results.get(2).getStatus());
+        // validate size of the batch is limited
+        assertThrows(ProductValidationException.class, () -> service.addProducts(
+                Arrays.asList(new Product[ProductService.MAX_BATCH_SIZE + 1])));
+    }
+
     /**
      * Tests {@link ProductService#updateProduct(int, Product)}.
      */
@@ -133,10 +378,10 @@ public class ProductServiceTest {
         Product expectedProduct = getProduct(originalProduct.getId(), "product", 10,
                 originalProduct.getCreationDate(), false);
 
-        // setup mocks
-        when(repository.findNonDeletedById(1)).thenReturn(Optional.of(originalProduct));
-        when(repository.findNonDeletedById(5)).thenReturn(Optional.empty());
-        when(repository.save(any(Product.class))).thenAnswer(returnsFirstArg());
+        // setup mocks - product is updated with single statement and read afterwards
+        when(repository.update(1, "product", 10, CHANGE)).thenReturn(1);
+        when(repository.update(5, "product", 10, CHANGE)).thenReturn(0);
+        when(repository.findNonDeletedById(1)).thenReturn(Optional.of(expectedProduct));
 
         // validate non-existing id is properly handled
         assertThrows(ProductNotFoundException.class, () -> service.updateProduct(5, validProduct));
@@ -147,6 +392,29 @@ public class ProductServiceTest {
         // validate if name and price are updated and id and creationDate didn't change
         assertNotNull(updatedProduct);
         assertEquals(expectedProduct, updatedProduct);
+        verify(repository).update(1, "product", 10, CHANGE);
+    }
+
+    /**
+     * Tests {@link ProductService#updateProduct(int, Product, Integer)}.
+     */
+    @Test
+    public void testUpdateProductVersion() {
+
+        Product validProduct = getProduct(-1, "product", 10, LocalDate.now().minusDays(10), false);
+
+        // setup mocks - product 1 has version 1
+        when(repository.update(1, "product", 10, 1, CHANGE)).thenReturn(1);
+        when(repository.update(1, "product", 10, 2, CHANGE)).thenReturn(0);
+        when(repository.update(5, "product", 10, 1, CHANGE)).thenReturn(0);
+        when(repository.findNonDeletedById(1)).thenReturn(Optional.of(getProducts()[0]));
+
+        // validate version mismatch and non-existing id are properly handled
+        assertThrows(ProductConflictException.class,
+                () -> service.updateProduct(1, validProduct, 2));
+        assertThrows(ProductNotFoundException.class,
+                () -> service.updateProduct(5, validProduct, 1));
+        assertNotNull(service.updateProduct(1, validProduct, 1));
     }
 
     /**
@@ -155,22 +423,133 @@ public class ProductServiceTest {
     @Test
     public void testDeleteProduct() {
 
-        Product productToBeDeleted = getProducts()[0];
-        Product expectedProduct = getProducts()[0];
-        expectedProduct.markAsDeleted();
-
-        // setup mocks
-        when(repository.findNonDeletedById(1)).thenReturn(Optional.of(productToBeDeleted));
-        when(repository.findNonDeletedById(5)).thenReturn(Optional.empty());
-        when(repository.save(any(Product.class))).thenAnswer(returnsFirstArg());
+        // setup mocks - product is deleted with single statement
+        when(repository.softDelete(1, CHANGE)).thenReturn(1);
+        when(repository.softDelete(5, CHANGE)).thenReturn(0);
 
         service.deleteProduct(1);
-        // validate product is marked as deleted
-        assertEquals(expectedProduct, productToBeDeleted);
+        // validate product is deleted without reading it
+        verify(repository).softDelete(1, CHANGE);
+        verify(repository, times(0)).findNonDeletedById(1);
         // validate non-existing id is properly handled
         assertThrows(ProductNotFoundException.class, () -> service.deleteProduct(5));
     }
 
+    /**
+     * Tests {@link ProductService#deleteProduct(int, Integer)}.
+     */
+    @Test
+    public void testDeleteProductVersion() {
+
+        // setup mocks - product 1 has version 1
+        when(repository.softDelete(1, 1, CHANGE)).thenReturn(1);
+        when(repository.softDelete(1, 2, CHANGE)).thenReturn(0);
+        when(repository.softDelete(5, 1, CHANGE)).thenReturn(0);
+        when(repository.findNonDeletedById(1)).thenReturn(Optional.of(getProducts()[0]));
+
+        // validate version mismatch and non-existing id are properly handled
+        assertThrows(ProductConflictException.class, () -> service.deleteProduct(1, 2));
+        assertThrows(ProductNotFoundException.class, () -> service.deleteProduct(5, 1));
+        service.deleteProduct(1, 1);
+        verify(repository).softDelete(1, 1, CHANGE);
+        // validate deleted product is not read back (its version is the expected one incremented)
+        verify(repository, never()).findById(1);
+    }
+
+    /**
+     * Tests {@link ProductService#searchProducts(String, int)}.
+     */
+    @Test
+    public void testSearchProducts() {
+
+        int generatedId = 100;
+        // setup mocks
+        when(repository.save(any(Product.class))).thenAnswer(i -> updateId(i, generatedId));
+        when(repository.softDelete(generatedId, CHANGE)).thenReturn(1);
+
+        // validate search index follows changes of products
+        assertTrue(service.searchProducts("searchable", 10).isEmpty());
+        Product product = service.addProduct(getProduct(-1, "searchable product", 10, null, false));
+        assertEquals(Arrays.asList(product), service.searchProducts("search", 10));
+        service.deleteProduct(generatedId);
+        assertTrue(service.searchProducts("searchable", 10).isEmpty());
+    }
+
+    /**
+     * Tests {@link ProductService#getChanges(String)}.
+     */
+    @Test
+    public void testGetChanges() {
+
+        Product[] products = getProducts();
+        products[1].markAsDeleted();
+        // setup mocks
+        when(repository.findChangedAfter(1000)).thenReturn(asList(products[0], products[1]));
+        when(changeSequence.getCommitted()).thenReturn(1010L);
+
+        // validate deleted products are returned only as ids
+        ProductDelta delta = service.getChanges("1000");
+        assertEquals(asList(products[0]), delta.getProducts());
+        assertEquals(Arrays.asList(products[1].getId()), delta.getDeletedIds());
+        // validate next token is the highest committed number of the change
+        assertEquals("1010", delta.getNextToken());
+        assertThrows(ProductValidationException.class, () -> service.getChanges("x"));
+    }
+
+    /**
+     * Tests {@link ProductService#getStats()}.
+     */
+    @Test
+    public void testGetStats() {
+
+        // setup mocks
+        when(repository.save(any(Product.class))).thenAnswer(i -> updateId(i, 300));
+        Product updatedProduct = getProduct(300, "product", 20, LocalDate.now(), false);
+        updatedProduct.setVersion(1);
+        Product deletedProduct = getProduct(300, "product", 20, LocalDate.now(), true);
+        deletedProduct.setVersion(2);
+        when(repository.update(300, "product", 20, CHANGE)).thenReturn(1);
+        when(repository.findNonDeletedById(300)).thenReturn(Optional.of(updatedProduct));
+        when(repository.softDelete(300, CHANGE)).thenReturn(1);
+        when(repository.findById(300)).thenReturn(Optional.of(deletedProduct));
+
+        // validate statistics follow changes of products
+        ProductStats stats = service.getStats();
+        service.addProduct(getProduct(-1, "product", 10, null, false));
+        assertEquals(stats.getCount() + 1, service.getStats().getCount());
+        assertEquals(stats.getTotalPrice() == null ? 10 : stats.getTotalPrice() + 10,
+                service.getStats().getTotalPrice(), 0.001);
+        service.updateProduct(300, getProduct(300, "product", 20, null, false));
+        assertEquals(stats.getCount() + 1, service.getStats().getCount());
+        assertEquals(stats.getTotalPrice() == null ? 20 : stats.getTotalPrice() + 20,
+                service.getStats().getTotalPrice(), 0.001);
+        service.deleteProduct(300);
+        assertEquals(stats.getCount(), service.getStats().getCount());
+        assertEquals(stats.getDeletedCount() + 1, service.getStats().getDeletedCount());
+        assertEquals(stats.getTotalPrice() == null ? 0 : stats.getTotalPrice(),
+                service.getStats().getTotalPrice() == null ? 0 : service.getStats().getTotalPrice(), 0.001);
+    }
+
+    /**
+     * Tests {@link ProductService#getCatalogEntityTag()}.
+     */
+    @Test
+    public void testGetCatalogEntityTag() {
+
+        // setup mocks
+        when(repository.save(any(Product.class))).thenAnswer(i -> updateId(i, 1));
+        when(repository.softDelete(1, CHANGE)).thenReturn(1);
+
+        // validate entity tag changes with each change
+        String etag = service.getCatalogEntityTag();
+        assertEquals(etag, service.getCatalogEntityTag());
+        service.addProduct(getProduct(-1, "product", 10, null, false));
+        assertNotEquals(etag, service.getCatalogEntityTag());
+        etag = service.getCatalogEntityTag();
+        service.deleteProduct(1);
+        assertNotEquals(etag, service.getCatalogEntityTag());
+    }
+
     /**
      * Simulates auto generation of id.
      */
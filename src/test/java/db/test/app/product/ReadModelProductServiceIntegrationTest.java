@@ -0,0 +1,55 @@
+package db.test.app.product;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import db.test.app.product.readmodel.ProductReadModel;
+
+/**
+ * Test of ProductService with JPA repository and in-memory read model.
+ */
+@SpringBootTest(properties = "product.read-model.enabled=true")
+public class ReadModelProductServiceIntegrationTest extends AbstractProductServiceIntegrationTest {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ProductReadModel readModel;
+
+    /**
+     * Tests products are read from the snapshot and each change publishes new snapshot.
+     */
+    @Test
+    public void testReadModel() {
+
+        long version = readModel.getSnapshot().getVersion();
+        Product product = service.addProduct(
+                TestUtils.getProduct(0, "read model product", 10, null, false));
+        assertEquals(version + 1, readModel.getSnapshot().getVersion());
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        long statements = statistics.getPrepareStatementCount();
+        assertEquals(product, service.getProduct(product.getId()));
+        assertEquals(Arrays.asList(product),
+                service.getProducts(Arrays.asList(product.getId())).getProducts());
+        service.getProducts();
+        service.getProducts(product.getId() - 1, 10);
+        // validate database is not accessed
+        assertEquals(statements, statistics.getPrepareStatementCount());
+        // validate deleted product is moved to deleted products
+        service.deleteProduct(product.getId());
+        assertEquals(version + 2, readModel.getSnapshot().getVersion());
+        Product deleted = service.getDeletedProducts(product.getId() - 1, 1).getProducts().get(0);
+        assertEquals(product.getId(), deleted.getId());
+        assertEquals(product.getVersion() + 1, deleted.getVersion());
+    }
+}
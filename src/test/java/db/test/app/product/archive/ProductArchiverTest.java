@@ -0,0 +1,80 @@
+package db.test.app.product.archive;
+
+import static db.test.app.product.TestUtils.getProduct;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import db.test.app.product.Product;
+import db.test.app.product.ProductArchiveRepository;
+import db.test.app.product.ProductDelta;
+import db.test.app.product.ProductRepository;
+import db.test.app.product.ProductService;
+
+/**
+ * Test of ProductArchiver with embedded database.
+ * Small batches are used so that products are archived in more transactions.
+ */
+@SpringBootTest(properties = { "product.archive.batch-size=2", "product.archive.pause=0ms" })
+public class ProductArchiverTest {
+
+    @Autowired
+    private ProductArchiver archiver;
+
+    @Autowired
+    private ProductService service;
+
+    @Autowired
+    private ProductRepository repository;
+
+    @Autowired
+    private ProductArchiveRepository archiveRepository;
+
+    /**
+     * Tests deleted products are moved to archive and are still returned as deleted products.
+     */
+    @Test
+    public void testArchive() throws InterruptedException {
+
+        // archive products deleted by other tests sharing the database
+        archiver.archive(Instant.now());
+        ProductDelta start = service.getChanges("0");
+        Product kept = service.addProduct(getProduct(0, "kept product", 10, null, false));
+        List<Integer> ids = Arrays.asList(kept.getId(),
+                service.addProduct(getProduct(0, "archived product 1", 20, null, false)).getId(),
+                service.addProduct(getProduct(0, "archived product 2", 30, null, false)).getId(),
+                service.addProduct(getProduct(0, "archived product 3", 40, null, false)).getId());
+        service.deleteProducts(ids.subList(1, ids.size()));
+        long deletedCount = service.getStats().getDeletedCount();
+        Thread.sleep(10);
+        Instant deletedBefore = Instant.now();
+        // validate only deleted products are archived (in two batches)
+        assertEquals(3, archiver.archive(deletedBefore));
+        assertEquals(0, archiver.archive(deletedBefore));
+        assertTrue(repository.findById(kept.getId()).isPresent());
+        for (int id : ids.subList(1, ids.size())) {
+            assertFalse(repository.findById(id).isPresent());
+            assertTrue(archiveRepository.findById(id).isPresent());
+        }
+        // validate archived products are still returned as deleted products
+        List<Integer> deletedIds = service.getDeletedProducts().stream().map(Product::getId)
+                .collect(Collectors.toList());
+        assertTrue(deletedIds.containsAll(ids.subList(1, ids.size())));
+        assertEquals(ids.subList(1, ids.size()), service.getDeletedProducts(kept.getId(), 3)
+                .getProducts().stream().map(Product::getId).collect(Collectors.toList()));
+        assertEquals(deletedCount, service.getStats().getDeletedCount());
+        assertTrue(service.getChanges(start.getNextToken()).getDeletedIds()
+                .containsAll(ids.subList(1, ids.size())));
+        // validate archived products can't be restored
+        assertEquals(ids.subList(1, 2), service.restoreProducts(ids.subList(1, 2)).getMissingIds());
+    }
+}
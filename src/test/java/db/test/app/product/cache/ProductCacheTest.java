@@ -0,0 +1,97 @@
+package db.test.app.product.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+
+import db.test.app.product.Product;
+import db.test.app.product.ProductChangedEvent;
+import db.test.app.product.ProductChangedEvent.Type;
+
+/**
+ * Test of ProductCache.
+ */
+public class ProductCacheTest {
+
+    /**
+     * Tests product is loaded only once.
+     */
+    @Test
+    public void testGet() {
+
+        ProductCache cache = new ProductCache(10, Duration.ofMinutes(1), false);
+        Product product = new Product();
+        CountingLoader loader = new CountingLoader(Optional.of(product));
+        // validate loader is called only for the first time
+        assertSame(product, cache.get(1, loader).get());
+        assertSame(product, cache.get(1, loader).get());
+        assertEquals(1, loader.calls.get());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    /**
+     * Tests missing product is cached only if negative entries are enabled.
+     */
+    @Test
+    public void testNegativeEntries() {
+
+        ProductCache cache = new ProductCache(10, Duration.ofMinutes(1), false);
+        CountingLoader loader = new CountingLoader(Optional.empty());
+        assertFalse(cache.get(1, loader).isPresent());
+        assertFalse(cache.get(1, loader).isPresent());
+        assertEquals(2, loader.calls.get());
+        // with negative entries
+        cache = new ProductCache(10, Duration.ofMinutes(1), true);
+        loader = new CountingLoader(Optional.empty());
+        assertFalse(cache.get(1, loader).isPresent());
+        assertFalse(cache.get(1, loader).isPresent());
+        assertEquals(1, loader.calls.get());
+    }
+
+    /**
+     * Tests entry is invalidated when product is changed.
+     */
+    @Test
+    public void testOnProductChanged() {
+
+        ProductCache cache = new ProductCache(10, Duration.ofMinutes(1), true);
+        CountingLoader loader = new CountingLoader(Optional.of(new Product()));
+        cache.get(1, loader);
+        cache.get(2, loader);
+        cache.onProductChanged(new ProductChangedEvent(Type.DELETED, 1, null));
+        // validate only changed product is loaded again
+        cache.get(1, loader);
+        cache.get(2, loader);
+        assertEquals(3, loader.calls.get());
+    }
+
+    /**
+     * Loader counting its calls.
+     */
+    private static class CountingLoader implements Function<Integer, Optional<Product>> {
+
+        private final Optional<Product> product;
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        CountingLoader(Optional<Product> product) {
+
+            this.product = product;
+        }
+
+        @Override
+        public Optional<Product> apply(Integer id) {
+
+            calls.incrementAndGet();
+            return product;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package db.test.app.product.cache;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.Test;
+
+import db.test.app.product.CatalogVersion;
+import db.test.app.product.ProductChangedEvent;
+import db.test.app.product.ProductChangedEvent.Type;
+
+/**
+ * Test of ProductListCache.
+ */
+public class ProductListCacheTest {
+
+    /**
+     * Tests list is serialized only once until the catalog changes.
+     */
+    @Test
+    public void testGet() throws IOException {
+
+        CatalogVersion catalogVersion = new CatalogVersion();
+        ProductListCache cache = new ProductListCache(catalogVersion);
+        CountingSerializer serializer = new CountingSerializer();
+        SerializedProducts products = cache.get(false, serializer);
+        assertArrayEquals("[1]".getBytes(StandardCharsets.UTF_8), products.getJson());
+        assertArrayEquals(products.getJson(), decompress(products.getGzip()));
+        assertSame(products, cache.get(false, serializer));
+        assertEquals(1, serializer.calls.get());
+        // validate deleted list is cached separately
+        cache.get(true, serializer);
+        assertEquals(2, serializer.calls.get());
+        // validate list is rebuilt after change
+        catalogVersion.onProductChanged(new ProductChangedEvent(Type.DELETED, 1, null));
+        products = cache.get(false, serializer);
+        assertArrayEquals("[3]".getBytes(StandardCharsets.UTF_8), products.getJson());
+        assertSame(products, cache.get(false, serializer));
+        assertEquals(3, serializer.calls.get());
+    }
+
+    /**
+     * Tests invalidated lists are rebuilt.
+     */
+    @Test
+    public void testInvalidateAll() {
+
+        ProductListCache cache = new ProductListCache(new CatalogVersion());
+        CountingSerializer serializer = new CountingSerializer();
+        cache.get(false, serializer);
+        cache.invalidateAll();
+        cache.get(false, serializer);
+        assertEquals(2, serializer.calls.get());
+    }
+
+    private static byte[] decompress(byte[] data) throws IOException {
+
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(data))) {
+            return in.readAllBytes();
+        }
+    }
+
+    /**
+     * Serializer returning number of its calls.
+     */
+    private static class CountingSerializer implements Supplier<byte[]> {
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        public byte[] get() {
+
+            return ("[" + calls.incrementAndGet() + "]").getBytes(StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package db.test.app.product.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import db.test.app.product.Product;
+import db.test.app.product.ProductChangedEvent;
+import db.test.app.product.ProductChangedEvent.Type;
+
+/**
+ * Test of ProductLoadCoalescer.
+ */
+public class ProductLoadCoalescerTest {
+
+    private static final int CALLERS = 8;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+
+    @AfterEach
+    public void tearDown() {
+
+        executor.shutdownNow();
+    }
+
+    /**
+     * Tests concurrent callers share one load.
+     */
+    @Test
+    public void testLoad() throws Exception {
+
+        ProductLoadCoalescer coalescer = new ProductLoadCoalescer(Duration.ofSeconds(10));
+        Product product = new Product();
+        BlockingLoader loader = new BlockingLoader(id -> Optional.of(product));
+        List<Future<Optional<Product>>> results = loadConcurrently(coalescer, loader);
+        loader.release.countDown();
+        for (Future<Optional<Product>> result : results) {
+            assertSame(product, result.get().get());
+        }
+        assertEquals(1, loader.calls.get());
+        assertEquals(1, coalescer.getLoadCount());
+        assertEquals(CALLERS - 1, coalescer.getCoalescedCount());
+        // validate next call loads the product again
+        coalescer.load(1, loader);
+        assertEquals(2, loader.calls.get());
+    }
+
+    /**
+     * Tests concurrent callers share result of missing product and exception of failed load.
+     */
+    @Test
+    public void testLoadFailure() throws Exception {
+
+        ProductLoadCoalescer coalescer = new ProductLoadCoalescer(Duration.ofSeconds(10));
+        BlockingLoader loader = new BlockingLoader(id -> Optional.empty());
+        List<Future<Optional<Product>>> results = loadConcurrently(coalescer, loader);
+        loader.release.countDown();
+        for (Future<Optional<Product>> result : results) {
+            assertFalse(result.get().isPresent());
+        }
+        assertEquals(1, loader.calls.get());
+
+        IllegalStateException failure = new IllegalStateException("database is down");
+        loader = new BlockingLoader(id -> {
+            throw failure;
+        });
+        results = loadConcurrently(coalescer, loader);
+        loader.release.countDown();
+        for (Future<Optional<Product>> result : results) {
+            ExecutionException e = assertThrows(ExecutionException.class, result::get);
+            assertSame(failure, e.getCause());
+        }
+        assertEquals(1, loader.calls.get());
+    }
+
+    /**
+     * Tests callers stop waiting after timeout and load the product themselves.
+     */
+    @Test
+    public void testLoadTimeout() throws Exception {
+
+        ProductLoadCoalescer coalescer = new ProductLoadCoalescer(Duration.ofMillis(10));
+        BlockingLoader loader = new BlockingLoader(id -> Optional.empty());
+        Future<Optional<Product>> first = executor.submit(() -> coalescer.load(1, loader));
+        loader.started.await(10, TimeUnit.SECONDS);
+        Optional<Product> product = coalescer.load(1, id -> Optional.of(new Product()));
+        assertTrue(product.isPresent());
+        assertEquals(1, coalescer.getTimeoutCount());
+        loader.release.countDown();
+        assertFalse(first.get().isPresent());
+    }
+
+    /**
+     * Tests callers arriving after committed change don't join load started before it.
+     */
+    @Test
+    public void testOnProductChanged() throws Exception {
+
+        ProductLoadCoalescer coalescer = new ProductLoadCoalescer(Duration.ofSeconds(10));
+        BlockingLoader loader = new BlockingLoader(id -> Optional.empty());
+        Future<Optional<Product>> first = executor.submit(() -> coalescer.load(1, loader));
+        loader.started.await(10, TimeUnit.SECONDS);
+        coalescer.onProductChanged(new ProductChangedEvent(Type.CREATED, 1, new Product()));
+        Product product = new Product();
+        assertSame(product, coalescer.load(1, id -> Optional.of(product)).get());
+        assertEquals(0, coalescer.getCoalescedCount());
+        loader.release.countDown();
+        assertFalse(first.get().isPresent());
+    }
+
+    private List<Future<Optional<Product>>> loadConcurrently(ProductLoadCoalescer coalescer,
+            BlockingLoader loader) throws InterruptedException {
+
+        List<Future<Optional<Product>>> results = new ArrayList<>();
+        results.add(executor.submit(() -> coalescer.load(1, loader)));
+        loader.started.await(10, TimeUnit.SECONDS);
+        CountDownLatch waiting = new CountDownLatch(CALLERS - 1);
+        for (int i = 1; i < CALLERS; i++) {
+            results.add(executor.submit(() -> {
+                waiting.countDown();
+                return coalescer.load(1, loader);
+            }));
+        }
+        waiting.await(10, TimeUnit.SECONDS);
+        // let the callers join the load in flight
+        Thread.sleep(100);
+        return results;
+    }
+
+    /**
+     * Loader blocking until released.
+     */
+    private static class BlockingLoader implements Function<Integer, Optional<Product>> {
+
+        private final Function<Integer, Optional<Product>> loader;
+
+        private final CountDownLatch started = new CountDownLatch(1);
+
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        BlockingLoader(Function<Integer, Optional<Product>> loader) {
+
+            this.loader = loader;
+        }
+
+        @Override
+        public Optional<Product> apply(Integer id) {
+
+            calls.incrementAndGet();
+            started.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return loader.apply(id);
+        }
+    }
+}
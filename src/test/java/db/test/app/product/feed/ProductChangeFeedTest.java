@@ -0,0 +1,62 @@
+package db.test.app.product.feed;
+
+import static db.test.app.product.TestUtils.getProduct;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import db.test.app.product.ProductChangedEvent;
+import db.test.app.product.ProductChangedEvent.Type;
+
+/**
+ * Test of ProductChangeFeed.
+ */
+public class ProductChangeFeedTest {
+
+    /**
+     * Tests changes are available only while they are in the buffer.
+     */
+    @Test
+    public void testGetChanges() {
+
+        ProductChangeFeed feed = new ProductChangeFeed(3, 10);
+        assertEquals(0, feed.getChanges(0).size());
+        for (int i = 1; i <= 5; i++) {
+            feed.onProductChanged(new ProductChangedEvent(Type.CREATED, i,
+                    getProduct(i, "product " + i, 10, LocalDate.now(), false)));
+        }
+        feed.onProductChanged(new ProductChangedEvent(Type.DELETED, 1, null));
+        assertEquals(6, feed.getLastOffset());
+        // validate changes following offset are returned in order
+        List<ProductChange> changes = feed.getChanges(4);
+        assertEquals(2, changes.size());
+        assertEquals(5, changes.get(0).getOffset());
+        assertEquals(5, changes.get(0).getId());
+        assertEquals(Type.DELETED, changes.get(1).getType());
+        assertNull(changes.get(1).getProduct());
+        assertEquals(3, feed.getChanges(3).size());
+        assertEquals(0, feed.getChanges(6).size());
+        // validate offsets which are no longer buffered or unknown
+        assertNull(feed.getChanges(2));
+        assertNull(feed.getChanges(7));
+        feed.shutdown();
+    }
+
+    /**
+     * Tests only event ids of this epoch are recognized.
+     */
+    @Test
+    public void testParseEventId() {
+
+        ProductChangeFeed feed = new ProductChangeFeed(3, 10);
+        assertEquals(Long.valueOf(5), feed.parseEventId(feed.getEventId(5)));
+        assertNull(feed.parseEventId("5"));
+        assertNull(feed.parseEventId("1-5"));
+        assertNull(feed.parseEventId(feed.getEventId(5) + "x"));
+        feed.shutdown();
+    }
+}
@@ -0,0 +1,106 @@
+package db.test.app.product.feed;
+
+import static db.test.app.product.TestUtils.getProduct;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import db.test.app.product.ProductChangedEvent;
+import db.test.app.product.ProductChangedEvent.Type;
+
+/**
+ * Test of ProductFeedController.
+ */
+@WebMvcTest(ProductFeedController.class)
+@Import(ProductChangeFeed.class)
+public class ProductFeedControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductChangeFeed feed;
+
+    /**
+     * Tests {@link ProductFeedController#getChanges(String)}. 
+     */
+    @Test
+    public void testGetChanges() throws Exception {
+
+        long offset = feed.getLastOffset();
+        feed.onProductChanged(new ProductChangedEvent(Type.CREATED, 1,
+                getProduct(1, "product 1", 10, LocalDate.now(), false)));
+        // validate buffered change is sent to resuming subscriber and new changes follow
+        MvcResult result = mockMvc
+                .perform(get("/products/changes")
+                        .header(ProductFeedController.LAST_EVENT_ID_HEADER, feed.getEventId(offset))
+                        .accept(MediaType.TEXT_EVENT_STREAM))//
+                .andExpect(request().asyncStarted())//
+                .andReturn();
+        feed.onProductChanged(new ProductChangedEvent(Type.DELETED, 1, null));
+        String content = awaitContent(result, "event:deleted");
+        assertTrue(content.contains("id:" + feed.getEventId(offset + 1) + "\nevent:created\n"));
+        assertTrue(content.contains("\"name\":\"product 1\""));
+        assertTrue(content.contains("id:" + feed.getEventId(offset + 2) + "\nevent:deleted\n"));
+    }
+
+    /**
+     * Tests subscriber which has fallen behind receives resync event.
+     */
+    @Test
+    public void testResync() throws Exception {
+
+        long offset = feed.getLastOffset();
+        MvcResult result = mockMvc
+                .perform(get("/products/changes")
+                        .header(ProductFeedController.LAST_EVENT_ID_HEADER, feed.getEventId(offset + 100))
+                        .accept(MediaType.TEXT_EVENT_STREAM))//
+                .andExpect(request().asyncStarted())//
+                .andReturn();
+        String content = awaitContent(result, "event:resync");
+        assertTrue(content.contains("id:" + feed.getEventId(offset) + "\nevent:resync\n"));
+    }
+
+    /**
+     * Tests subscriber resuming after event id of previous run receives resync event.
+     */
+    @Test
+    public void testResyncAfterRestart() throws Exception {
+
+        feed.onProductChanged(new ProductChangedEvent(Type.DELETED, 1, null));
+        long offset = feed.getLastOffset();
+        // the same offset as the last change but from other epoch
+        MvcResult result = mockMvc
+                .perform(get("/products/changes")
+                        .header(ProductFeedController.LAST_EVENT_ID_HEADER, "1-" + (offset - 1))
+                        .accept(MediaType.TEXT_EVENT_STREAM))//
+                .andExpect(request().asyncStarted())//
+                .andReturn();
+        String content = awaitContent(result, "event:resync");
+        assertTrue(content.contains("id:" + feed.getEventId(offset) + "\nevent:resync\n"));
+        assertFalse(content.contains("event:deleted"));
+    }
+
+    private static String awaitContent(MvcResult result, String expected) throws Exception {
+
+        for (int i = 0; i < 100; i++) {
+            String content = result.getResponse().getContentAsString();
+            if (content.contains(expected)) {
+                return content;
+            }
+            Thread.sleep(50);
+        }
+        return result.getResponse().getContentAsString();
+    }
+}
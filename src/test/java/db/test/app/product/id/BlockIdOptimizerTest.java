@@ -0,0 +1,102 @@
+package db.test.app.product.id;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.hibernate.id.IdentifierGeneratorHelper;
+import org.hibernate.id.IntegralDataTypeHolder;
+import org.hibernate.id.enhanced.AccessCallback;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test of BlockIdOptimizer.
+ */
+public class BlockIdOptimizerTest {
+
+    private static final int BLOCK_SIZE = 100;
+
+    /**
+     * Tests ids are handed out from reserved blocks.
+     */
+    @Test
+    public void testGenerate() {
+
+        SequenceCallback sequence = new SequenceCallback();
+        BlockIdOptimizer optimizer = new BlockIdOptimizer(Integer.class, BLOCK_SIZE);
+        // first block starts with initial value of the sequence
+        for (int i = 1; i <= BLOCK_SIZE; i++) {
+            assertEquals(i, optimizer.generate(sequence));
+        }
+        assertEquals(1, sequence.calls.get());
+        // next block is reserved once the first one is exhausted
+        assertEquals(BLOCK_SIZE + 1, optimizer.generate(sequence));
+        assertEquals(2, sequence.calls.get());
+        assertEquals(BLOCK_SIZE + 1, optimizer.getLastSourceValue().makeValue().intValue());
+    }
+
+    /**
+     * Tests ids are unique when generated concurrently.
+     */
+    @Test
+    public void testConcurrentGenerate() throws Exception {
+
+        int threads = 8;
+        int idsPerThread = 10_000;
+        SequenceCallback sequence = new SequenceCallback();
+        BlockIdOptimizer optimizer = new BlockIdOptimizer(Integer.class, BLOCK_SIZE);
+        Set<Object> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < idsPerThread; j++) {
+                        assertTrue(ids.add(optimizer.generate(sequence)));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        // all ids are unique and every reserved block was fully used
+        assertEquals(threads * idsPerThread, ids.size());
+        assertEquals(threads * idsPerThread / BLOCK_SIZE, sequence.calls.get());
+    }
+
+    /**
+     * Simulates database sequence incremented by block size.
+     */
+    private static class SequenceCallback implements AccessCallback {
+
+        private final AtomicLong value = new AtomicLong(1 - BLOCK_SIZE);
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        public IntegralDataTypeHolder getNextValue() {
+
+            calls.incrementAndGet();
+            return IdentifierGeneratorHelper.getIntegralDataTypeHolder(Long.class)
+                    .initialize(value.addAndGet(BLOCK_SIZE));
+        }
+
+        @Override
+        public String getTenantIdentifier() {
+
+            return null;
+        }
+    }
+}
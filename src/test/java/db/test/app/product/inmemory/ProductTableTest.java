@@ -0,0 +1,76 @@
+package db.test.app.product.inmemory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test of ProductTable.
+ */
+public class ProductTableTest {
+
+    /**
+     * Tests rows are found after segments are resized and rows are removed.
+     */
+    @Test
+    public void testPutAndRemove() {
+
+        ProductTable table = new ProductTable();
+        int size = 10000;
+        for (int id = 1; id <= size; id++) {
+            table.put(id, "product " + id, id, ProductTable.NULL_DAY, 0, false, id, id);
+        }
+        assertEquals(size, table.size());
+        for (int id = 1; id <= size; id += 2) {
+            assertTrue(table.remove(id));
+        }
+        assertFalse(table.remove(1));
+        assertEquals(size / 2, table.size());
+        // validate remaining rows are found with their values
+        for (int id = 1; id <= size; id++) {
+            String name = table.get(id, (rowId, rowName, price, day, version, deleted,
+                    modified, change) -> rowName);
+            if (id % 2 == 0) {
+                assertEquals("product " + id, name);
+            } else {
+                assertNull(name);
+            }
+        }
+        AtomicInteger rows = new AtomicInteger();
+        table.forEach((id, name, price, day, version, deleted, modified, change) -> rows
+                .incrementAndGet());
+        assertEquals(size / 2, rows.get());
+        table.clear();
+        assertEquals(0, table.size());
+    }
+
+    /**
+     * Tests conditional update, deletion and restoration.
+     */
+    @Test
+    public void testUpdateAndSoftDelete() {
+
+        ProductTable table = new ProductTable();
+        table.put(1, "product", 10, ProductTable.NULL_DAY, 0, false, 0, 0);
+        assertEquals(0, table.update(1, "product 1", 20, 1, 1, 11));
+        assertEquals(1, table.update(1, "product 1", 20, 0, 1, 11));
+        assertEquals(1, table.update(1, "product 2", 30, ProductTable.ANY_VERSION, 2, 12));
+        assertEquals(0, table.update(2, "product 2", 30, ProductTable.ANY_VERSION, 2, 12));
+        assertEquals(0, table.softDelete(1, 1, 3, 13));
+        assertEquals(1, table.softDelete(1, 2, 3, 13));
+        assertEquals(0, table.softDelete(1, ProductTable.ANY_VERSION, 4, 14));
+        assertEquals(0, table.update(1, "product 3", 30, ProductTable.ANY_VERSION, 4, 14));
+        assertEquals("product 2:3:true:3:13", table.get(1, (id, name, price, day, version, deleted,
+                modified, change) -> name + ":" + version + ":" + deleted + ":" + modified + ":" + change));
+        assertEquals(1, table.restore(1, 5, 15));
+        assertEquals(0, table.restore(1, 6, 16));
+        assertEquals(0, table.restore(2, 6, 16));
+        assertEquals("product 2:4:false:5:15", table.get(1, (id, name, price, day, version, deleted,
+                modified, change) -> name + ":" + version + ":" + deleted + ":" + modified + ":" + change));
+    }
+}
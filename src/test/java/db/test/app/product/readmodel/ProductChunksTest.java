@@ -0,0 +1,105 @@
+package db.test.app.product.readmodel;
+
+import static db.test.app.product.TestUtils.getProduct;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import db.test.app.product.PriceCursor;
+import db.test.app.product.Product;
+
+/**
+ * Test of ProductChunks.
+ */
+public class ProductChunksTest {
+
+    /**
+     * Tests single and bulk changes against sorted map.
+     */
+    @Test
+    public void testWith() {
+
+        Random random = new Random(1);
+        TreeMap<Integer, Product> expected = new TreeMap<>();
+        ProductChunks chunks = ProductChunks.EMPTY;
+        for (int i = 0; i < 20000; i++) {
+            int id = random.nextInt(5000);
+            if (random.nextInt(3) == 0) {
+                expected.remove(id);
+                chunks = chunks.without(id);
+            } else {
+                Product product = getProduct(id, "product " + id, 10, LocalDate.now(), false);
+                expected.put(id, product);
+                chunks = chunks.with(product);
+            }
+        }
+        assertChunks(expected, chunks);
+        // validate bulk changes (merged in one pass)
+        TreeMap<Integer, Product> changes = new TreeMap<>();
+        for (int i = 0; i < 3000; i++) {
+            int id = random.nextInt(6000);
+            Product product = random.nextBoolean() ? null
+                : getProduct(id, "product " + id, 20, LocalDate.now(), false);
+            changes.put(id, product);
+        }
+        chunks = chunks.with(changes);
+        changes.forEach((id, product) -> {
+            if (product != null) {
+                expected.put(id, product);
+            } else {
+                expected.remove(id);
+            }
+        });
+        assertChunks(expected, chunks);
+    }
+
+    /**
+     * Tests pages of products in price range ordered by id and by price.
+     */
+    @Test
+    public void testPriceRangePage() {
+
+        Random random = new Random(1);
+        List<Product> products = new ArrayList<>();
+        for (int id = 1; id <= 5000; id++) {
+            products.add(getProduct(id, "product " + id, random.nextInt(100), LocalDate.now(), false));
+        }
+        ProductChunks chunks = ProductChunks.of(products);
+        List<Product> inRange = products.stream()
+                .filter(product -> product.getPrice() >= 20 && product.getPrice() <= 30)
+                .collect(Collectors.toList());
+        // validate order by id
+        List<Product> page = chunks.priceRangePage(20, 30, inRange.get(99).getId(), 50);
+        assertEquals(inRange.subList(100, 150), page);
+        // validate order by price
+        inRange.sort(Comparator.comparingDouble(Product::getPrice).thenComparingInt(Product::getId));
+        assertEquals(inRange.subList(0, 50), chunks.priceRangePageByPrice(20, 30, PriceCursor.FIRST, 50));
+        Product last = inRange.get(99);
+        assertEquals(inRange.subList(100, 150), chunks.priceRangePageByPrice(20, 30,
+                new PriceCursor(last.getPrice(), last.getId()), 50));
+        assertEquals(inRange.subList(inRange.size() - 10, inRange.size()), chunks.priceRangePageByPrice(20,
+                30, new PriceCursor(inRange.get(inRange.size() - 11).getPrice(),
+                        inRange.get(inRange.size() - 11).getId()), 50));
+    }
+
+    private static void assertChunks(TreeMap<Integer, Product> expected, ProductChunks chunks) {
+
+        assertEquals(expected.size(), chunks.size());
+        assertEquals(new ArrayList<>(expected.values()), chunks.toList());
+        for (int id = -1; id <= 6000; id++) {
+            assertSame(expected.get(id), chunks.get(id));
+        }
+        assertEquals(new ArrayList<>(expected.tailMap(100, false).values()).subList(0, 50),
+                chunks.page(100, 50));
+        assertEquals(new ArrayList<>(expected.values()).subList(0, 10), chunks.page(-1, 10));
+    }
+}
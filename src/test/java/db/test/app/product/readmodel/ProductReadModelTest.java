@@ -0,0 +1,108 @@
+package db.test.app.product.readmodel;
+
+import static db.test.app.product.TestUtils.getProduct;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import db.test.app.product.Product;
+import db.test.app.product.ProductBulkChangedEvent;
+import db.test.app.product.ProductChangedEvent;
+import db.test.app.product.ProductChangedEvent.Type;
+import db.test.app.product.ProductService;
+
+/**
+ * Test of ProductReadModel.
+ */
+public class ProductReadModelTest {
+
+    /**
+     * Tests changes publish new snapshots and don't change previous ones.
+     */
+    @Test
+    public void testOnProductChanged() {
+
+        ProductReadModel readModel = new ProductReadModel();
+        readModel.onProductChanged(new ProductChangedEvent(Type.CREATED, 1, product(1, 0)));
+        assertNull(readModel.getSnapshot());
+        ReflectionTestUtils.setField(readModel, "productService", mock(ProductService.class));
+        readModel.load();
+        ProductSnapshot loaded = readModel.getSnapshot();
+
+        Product first = product(1, 0);
+        readModel.onProductsChanged(new ProductBulkChangedEvent(
+                Arrays.asList(new ProductChangedEvent(Type.CREATED, 1, first),
+                        new ProductChangedEvent(Type.CREATED, 2, product(2, 0)))));
+        readModel.onProductChanged(new ProductChangedEvent(Type.DELETED, 2, null));
+        ProductSnapshot snapshot = readModel.getSnapshot();
+        assertEquals(loaded.getVersion() + 2, snapshot.getVersion());
+        assertEquals(0, loaded.size(false));
+        assertSame(first, snapshot.getProduct(1));
+        assertNull(snapshot.getProduct(2));
+        Product deleted = snapshot.getProducts(true).get(0);
+        assertTrue(deleted.isDeleted());
+        assertEquals(1, deleted.getVersion());
+        assertEquals(Arrays.asList(first), snapshot.getProducts(false, 0, 10));
+        assertEquals(0, snapshot.getProducts(false, 1, 10).size());
+    }
+
+    /**
+     * Tests older product published after newer one is ignored.
+     */
+    @Test
+    public void testOnProductChangedOutOfOrder() {
+
+        ProductReadModel readModel = new ProductReadModel();
+        ReflectionTestUtils.setField(readModel, "productService", mock(ProductService.class));
+        readModel.load();
+        Product updated = product(1, 1);
+        readModel.onProductChanged(new ProductChangedEvent(Type.UPDATED, 1, updated));
+        readModel.onProductChanged(new ProductChangedEvent(Type.CREATED, 1, product(1, 0)));
+        assertSame(updated, readModel.getSnapshot().getProduct(1));
+        // update to version 2 committed before deletion (version 3) but published after it
+        readModel.onProductChanged(new ProductChangedEvent(Type.DELETED, 1, 3, null));
+        readModel.onProductChanged(new ProductChangedEvent(Type.UPDATED, 1, product(1, 2)));
+        assertNull(readModel.getSnapshot().getProduct(1));
+        assertEquals(3, readModel.getSnapshot().getProducts(true).get(0).getVersion());
+        // restoration is newer than the deletion
+        Product restored = product(1, 4);
+        readModel.onProductChanged(new ProductChangedEvent(Type.RESTORED, 1, restored));
+        assertSame(restored, readModel.getSnapshot().getProduct(1));
+        assertEquals(0, readModel.getSnapshot().size(true));
+    }
+
+    /**
+     * Tests deletion published before creation of the product keeps the product deleted.
+     */
+    @Test
+    public void testOnProductChangedDeletedFirst() {
+
+        ProductReadModel readModel = new ProductReadModel();
+        ReflectionTestUtils.setField(readModel, "productService", mock(ProductService.class));
+        readModel.load();
+        readModel.onProductChanged(new ProductChangedEvent(Type.DELETED, 1, 1, null));
+        assertEquals(0, readModel.getSnapshot().size(true));
+        readModel.onProductChanged(new ProductChangedEvent(Type.CREATED, 1, product(1, 0)));
+        ProductSnapshot snapshot = readModel.getSnapshot();
+        assertNull(snapshot.getProduct(1));
+        Product deleted = snapshot.getProducts(true).get(0);
+        assertTrue(deleted.isDeleted());
+        assertEquals(1, deleted.getVersion());
+        assertEquals("product 1", deleted.getName());
+    }
+
+    private static Product product(int id, int version) {
+
+        Product product = getProduct(id, "product " + id, 10, LocalDate.now(), false);
+        ReflectionTestUtils.setField(product, "version", version);
+        return product;
+    }
+}
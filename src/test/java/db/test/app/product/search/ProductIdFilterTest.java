@@ -0,0 +1,85 @@
+package db.test.app.product.search;
+
+import static db.test.app.product.TestUtils.getProduct;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import db.test.app.product.Product;
+import db.test.app.product.ProductBulkChangedEvent;
+import db.test.app.product.ProductChangedEvent;
+import db.test.app.product.ProductChangedEvent.Type;
+import db.test.app.product.ProductService;
+
+/**
+ * Test of ProductIdFilter.
+ */
+public class ProductIdFilterTest {
+
+    /**
+     * Tests filter contains ids of loaded products and accepts all ids until it is loaded.
+     */
+    @Test
+    public void testLoad() {
+
+        ProductIdFilter filter = new ProductIdFilter();
+        assertTrue(filter.mightContain(1));
+        load(filter, 1, 63, 64, ProductIdFilter.PAGE_BITS, Integer.MAX_VALUE);
+        for (int id : new int[] { 1, 63, 64, ProductIdFilter.PAGE_BITS, Integer.MAX_VALUE }) {
+            assertTrue(filter.mightContain(id), "id " + id);
+        }
+        for (int id : new int[] { -1, 0, 2, 65, ProductIdFilter.PAGE_BITS + 1, Integer.MAX_VALUE - 1 }) {
+            assertFalse(filter.mightContain(id), "id " + id);
+        }
+        assertEquals(6, filter.getRejectedCount());
+    }
+
+    /**
+     * Tests ids of created and restored products are added and ids of deleted products are kept,
+     * even if the deletion is received after the restore.
+     */
+    @Test
+    public void testOnProductChanged() {
+
+        ProductIdFilter filter = new ProductIdFilter();
+        load(filter, 1, 2);
+        filter.onProductChanged(new ProductChangedEvent(Type.CREATED, 3,
+                getProduct(3, "product 3", 10, LocalDate.now(), false)));
+        filter.onProductChanged(new ProductChangedEvent(Type.DELETED, 1, null));
+        assertTrue(filter.mightContain(1));
+        assertTrue(filter.mightContain(2));
+        assertTrue(filter.mightContain(3));
+        filter.onProductsChanged(new ProductBulkChangedEvent(
+                Arrays.asList(new ProductChangedEvent(Type.RESTORED, 4,
+                        getProduct(4, "product 4", 10, LocalDate.now(), false)),
+                        new ProductChangedEvent(Type.DELETED, 4, null))));
+        assertTrue(filter.mightContain(4));
+        assertFalse(filter.mightContain(5));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void load(ProductIdFilter filter, int... ids) {
+
+        ProductService productService = mock(ProductService.class);
+        doAnswer(invocation -> {
+            Consumer<Product> consumer = invocation.getArgument(1);
+            for (int id : ids) {
+                consumer.accept(getProduct(id, "product " + id, 10, LocalDate.now(), false));
+            }
+            return null;
+        }).when(productService).exportProducts(eq(false), any(Consumer.class));
+        ReflectionTestUtils.setField(filter, "productService", productService);
+        filter.load();
+    }
+}
@@ -0,0 +1,210 @@
+package db.test.app.product.search;
+
+import static db.test.app.product.TestUtils.getProduct;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import db.test.app.product.PriceAggregate;
+import db.test.app.product.PriceCursor;
+import db.test.app.product.Product;
+import db.test.app.product.ProductBulkChangedEvent;
+import db.test.app.product.ProductChangedEvent;
+import db.test.app.product.ProductChangedEvent.Type;
+
+/**
+ * Test of ProductPriceIndex.
+ */
+public class ProductPriceIndexTest {
+
+    /**
+     * Tests range queries with pagination.
+     */
+    @Test
+    public void testFind() {
+
+        ProductPriceIndex index = new ProductPriceIndex();
+        index.put(1, 30);
+        index.put(2, 10);
+        index.put(3, 20);
+        index.put(4, 20);
+        index.put(5, 50);
+        // validate products are ordered by price and id
+        assertArrayEquals(new int[] { 2, 3, 4, 1, 5 },
+                ids(index.find(-Double.MAX_VALUE, Double.MAX_VALUE, PriceCursor.FIRST, 10)));
+        assertArrayEquals(new int[] { 3, 4, 1 }, ids(index.find(20, 30, PriceCursor.FIRST, 10)));
+        // validate pagination
+        ProductPriceIndex.Entries page = index.find(20, 50, PriceCursor.FIRST, 2);
+        assertArrayEquals(new int[] { 3, 4 }, ids(page));
+        PriceCursor cursor = new PriceCursor(page.getPrice(1), page.getId(1));
+        assertArrayEquals(new int[] { 1, 5 }, ids(index.find(20, 50, cursor, 2)));
+        assertEquals(0, index.find(60, 70, PriceCursor.FIRST, 2).size());
+    }
+
+    /**
+     * Tests index is updated when product is changed.
+     */
+    @Test
+    public void testOnProductChanged() {
+
+        ProductPriceIndex index = new ProductPriceIndex();
+        index.onProductChanged(new ProductChangedEvent(Type.CREATED, 1,
+                getProduct(1, "product 1", 10, LocalDate.now(), false)));
+        index.onProductChanged(new ProductChangedEvent(Type.CREATED, 2,
+                getProduct(2, "product 2", 20, LocalDate.now(), false)));
+        index.onProductChanged(new ProductChangedEvent(Type.UPDATED, 1, 1,
+                getProduct(1, "product 1", 30, LocalDate.now(), false)));
+        assertArrayEquals(new int[] { 2, 1 }, ids(index.find(0, 100, PriceCursor.FIRST, 10)));
+        index.onProductChanged(new ProductChangedEvent(Type.DELETED, 2, null));
+        assertArrayEquals(new int[] { 1 }, ids(index.find(0, 100, PriceCursor.FIRST, 10)));
+        assertEquals(1, index.size());
+    }
+
+    /**
+     * Tests late changes of concurrent transactions don't overwrite newer state.
+     */
+    @Test
+    public void testOnProductChangedOutOfOrder() {
+
+        ProductPriceIndex index = new ProductPriceIndex();
+        Product product = getProduct(1, "product 1", 10, LocalDate.now(), false);
+        index.onProductChanged(new ProductChangedEvent(Type.CREATED, 1, 0, product));
+        // deletion (version 2) is published before the update (version 1)
+        index.onProductChanged(new ProductChangedEvent(Type.DELETED, 1, 2, null));
+        index.onProductChanged(new ProductChangedEvent(Type.UPDATED, 1, 1,
+                getProduct(1, "product 1", 20, LocalDate.now(), false)));
+        assertEquals(0, index.size());
+        assertNull(index.getAggregate().getMinPrice());
+        // restore (version 3) is published before the deletion in bulk
+        index.onProductsChanged(new ProductBulkChangedEvent(Arrays.asList(
+                new ProductChangedEvent(Type.RESTORED, 1, 3, product),
+                new ProductChangedEvent(Type.DELETED, 1, 2, null))));
+        assertArrayEquals(new int[] { 1 }, ids(index.find(0, 100, PriceCursor.FIRST, 10)));
+        index.onProductChanged(new ProductChangedEvent(Type.UPDATED, 1, 2,
+                getProduct(1, "product 1", 30, LocalDate.now(), false)));
+        assertEquals(10, index.getAggregate().getMaxPrice());
+    }
+
+    /**
+     * Tests index is updated when products are changed in bulk.
+     */
+    @Test
+    public void testOnProductsChanged() {
+
+        ProductPriceIndex index = new ProductPriceIndex();
+        index.put(1, 10);
+        index.put(2, 20);
+        index.put(3, 30);
+        index.onProductsChanged(new ProductBulkChangedEvent(
+                Arrays.asList(new ProductChangedEvent(Type.DELETED, 1, null),
+                        new ProductChangedEvent(Type.DELETED, 3, null),
+                        new ProductChangedEvent(Type.RESTORED, 4,
+                                getProduct(4, "product 4", 5, LocalDate.now(), false)))));
+        assertArrayEquals(new int[] { 4, 2 }, ids(index.find(0, 100, PriceCursor.FIRST, 10)));
+        assertEquals(2, index.size());
+    }
+
+    /**
+     * Tests index split into many chunks against sorted list of entries.
+     */
+    @Test
+    public void testChunks() {
+
+        Random random = new Random(1);
+        ProductPriceIndex index = new ProductPriceIndex();
+        Map<Integer, Double> expected = new HashMap<>();
+        for (int i = 0; i < 20000; i++) {
+            int id = random.nextInt(5000);
+            if (random.nextInt(3) == 0) {
+                expected.remove(id);
+                index.remove(id);
+            } else {
+                double price = random.nextInt(100);
+                expected.put(id, price);
+                index.put(id, price);
+            }
+        }
+        assertEquals(expected.size(), index.size());
+        int[] sortedIds = expected.entrySet().stream()
+                .sorted(Comparator.comparing(Map.Entry<Integer, Double>::getValue)
+                        .thenComparing(Map.Entry::getKey))
+                .mapToInt(Map.Entry::getKey).toArray();
+        assertArrayEquals(sortedIds, ids(index.find(-Double.MAX_VALUE, Double.MAX_VALUE,
+                PriceCursor.FIRST, sortedIds.length)));
+        int[] range = Arrays.stream(sortedIds)
+                .filter(id -> expected.get(id) >= 20 && expected.get(id) <= 30).toArray();
+        assertArrayEquals(Arrays.copyOf(range, 50), ids(index.find(20, 30, PriceCursor.FIRST, 50)));
+        PriceCursor cursor = new PriceCursor(expected.get(range[99]), range[99]);
+        assertArrayEquals(Arrays.copyOfRange(range, 100, 150), ids(index.find(20, 30, cursor, 50)));
+        // validate aggregate follows the changes
+        PriceAggregate aggregate = index.getAggregate();
+        assertEquals(expected.size(), aggregate.getProductCount());
+        assertEquals(expected.get(sortedIds[0]), aggregate.getMinPrice());
+        assertEquals(expected.get(sortedIds[sortedIds.length - 1]), aggregate.getMaxPrice());
+        assertEquals(expected.values().stream().mapToDouble(Double::doubleValue).sum(),
+                aggregate.getPriceSum(), 0.001);
+    }
+
+    /**
+     * Tests queries with limit larger than the index don't fail while products are removed concurrently.
+     */
+    @Test
+    public void testFindConcurrentRemove() throws Exception {
+
+        ProductPriceIndex index = new ProductPriceIndex();
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 20000; i++) {
+                index.put(i % 100 + 1, i % 7);
+                index.remove(i % 100 + 1);
+            }
+        });
+        for (int id = 1; id <= 100; id++) {
+            index.put(id + 100, id);
+        }
+        writer.start();
+        while (writer.isAlive()) {
+            index.find(-Double.MAX_VALUE, Double.MAX_VALUE, PriceCursor.FIRST, 1001);
+        }
+        writer.join();
+        assertEquals(100, index.size());
+    }
+
+    /**
+     * Tests sorting of parallel arrays by price and id.
+     */
+    @Test
+    public void testSort() {
+
+        Random random = new Random(1);
+        int size = 1000;
+        double[] prices = new double[size];
+        int[] ids = new int[size];
+        for (int i = 0; i < size; i++) {
+            prices[i] = random.nextInt(100);
+            ids[i] = size - i;
+        }
+        ProductPriceIndex.sort(prices, ids);
+        for (int i = 1; i < size; i++) {
+            assertEquals(true, prices[i - 1] < prices[i]
+                    || (prices[i - 1] == prices[i] && ids[i - 1] < ids[i]));
+        }
+    }
+
+    private static int[] ids(ProductPriceIndex.Entries entries) {
+
+        int[] ids = new int[entries.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = entries.getId(i);
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,121 @@
+package db.test.app.product.search;
+
+import static db.test.app.product.TestUtils.getProduct;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import db.test.app.product.Product;
+import db.test.app.product.ProductBulkChangedEvent;
+import db.test.app.product.ProductChangedEvent;
+import db.test.app.product.ProductChangedEvent.Type;
+
+/**
+ * Test of ProductSearchIndex.
+ */
+public class ProductSearchIndexTest {
+
+    /**
+     * Tests splitting of names to tokens.
+     */
+    @Test
+    public void testTokenize() {
+
+        assertEquals(Arrays.asList("red", "apple", "2kg"),
+                ProductSearchIndex.tokenize(" Red apple, 2kg (red)"));
+        assertTrue(ProductSearchIndex.tokenize(" - ").isEmpty());
+        assertTrue(ProductSearchIndex.tokenize(null).isEmpty());
+    }
+
+    /**
+     * Tests matching and ranking of products.
+     */
+    @Test
+    public void testSearch() {
+
+        ProductSearchIndex index = new ProductSearchIndex();
+        index.add(getProduct(1, "Green apples", 10, LocalDate.now(), false));
+        index.add(getProduct(2, "Red apple juice", 20, LocalDate.now(), false));
+        index.add(getProduct(3, "Red apple", 30, LocalDate.now(), false));
+        index.add(getProduct(4, "Pineapple", 40, LocalDate.now(), false));
+        // whole words first, then shorter names
+        assertEquals(Arrays.asList(3, 2, 1), ids(index.search("apple", 10)));
+        assertEquals(Arrays.asList(3, 2), ids(index.search("RED app", 10)));
+        assertEquals(Arrays.asList(3), ids(index.search("apple", 1)));
+        assertEquals(Arrays.asList(2), ids(index.search("ju re", 10)));
+        assertTrue(index.search("banana", 10).isEmpty());
+        assertTrue(index.search("red banana", 10).isEmpty());
+        assertTrue(index.search(" ", 10).isEmpty());
+    }
+
+    /**
+     * Tests number of scored candidates is limited and only the best products are returned.
+     */
+    @Test
+    public void testSearchCandidates() {
+
+        ProductSearchIndex index = new ProductSearchIndex();
+        for (int i = 1; i <= ProductSearchIndex.MAX_CANDIDATES + 10; i++) {
+            index.add(getProduct(i, String.format("box item%04d", i), 10, LocalDate.now(), false));
+        }
+        index.add(getProduct(5000, "item box", 10, LocalDate.now(), false));
+        index.add(getProduct(5001, "red item", 10, LocalDate.now(), false));
+        // candidates of the first term: whole token "item", then tokens starting with "it" up to the limit
+        List<Integer> found = ids(index.search("it box", 2000));
+        assertEquals(ProductSearchIndex.MAX_CANDIDATES - 1, found.size());
+        assertEquals(Arrays.asList(5000, 1, 2), found.subList(0, 3));
+        assertEquals(Integer.valueOf(ProductSearchIndex.MAX_CANDIDATES - 2), found.get(found.size() - 1));
+        assertEquals(Arrays.asList(5000, 1, 2), ids(index.search("it box", 3)));
+        // selective term picks candidates regardless of the order of terms
+        assertEquals(Arrays.asList(5001), ids(index.search("it red", 10)));
+        assertEquals(ProductSearchIndex.MAX_CANDIDATES, index.search("box it", 2000).size());
+    }
+
+    /**
+     * Tests index is updated when product is changed.
+     */
+    @Test
+    public void testOnProductChanged() {
+
+        ProductSearchIndex index = new ProductSearchIndex();
+        index.onProductChanged(new ProductChangedEvent(Type.CREATED, 1,
+                getProduct(1, "red apple", 10, LocalDate.now(), false)));
+        assertEquals(Arrays.asList(1), ids(index.search("red", 10)));
+        index.onProductChanged(new ProductChangedEvent(Type.UPDATED, 1, 1,
+                getProduct(1, "green apple", 10, LocalDate.now(), false)));
+        assertTrue(index.search("red", 10).isEmpty());
+        assertEquals(Arrays.asList(1), ids(index.search("green", 10)));
+        index.onProductChanged(new ProductChangedEvent(Type.DELETED, 1, null));
+        assertTrue(index.search("apple", 10).isEmpty());
+    }
+
+    /**
+     * Tests late update published after deletion doesn't add the product again.
+     */
+    @Test
+    public void testOnProductChangedOutOfOrder() {
+
+        ProductSearchIndex index = new ProductSearchIndex();
+        index.onProductChanged(new ProductChangedEvent(Type.CREATED, 1, 0,
+                getProduct(1, "red apple", 10, LocalDate.now(), false)));
+        index.onProductChanged(new ProductChangedEvent(Type.DELETED, 1, 2, null));
+        index.onProductChanged(new ProductChangedEvent(Type.UPDATED, 1, 1,
+                getProduct(1, "green apple", 10, LocalDate.now(), false)));
+        assertTrue(index.search("apple", 10).isEmpty());
+        // restored product is found again
+        index.onProductsChanged(new ProductBulkChangedEvent(Arrays.asList(new ProductChangedEvent(
+                Type.RESTORED, 1, 3, getProduct(1, "green apple", 10, LocalDate.now(), false)))));
+        assertEquals(Arrays.asList(1), ids(index.search("apple", 10)));
+    }
+
+    private static List<Integer> ids(List<Product> products) {
+
+        return products.stream().map(Product::getId).collect(Collectors.toList());
+    }
+}
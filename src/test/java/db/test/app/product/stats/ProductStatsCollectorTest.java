@@ -0,0 +1,165 @@
+package db.test.app.product.stats;
+
+import static db.test.app.product.TestUtils.getProduct;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import db.test.app.product.PriceAggregate;
+import db.test.app.product.ProductBulkChangedEvent;
+import db.test.app.product.ProductChangedEvent;
+import db.test.app.product.ProductChangedEvent.Type;
+import db.test.app.product.ProductStore;
+import db.test.app.product.search.ProductPriceIndex;
+
+/**
+ * Test of ProductStatsCollector.
+ */
+public class ProductStatsCollectorTest {
+
+    /**
+     * Tests statistics are updated when product is changed.
+     */
+    @Test
+    public void testOnProductChanged() {
+
+        ProductStatsCollector collector = new ProductStatsCollector();
+        ProductPriceIndex priceIndex = new ProductPriceIndex();
+        ReflectionTestUtils.setField(collector, "priceIndex", priceIndex);
+        ProductStats stats = collector.getStats();
+        assertEquals(0, stats.getCount());
+        assertNull(stats.getMinPrice());
+        assertNull(stats.getAveragePrice());
+        change(collector, priceIndex, new ProductChangedEvent(Type.CREATED, 1,
+                getProduct(1, "product 1", 10, LocalDate.now(), false)));
+        change(collector, priceIndex, new ProductChangedEvent(Type.CREATED, 2,
+                getProduct(2, "product 2", 20, LocalDate.now(), false)));
+        change(collector, priceIndex, new ProductChangedEvent(Type.CREATED, 3,
+                getProduct(3, "product 3", 20, LocalDate.now(), false)));
+        change(collector, priceIndex, new ProductChangedEvent(Type.UPDATED, 1, 1,
+                getProduct(1, "product 1", 50, LocalDate.now(), false)));
+        stats = collector.getStats();
+        assertEquals(3, stats.getCount());
+        assertEquals(0, stats.getDeletedCount());
+        assertEquals(20, stats.getMinPrice());
+        assertEquals(50, stats.getMaxPrice());
+        assertEquals(90, stats.getTotalPrice(), 0.001);
+        assertEquals(30, stats.getAveragePrice(), 0.001);
+        change(collector, priceIndex, new ProductChangedEvent(Type.DELETED, 2, 1, null));
+        stats = collector.getStats();
+        assertEquals(2, stats.getCount());
+        assertEquals(1, stats.getDeletedCount());
+        assertEquals(20, stats.getMinPrice());
+        assertEquals(70, stats.getTotalPrice(), 0.001);
+        change(collector, priceIndex, new ProductChangedEvent(Type.DELETED, 3, 1, null));
+        assertEquals(50, collector.getStats().getMinPrice());
+    }
+
+    /**
+     * Tests statistics are updated when products are deleted and restored in bulk.
+     */
+    @Test
+    public void testOnProductsChanged() {
+
+        ProductStatsCollector collector = new ProductStatsCollector();
+        ProductPriceIndex priceIndex = new ProductPriceIndex();
+        ReflectionTestUtils.setField(collector, "priceIndex", priceIndex);
+        change(collector, priceIndex, new ProductChangedEvent(Type.CREATED, 1,
+                getProduct(1, "product 1", 10, LocalDate.now(), false)));
+        change(collector, priceIndex, new ProductChangedEvent(Type.CREATED, 2,
+                getProduct(2, "product 2", 20, LocalDate.now(), false)));
+        change(collector, priceIndex, new ProductBulkChangedEvent(
+                Arrays.asList(new ProductChangedEvent(Type.DELETED, 1, 1, null),
+                        new ProductChangedEvent(Type.DELETED, 2, 1, null))));
+        assertEquals(0, collector.getStats().getCount());
+        assertEquals(2, collector.getStats().getDeletedCount());
+        assertNull(collector.getStats().getTotalPrice());
+        change(collector, priceIndex, new ProductBulkChangedEvent(
+                Arrays.asList(new ProductChangedEvent(Type.RESTORED, 2, 2,
+                        getProduct(2, "product 2", 20, LocalDate.now(), false)))));
+        ProductStats stats = collector.getStats();
+        assertEquals(1, stats.getCount());
+        assertEquals(1, stats.getDeletedCount());
+        assertEquals(20, stats.getTotalPrice(), 0.001);
+    }
+
+    /**
+     * Tests sum of many prices doesn't accumulate rounding errors.
+     */
+    @Test
+    public void testCompensatedSum() {
+
+        ProductStatsCollector collector = new ProductStatsCollector();
+        ProductPriceIndex priceIndex = new ProductPriceIndex();
+        ReflectionTestUtils.setField(collector, "priceIndex", priceIndex);
+        priceIndex.put(1, 1e9);
+        for (int id = 2; id <= 10001; id++) {
+            priceIndex.put(id, 0.01);
+        }
+        priceIndex.remove(1);
+        assertEquals(100, collector.getStats().getTotalPrice(), 1e-9);
+    }
+
+    /**
+     * Tests the price index is loaded again if it doesn't match database aggregate.
+     */
+    @Test
+    public void testLoadMismatch() {
+
+        ProductStatsCollector collector = new ProductStatsCollector();
+        ProductPriceIndex priceIndex = mock(ProductPriceIndex.class);
+        ReflectionTestUtils.setField(collector, "priceIndex", priceIndex);
+        // product 2 was created after the index was loaded
+        PriceAggregate indexed = aggregate(1, 10d);
+        when(priceIndex.getAggregate()).thenReturn(indexed);
+        load(collector, aggregate(2, 30d));
+        verify(priceIndex).load();
+        assertEquals(3, collector.getStats().getDeletedCount());
+        // validate matching index is kept (database sum may differ by rounding)
+        load(collector, aggregate(1, 10 + 1e-12));
+        verify(priceIndex).load();
+        assertEquals(3, collector.getStats().getDeletedCount());
+    }
+
+    private static void change(ProductStatsCollector collector, ProductPriceIndex priceIndex,
+            ProductChangedEvent event) {
+
+        priceIndex.onProductChanged(event);
+        collector.onProductChanged(event);
+    }
+
+    private static void change(ProductStatsCollector collector, ProductPriceIndex priceIndex,
+            ProductBulkChangedEvent event) {
+
+        priceIndex.onProductsChanged(event);
+        collector.onProductsChanged(event);
+    }
+
+    private static void load(ProductStatsCollector collector, PriceAggregate aggregate) {
+
+        ProductStore repository = mock(ProductStore.class);
+        PriceAggregate deleted = aggregate(3, 60d);
+        when(repository.aggregatePrices(true)).thenReturn(deleted);
+        when(repository.aggregatePrices(false)).thenReturn(aggregate);
+        ReflectionTestUtils.setField(collector, "repository", repository);
+        collector.load();
+    }
+
+    private static PriceAggregate aggregate(long count, Double sum) {
+
+        PriceAggregate aggregate = mock(PriceAggregate.class);
+        when(aggregate.getProductCount()).thenReturn(count);
+        when(aggregate.getMinPrice()).thenReturn(10d);
+        when(aggregate.getMaxPrice()).thenReturn(sum);
+        when(aggregate.getPriceSum()).thenReturn(sum);
+        return aggregate;
+    }
+}
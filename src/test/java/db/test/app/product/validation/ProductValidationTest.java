@@ -29,6 +29,18 @@ public class ProductValidationTest {
         // no exception expected
     }
 
+    /**
+     * Tests messages are the same as messages of product constraints.
+     */
+    @Test
+    public void testMessages() {
+
+        Exception exception = assertThrows(ProductValidationException.class,
+                () -> validator.validate(new Product()));
+        assertThat(exception).hasMessage(
+                "name of the product is mandatory, price of the product has to be a positive value");
+    }
+
     /**
      * Tests empty product.
      */
@@ -49,7 +61,7 @@ public class ProductValidationTest {
     public void testProductName() {
 
         Product[] products = { getProduct(null, 10.50), getProduct("", 10.50),
-                getProduct("   ", 10.50) };
+                getProduct("   ", 10.50), getProduct("\t\n ", 10.50) };
         for (Product product : products) {
             Exception exception = assertThrows(ProductValidationException.class,
                     () -> validator.validate(product));
@@ -63,7 +75,8 @@ public class ProductValidationTest {
     @Test
     public void testProductWithoutPrice() {
 
-        Product[] products = { getProduct("product", 0), getProduct("product", -10.50) };
+        Product[] products = { getProduct("product", 0), getProduct("product", -10.50),
+                getProduct("product", Double.NaN) };
         for (Product product : products) {
             Exception exception = assertThrows(ProductValidationException.class,
                     () -> validator.validate(product));